@@ -0,0 +1,118 @@
+package com.wzhnsc.dealcardsdemo;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Bundle;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * 比较 Cards 与 FlatCards 每张卡片的视图数和测量、布局、绘制耗时。
+ * 耗时通过 instrumentation status 输出（am instrument -r 可以看到）。
+ */
+@RunWith(AndroidJUnit4.class)
+public class CardsRenderBenchmarkTest {
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int ROUNDS = 200;
+
+    @Test
+    public void flatCards_isSingleView() throws Exception {
+        Context context = InstrumentationRegistry.getTargetContext();
+
+        assertEquals(3, countViews(new Cards(context)));
+        assertEquals(1, countViews(new FlatCards(context)));
+    }
+
+    @Test
+    public void measureLayoutDraw_perCard() throws Exception {
+        final Context context = InstrumentationRegistry.getTargetContext();
+        final int size = context.getResources().getDimensionPixelSize(R.dimen.cards_size);
+
+        final long[] nested = new long[3];
+        final long[] flat = new long[3];
+
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+                Canvas canvas = new Canvas(bitmap);
+
+                Cards cards = new Cards(context);
+                FlatCards flatCards = new FlatCards(context);
+
+                run(cards, size, canvas, WARMUP_ROUNDS, new long[3]);
+                run(flatCards, size, canvas, WARMUP_ROUNDS, new long[3]);
+
+                run(cards, size, canvas, ROUNDS, nested);
+                run(flatCards, size, canvas, ROUNDS, flat);
+
+                bitmap.recycle();
+            }
+
+            private void run(CardsBase card, int size, Canvas canvas, int rounds, long[] outNanos) {
+                int spec = View.MeasureSpec.makeMeasureSpec(size, View.MeasureSpec.EXACTLY);
+
+                for (int i = 0; i < rounds; i++) {
+                    // 每轮都换数字，强制重新测量和绘制
+                    if (card instanceof Cards) {
+                        ((Cards)card).setNumber(i % 52);
+                    }
+                    else {
+                        ((FlatCards)card).setNumber(i % 52);
+                    }
+                    card.requestLayout();
+
+                    long start = System.nanoTime();
+                    card.measure(spec, spec);
+                    long measured = System.nanoTime();
+                    card.layout(0, 0, size, size);
+                    long laidOut = System.nanoTime();
+                    card.draw(canvas);
+                    long drawn = System.nanoTime();
+
+                    outNanos[0] += measured - start;
+                    outNanos[1] += laidOut - measured;
+                    outNanos[2] += drawn - laidOut;
+                }
+            }
+        });
+
+        Bundle results = new Bundle();
+        results.putLong("cards_measure_ns", nested[0] / ROUNDS);
+        results.putLong("cards_layout_ns", nested[1] / ROUNDS);
+        results.putLong("cards_draw_ns", nested[2] / ROUNDS);
+        results.putLong("flat_cards_measure_ns", flat[0] / ROUNDS);
+        results.putLong("flat_cards_layout_ns", flat[1] / ROUNDS);
+        results.putLong("flat_cards_draw_ns", flat[2] / ROUNDS);
+        InstrumentationRegistry.getInstrumentation().sendStatus(0, results);
+
+        // 单个视图的测量、布局、绘制合计要比三层视图快
+        long nestedTotal = nested[0] + nested[1] + nested[2];
+        long flatTotal   = flat[0] + flat[1] + flat[2];
+
+        assertTrue("FlatCards took " + flatTotal / ROUNDS + " ns per card, Cards took " + nestedTotal / ROUNDS,
+                   flatTotal < nestedTotal);
+    }
+
+    private static int countViews(View view) {
+        int count = 1;
+
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup)view;
+
+            for (int i = 0; i < group.getChildCount(); i++) {
+                count += countViews(group.getChildAt(i));
+            }
+        }
+
+        return count;
+    }
+}
@@ -2,11 +2,18 @@ package com.wzhnsc.dealcardsdemo;
 
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.graphics.Rect;
 import android.util.AttributeSet;
 import android.view.LayoutInflater;
+import android.view.View;
 import android.widget.TextView;
 
 public class Cards extends CardsBase {
+    private TextView mNumView;
+
+    // 背景圆角的半径
+    private final int mCornerRadius;
+
     public Cards(Context context) {
         this(context, null);
     }
@@ -20,8 +27,34 @@ public class Cards extends CardsBase {
 
         LayoutInflater.from(context).inflate(R.layout.layout_cards, this);
 
+        mNumView = (TextView)findViewById(R.id.tv_num_in_cards);
+
+        mCornerRadius = getResources().getDimensionPixelSize(R.dimen.cards_corner_radius);
+
         TypedArray ta = context.obtainStyledAttributes(attrs, R.styleable.card);
-        ((TextView)findViewById(R.id.tv_num_in_cards)).setText(String.valueOf(ta.getInt(R.styleable.card_number, 0)));
+        setNumber(ta.getInt(R.styleable.card_number, 0));
         ta.recycle();
     }
+
+    // 设置卡片上显示的数字（复用卡片时重新绑定数据用）
+    public void setNumber(int number) {
+        mNumView.setText(String.valueOf(number));
+    }
+
+    @Override
+    public boolean getOpaqueBounds(Rect outBounds) {
+        View background = getChildAt(0);
+
+        if (null == background) {
+            return false;
+        }
+
+        // 背景视图的内边距就是 9-patch 的阴影部分，再避开圆角
+        outBounds.set(background.getLeft()   + background.getPaddingLeft()   + mCornerRadius,
+                      background.getTop()    + background.getPaddingTop()    + mCornerRadius,
+                      background.getRight()  - background.getPaddingRight()  - mCornerRadius,
+                      background.getBottom() - background.getPaddingBottom() - mCornerRadius);
+
+        return (outBounds.right > outBounds.left) && (outBounds.bottom > outBounds.top);
+    }
 }
@@ -0,0 +1,68 @@
+package com.wzhnsc.dealcardsdemo;
+
+// 卡片数据源
+// 容器只为窗口内的若干层创建子视图，飞出消失的子视图回收后绑定给下一张卡片，
+// 所以整副牌再多，实际存在的子视图数量也只与窗口大小有关。
+public abstract class CardsAdapter {
+    // 观察数据变化的容器
+    private CardsContainer mContainer;
+
+    // 卡片总数
+    public abstract int getCount();
+
+    // 创建一个新的卡片视图（需要自行设置好 LayoutParams ）
+    public abstract CardsBase onCreateCard(CardsContainer parent);
+
+    // 将指定位置的数据绑定到卡片视图上（视图可能是回收复用的）
+    public abstract void onBindCard(CardsBase card, int position);
+
+    // 卡片视图不再显示绑定的数据时调用：被回收、换了数据源、或容器离开窗口(回到窗口时会重新 onBindCard )
+    // 在这里释放图片等占用内存的资源
+    public void onUnbindCard(CardsBase card) {
+    }
+
+    // 窗口外接下来要显示的卡片，positions 的前 count 个按显示顺序排列，可在这里提前加载图片等
+    // 窗口每移动一次调用一次；positions 会被容器复用，不要保存
+    public void onPrefetchCards(int[] positions, int count) {
+    }
+
+    // onInsertItem 等由容器在主线程调用，修改数据本身(其他线程通过 CardsContainer.postInsertCard 等提交)
+    // 需要在其他线程增删、调整卡片时重写，同时重写 isMutable 返回 true ；isMutable 返回 false 时不会调用，默认什么都不做
+
+    // 能否通过 CardsContainer.postInsertCard 等修改数据，设置数据源时读取一次
+    public boolean isMutable() {
+        return false;
+    }
+
+    // 提交的变更在处理时位置超出卡片总数 count ，已被跳过，不影响同一批中的其他变更
+    public void onItemChangeRejected(int position, int count) {
+    }
+
+    // 处理完一批变更后总数应为 expectedCount ，getCount 却返回 actualCount (数据在别处被改了)
+    // 容器已按 actualCount 重新形成牌堆
+    public void onItemCountMismatch(int expectedCount, int actualCount) {
+    }
+
+    // 在 position 处插入 item
+    public void onInsertItem(int position, Object item) {
+    }
+
+    // 删除 position 处的数据
+    public void onRemoveItem(int position) {
+    }
+
+    // 把 fromPosition 处的数据移到 toPosition
+    public void onMoveItem(int fromPosition, int toPosition) {
+    }
+
+    // 数据整体发生变化时调用，容器会重新绑定窗口内的卡片
+    public void notifyDataSetChanged() {
+        if (null != mContainer) {
+            mContainer.onAdapterDataSetChanged();
+        }
+    }
+
+    void setContainer(CardsContainer container) {
+        mContainer = container;
+    }
+}
@@ -1,21 +1,32 @@
 package com.wzhnsc.dealcardsdemo;
 
 import android.content.Context;
+import android.graphics.Rect;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
 import android.widget.FrameLayout;
 
-import com.facebook.rebound.SimpleSpringListener;
-import com.facebook.rebound.Spring;
-import com.facebook.rebound.SpringConfig;
-import com.facebook.rebound.SpringSystem;
-
 public class CardsBase extends FrameLayout {
     public CardsContainer mParentView;
 
-    // Spring 通过可设置的摩擦力(Friction)和张力(tension)实现了胡克定律，通过代码模拟了物理场景。
-    private Spring mSpringX;
-    private Spring mSpringY;
+    // 在容器共用的弹簧物理引擎中占用的槽位
+    // 引擎通过可设置的摩擦力(Friction)和张力(tension)实现了胡克定律，通过代码模拟了物理场景。
+    int mMotionSlot = -1;
+
+    // 正在飞出消失，飞到后由容器移到牌堆底部
+    boolean mFlyingOut = false;
+
+    // 绑定的数据位置，-1 表示没有绑定过(未设置数据源时不使用)
+    int mPosition = -1;
+
+    // 离开过叠层位置，静止后需要放回
+    boolean mPositionDirty = false;
+
+    // 在容器中的子视图下标，也就是它在牌堆中的元素(由容器在增删子视图时更新)，绘制时据此查出所在的层
+    int mChildIndex = -1;
+
+    // 在看不见的层上没有测量过，进入显示范围摆放时再测量
+    boolean mMeasureSkipped = false;
 
     public CardsBase(Context context) {
         this(context, null);
@@ -27,65 +38,97 @@ public class CardsBase extends FrameLayout {
 
     public CardsBase(Context context, AttributeSet attrs, int defStyleAttr) {
         super(context, attrs, defStyleAttr);
-        initSpring();
-    }
-
-    private void initSpring() {
-        SpringConfig springConfig  = SpringConfig.fromBouncinessAndSpeed(15, 20);
-        SpringSystem mSpringSystem = SpringSystem.create();
-
-        mSpringX = mSpringSystem.createSpring().setSpringConfig(springConfig);
-        mSpringY = mSpringSystem.createSpring().setSpringConfig(springConfig);
-
-        // 每个 Spring 内部都维护着一个 SpringListener 数组
-        // onSpringActivate       在首次开始运动时候调用。
-        // onSpringUpdate         在 advance 后调用，表示状态更新。
-        //                        SpringSystem 会遍历由其管理的所有 Spring 实例，对它们进行 advance 。
-        // onSpringAtRest         在进入 rest 状态后调用。
-        // onSpringEndStateChange 则略有不同，
-        //                        仅在 setEndValue 中被调用，且该 Spring 需要在运动中且新的 endValue 不等于原 endValue 。
-        mSpringX.addListener(new SimpleSpringListener() {
-            @Override
-            public void onSpringUpdate(Spring spring) {
-                CardsBase.this.offsetLeftAndRight(((int)spring.getCurrentValue()) - getLeft());
-            }
-
-            @Override
-            public void onSpringAtRest(Spring spring) {
-                mParentView.adjustChildrenPosition();
-            }
-        });
-
-        mSpringY.addListener(new SimpleSpringListener() {
-            @Override
-            public void onSpringUpdate(Spring spring) {
-                CardsBase.this.offsetTopAndBottom(((int)spring.getCurrentValue()) - getTop());
-            }
-
-            @Override
-            public void onSpringAtRest(Spring spring) {
-                mParentView.adjustChildrenPosition();
-            }
-        });
     }
 
     // 移动到指定位置后带有晃动效果
     public void animTo(int xPos, int yPos) {
-        // 设置当前spring位置
-        mSpringX.setCurrentValue(getLeft());
-        mSpringY.setCurrentValue(getTop());
+        // 从当前显示的位置开始运动
+        mParentView.getMotionEngine().animTo(mMotionSlot,
+                                             getLeft() + getTranslationX(),
+                                             getTop()  + getTranslationY(),
+                                             xPos,
+                                             yPos);
+    }
+
+    // 在 durationMillis 毫秒内减速飞到指定位置，到达后即消失
+    void flyOutTo(int xPos, int yPos, int durationMillis) {
+        mFlyingOut = true;
 
-        mSpringX.setEndValue(xPos);
-        mSpringY.setEndValue(yPos);
+        mParentView.getMotionEngine().flyTo(mMotionSlot,
+                                            getLeft() + getTranslationX(),
+                                            getTop()  + getTranslationY(),
+                                            xPos,
+                                            yPos,
+                                            durationMillis);
     }
 
     public void setParentView(CardsContainer parentView) {
         mParentView = parentView;
+
+        // 在容器的物理引擎中登记槽位
+        parentView.registerCard(this);
     }
 
     public void setAtRest() {
-        mSpringX.setAtRest();
-        mSpringY.setAtRest();
+        mFlyingOut = false;
+
+        if ((null != mParentView) && (mMotionSlot >= 0)) {
+            mParentView.getMotionEngine().setAtRest(mMotionSlot);
+        }
+    }
+
+    // 卡片上完全不透明的区域(相对卡片自身的坐标)，被它盖住的下层部分不必绘制
+    // 不能确定时返回 false ，下层卡片照常整张绘制
+    public boolean getOpaqueBounds(Rect outBounds) {
+        return false;
+    }
+
+    // 引擎推进后更新位置
+    void onMotionUpdate(float x, float y) {
+        mPositionDirty = true;
+
+        if (mParentView.isTranslationFollowEnabled()) {
+            // 只改变绘制属性，不触发布局
+            setTranslationX(x - getLeft());
+            setTranslationY(y - getTop());
+        }
+        else {
+            offsetLeftAndRight(((int)x) - getLeft());
+            offsetTopAndBottom(((int)y) - getTop());
+        }
+    }
+
+    // 把平移量并入布局位置，ViewDragHelper 拖动时只认布局位置
+    void mergeTranslationIntoLayout() {
+        // 没有平移量时位置没变，按住后直接松手不用回弹
+        if ((getTranslationX() == 0) && (getTranslationY() == 0)) {
+            return;
+        }
+
+        mPositionDirty = true;
+
+        int tx = (int)getTranslationX();
+        int ty = (int)getTranslationY();
+
+        setTranslationX(0);
+        setTranslationY(0);
+
+        offsetLeftAndRight(tx);
+        offsetTopAndBottom(ty);
+    }
+
+    // 布局位置回到原始位置，偏离的部分改用平移量表示，显示位置不变
+    void moveLayoutOffsetToTranslation(int rawLeft, int rawTop) {
+        mPositionDirty = true;
+
+        int dx = getLeft() - rawLeft;
+        int dy = getTop()  - rawTop;
+
+        offsetLeftAndRight(-dx);
+        offsetTopAndBottom(-dy);
+
+        setTranslationX(getTranslationX() + dx);
+        setTranslationY(getTranslationY() + dy);
     }
 
     @Override
@@ -0,0 +1,238 @@
+package com.wzhnsc.dealcardsdemo;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+import android.support.v4.util.LruCache;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+
+// 按字节数限制大小的图片缓存
+// 解码好的图片按 key 缓存，总字节数不超过 maxBytes ，最久没用的先淘汰。
+// 淘汰下来的图片不直接丢弃，放进复用池，下次解码时作为 inBitmap 复用它的内存；
+// 缓存与复用池合计也不超过 maxBytes 。
+// 卡片正在显示的图片需要 pin 住，淘汰后也不会被复用，直到卡片 unpin 。
+// 可在解码线程和主线程同时使用。
+public class CardsBitmapCache {
+    private final int mMaxBytes;
+
+    private final LruCache<String, Bitmap> mBitmaps;
+
+    // 可复用内存的图片，先进先出
+    private final ArrayDeque<Bitmap> mReusable = new ArrayDeque<>();
+
+    private int mReusableBytes = 0;
+
+    // 卡片正在显示的图片被 pin 住的次数
+    private final HashMap<String, Integer> mPinCounts = new HashMap<>();
+
+    // 已被淘汰但还在显示的图片，unpin 后才进入复用池
+    private final HashMap<String, Bitmap> mPinnedEvicted = new HashMap<>();
+
+    public CardsBitmapCache(int maxBytes) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("maxBytes must be at least 1");
+        }
+
+        mMaxBytes = maxBytes;
+
+        mBitmaps = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return byteCountOf(bitmap);
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, String key, Bitmap oldValue, Bitmap newValue) {
+                if (oldValue != newValue) {
+                    onRemoved(key, oldValue);
+                }
+            }
+        };
+    }
+
+    public Bitmap get(String key) {
+        Bitmap bitmap = mBitmaps.get(key);
+
+        if (null != bitmap) {
+            return bitmap;
+        }
+
+        // 淘汰了但还在显示，重新放回缓存
+        synchronized (this) {
+            bitmap = mPinnedEvicted.remove(key);
+        }
+
+        if (null != bitmap) {
+            mBitmaps.put(key, bitmap);
+        }
+
+        return bitmap;
+    }
+
+    public void put(String key, Bitmap bitmap) {
+        mBitmaps.put(key, bitmap);
+
+        synchronized (this) {
+            trimReusable();
+        }
+    }
+
+    // 卡片开始显示 key 对应的图片
+    public synchronized void pin(String key) {
+        Integer count = mPinCounts.get(key);
+
+        mPinCounts.put(key, (null == count) ? 1 : (count + 1));
+    }
+
+    // 卡片不再显示 key 对应的图片
+    public synchronized void unpin(String key) {
+        Integer count = mPinCounts.get(key);
+
+        if (null == count) {
+            return;
+        }
+
+        if (count > 1) {
+            mPinCounts.put(key, count - 1);
+            return;
+        }
+
+        mPinCounts.remove(key);
+
+        Bitmap evicted = mPinnedEvicted.remove(key);
+
+        if (null != evicted) {
+            addReusable(evicted);
+        }
+    }
+
+    public synchronized boolean isPinned(String key) {
+        return mPinCounts.containsKey(key);
+    }
+
+    // 取出一张能容纳按 options 解码结果的图片用作 inBitmap ，没有时返回 null
+    // 缓存放不下解码结果时先淘汰最久没用的，淘汰下来的正好复用
+    public Bitmap takeReusable(BitmapFactory.Options options) {
+        int needed = decodedByteCount(options);
+
+        if (mBitmaps.size() + needed > mMaxBytes) {
+            mBitmaps.trimToSize(Math.max(0, mMaxBytes - needed));
+        }
+
+        synchronized (this) {
+            return findReusable(options);
+        }
+    }
+
+    private Bitmap findReusable(BitmapFactory.Options options) {
+        Iterator<Bitmap> iterator = mReusable.iterator();
+
+        while (iterator.hasNext()) {
+            Bitmap candidate = iterator.next();
+
+            if (canReuse(candidate, options)) {
+                iterator.remove();
+                mReusableBytes -= byteCountOf(candidate);
+
+                return candidate;
+            }
+        }
+
+        return null;
+    }
+
+    // 解码失败等原因没用上的 inBitmap 还回复用池
+    public synchronized void returnReusable(Bitmap bitmap) {
+        addReusable(bitmap);
+    }
+
+    // 缓存与复用池合计的字节数(不含已淘汰但还在显示的)
+    public synchronized int getByteCount() {
+        return mBitmaps.size() + mReusableBytes;
+    }
+
+    public int getMaxBytes() {
+        return mMaxBytes;
+    }
+
+    public synchronized int getReusableCount() {
+        return mReusable.size();
+    }
+
+    // 清空缓存和复用池（卡片尺寸变化后之前解码的都不再合适）
+    public void clear() {
+        mBitmaps.evictAll();
+
+        synchronized (this) {
+            mReusable.clear();
+            mReusableBytes = 0;
+        }
+    }
+
+    private void onRemoved(String key, Bitmap bitmap) {
+        synchronized (this) {
+            if (mPinCounts.containsKey(key)) {
+                mPinnedEvicted.put(key, bitmap);
+            }
+            else {
+                addReusable(bitmap);
+            }
+        }
+    }
+
+    private void addReusable(Bitmap bitmap) {
+        if (!bitmap.isMutable() || bitmap.isRecycled()) {
+            return;
+        }
+
+        mReusable.addLast(bitmap);
+        mReusableBytes += byteCountOf(bitmap);
+
+        trimReusable();
+    }
+
+    // 缓存与复用池合计超出上限时，丢弃最早进入复用池的
+    private void trimReusable() {
+        while (!mReusable.isEmpty() && (mBitmaps.size() + mReusableBytes > mMaxBytes)) {
+            Bitmap dropped = mReusable.removeFirst();
+            mReusableBytes -= byteCountOf(dropped);
+        }
+    }
+
+    // 4.4 之前 inBitmap 必须与解码结果一样大，且不能缩小采样；之后只要内存够大
+    static boolean canReuse(Bitmap candidate, BitmapFactory.Options options) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            return decodedByteCount(options) <= candidate.getAllocationByteCount();
+        }
+
+        int sampleSize = Math.max(1, options.inSampleSize);
+
+        return (1 == sampleSize)
+            && (candidate.getWidth()  == options.outWidth)
+            && (candidate.getHeight() == options.outHeight);
+    }
+
+    // 按 options 解码的结果占用的字节数
+    static int decodedByteCount(BitmapFactory.Options options) {
+        int sampleSize = Math.max(1, options.inSampleSize);
+
+        return (options.outWidth  / sampleSize)
+             * (options.outHeight / sampleSize)
+             * bytesPerPixel(options.inPreferredConfig);
+    }
+
+    static int bytesPerPixel(Bitmap.Config config) {
+        return (Bitmap.Config.RGB_565 == config) ? 2 : 4;
+    }
+
+    static int byteCountOf(Bitmap bitmap) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            return bitmap.getAllocationByteCount();
+        }
+
+        return bitmap.getByteCount();
+    }
+}
@@ -0,0 +1,61 @@
+package com.wzhnsc.dealcardsdemo;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+// 多个线程放入、一个线程取出的无锁队列
+// 放入只做一次原子交换，从不阻塞也不会因竞争而重试；取出只由一个线程(主线程)进行。
+// 放入者交换了尾部但还没链接上时，取出者会暂时看不到这一项，下次取出时就能取到。
+public class CardsCommandQueue<T> {
+    private static final class Node<T> {
+        T value;
+        volatile Node<T> next;
+
+        Node(T value) {
+            this.value = value;
+        }
+    }
+
+    // 已取出的最后一项(或最初的空节点)，只由取出者访问
+    private Node<T> mHead;
+
+    // 最后放入的一项
+    private final AtomicReference<Node<T>> mTail;
+
+    public CardsCommandQueue() {
+        mHead = new Node<>(null);
+        mTail = new AtomicReference<>(mHead);
+    }
+
+    // 任意线程调用
+    public void offer(T value) {
+        if (null == value) {
+            throw new NullPointerException("value must not be null");
+        }
+
+        Node<T> node = new Node<>(value);
+
+        mTail.getAndSet(node).next = node;
+    }
+
+    // 只能由取出者调用，没有可取的项时返回 null
+    public T poll() {
+        Node<T> next = mHead.next;
+
+        if (null == next) {
+            return null;
+        }
+
+        T value = next.value;
+
+        // 新的空节点不再引用已取出的值
+        next.value = null;
+        mHead = next;
+
+        return value;
+    }
+
+    // 只能由取出者调用
+    public boolean isEmpty() {
+        return null == mHead.next;
+    }
+}
@@ -2,12 +2,22 @@ package com.wzhnsc.dealcardsdemo;
 
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.graphics.Canvas;
 import android.graphics.Point;
+import android.graphics.Rect;
+import android.graphics.Region;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.support.v4.view.GestureDetectorCompat;
+import android.support.v4.util.Pools;
 import android.support.v4.view.ViewCompat;
 import android.support.v4.widget.ViewDragHelper;
 import android.util.AttributeSet;
-import android.util.Log;
+import android.util.SparseArray;
+import android.view.Choreographer;
 import android.view.GestureDetector.SimpleOnGestureListener;
 import android.view.Gravity;
 import android.view.MotionEvent;
@@ -15,8 +25,16 @@ import android.view.View;
 import android.view.ViewConfiguration;
 import android.view.ViewGroup;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.facebook.rebound.SpringConfig;
+import com.wzhnsc.stacklayout.DismissPolicy;
+import com.wzhnsc.stacklayout.StackLayoutEngine;
+import com.wzhnsc.stacklayout.StackOcclusion;
+import com.wzhnsc.stacklayout.StackTransformTable;
+import com.wzhnsc.stacklayout.TouchPredictor;
 
 public class CardsContainer extends ViewGroup {
     // 容器的宽度
@@ -24,6 +42,18 @@ public class CardsContainer extends ViewGroup {
     // 容器的高度
     public int mContainerHeight = 0;
 
+    // 水平甩动速度(dp/秒)达到此值时直接飞出
+    private static final float FLING_DISMISS_VELOCITY_DP = 1000f;
+
+    // 拖动时卡片领先手指的最大距离(dp)
+    private static final float TOUCH_PREDICTION_MAX_OFFSET_DP = 48f;
+
+    // 默认外推的时长(毫秒)，约为事件到达至画面显示的一帧
+    private static final int DEFAULT_TOUCH_PREDICTION_MILLIS = 16;
+
+    // 默认最多能撤销的张数
+    private static final int DEFAULT_REWIND_CAPACITY = 16;
+
     public enum VanishTopChildMode {
         // 子视图向左飞出消失
         VANISHING_TYPE_TO_LEFT,
@@ -31,8 +61,108 @@ public class CardsContainer extends ViewGroup {
         VANISHING_TYPE_TO_RIGHT
     }
 
-    // 从顶至底每一层的子视图
-    private List<CardsBase> mChildrenViewList = new ArrayList<>();
+    // 发牌的回调
+    public interface OnDealListener {
+        // 一张牌飞出到达，position 为它的数据位置(未设置数据源时为子视图下标)
+        void onCardDealt(int position);
+
+        // 这一批全部到达
+        void onDealFinished();
+    }
+
+    // 其他线程提交的牌堆变更
+    private static class DeckCommand {
+        static final int INSERT = 0;
+        static final int REMOVE = 1;
+        static final int MOVE = 2;
+
+        final int type;
+        final int position;
+        final int toPosition;
+        final Object item;
+
+        DeckCommand(int type, int position, int toPosition, Object item) {
+            this.type       = type;
+            this.position   = position;
+            this.toPosition = toPosition;
+            this.item       = item;
+        }
+    }
+
+    // 一批待发的牌
+    private static class PendingDeal {
+        final int count;
+        final VanishTopChildMode mode;
+        final long staggerNanos;
+        final OnDealListener listener;
+
+        // 已飞出和已到达的张数
+        int launched;
+        int landed;
+
+        PendingDeal(int count, VanishTopChildMode mode, long staggerNanos, OnDealListener listener) {
+            this.count        = count;
+            this.mode         = mode;
+            this.staggerNanos = staggerNanos;
+            this.listener     = listener;
+        }
+    }
+
+    // 保存的状态：牌堆顺序、最顶层离原始位置的偏移、还没飞出完的牌
+    // 都是基本类型，一千张的牌堆也只有几 KB
+    static class SavedState extends BaseSavedState {
+        // 自顶至底的卡片顺序(数据位置或子视图下标)
+        int[] deckOrder;
+
+        // 最顶层卡片显示位置离原始位置的偏移
+        int topOffsetX;
+        int topOffsetY;
+
+        // 正在飞出和排队等待飞出的牌的方向，自顶向下，-1 向左，1 向右
+        int[] pendingDismissals;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        private SavedState(Parcel in) {
+            super(in);
+
+            deckOrder         = in.createIntArray();
+            topOffsetX        = in.readInt();
+            topOffsetY        = in.readInt();
+            pendingDismissals = in.createIntArray();
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+
+            out.writeIntArray(deckOrder);
+            out.writeInt(topOffsetX);
+            out.writeInt(topOffsetY);
+            out.writeIntArray(pendingDismissals);
+        }
+
+        public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+    }
+
+    // 自顶至底的卡片顺序(未设置数据源时元素是子视图下标，否则是数据位置)
+    // 飞出一张只需旋转牌堆，子视图本身不再调整顺次，绘制顺序由它决定
+    private CardsDeck mDeck = new CardsDeck();
+
+    // 自顶至底每一层子视图的下标(未设置数据源时与 mDeck 是同一个对象)
+    private CardsDeck mLayers = mDeck;
 
     // 在v4的支持包中提供了此类来帮助我们方便的编写自定义ViewGroup来处理拖动
     private final ViewDragHelper mDragHelper;
@@ -51,6 +181,69 @@ public class CardsContainer extends ViewGroup {
     // 子视图间的叠加偏移量(可通过属性改变)
     private int mOverlapOffsetDist = 100;
 
+    // 每往下一层缩小、变淡、降低多少(可通过属性改变)，0 表示每层都一样
+    private float mDepthScaleStep = 0;
+    private float mDepthAlphaStep = 0;
+    private float mCardElevation = 0;
+    private float mElevationStep = 0;
+
+    // 拖动时下层跟随以及弹簧运动只改变平移量，只有卡片顺序变化时才重新布局
+    private boolean mTranslationFollow = false;
+
+    // 绘制下层卡片时裁剪掉被上一层不透明区域盖住的部分
+    private boolean mOcclusionClip = true;
+
+    // 最多显示到第几层(0 为最顶层)，更下面的卡片不布局、不跟随、不绘制，-1 表示不限制
+    private int mMaxVisibleDepth = -1;
+
+    // 拖动时用全部历史采样推算手指在画面显示时的位置，最顶层卡片画在那里
+    private boolean mTouchPrediction = false;
+
+    // 外推的时长(纳秒)
+    private long mTouchPredictionNanos = DEFAULT_TOUCH_PREDICTION_MILLIS * 1000000L;
+
+    private final TouchPredictor mTouchPredictor = new TouchPredictor();
+
+    // 外推的位置(避免分配对象)
+    private final float[] mPredictedPosition = new float[2];
+
+    // 当前加在被拖动卡片上的外推偏移及那张卡片，处理下一个事件前先去掉
+    private View mPredictedView;
+    private int mPredictedOffsetX = 0;
+    private int mPredictedOffsetY = 0;
+
+    // 最顶层上一次被拖动的位移，外推时下面的各层在此基础上跟随
+    private int mDragDx = 0;
+    private int mDragDy = 0;
+
+    // 恢复的状态在设置数据源后才能应用
+    private SavedState mPendingRestore;
+
+    // 恢复后下次布局时把最顶层放到保存时的偏移处再弹回
+    private boolean mRestoreTopOffset = false;
+    private int mRestoreTopOffsetX = 0;
+    private int mRestoreTopOffsetY = 0;
+
+    // 上一层卡片不透明的区域和本层卡片所占的区域(绘制时使用，避免分配对象)
+    private final Rect mOccluderBounds = new Rect();
+    private final Rect mOccludedBounds = new Rect();
+
+    // 所有卡片一样大：只测量一张，其余按它的结果精确测量
+    private boolean mUniformCards = false;
+
+    // 上次测量卡片时容器收到的 MeasureSpec 及测出的卡片宽高
+    private boolean mUniformMeasureValid = false;
+    private int mUniformWidthSpec;
+    private int mUniformHeightSpec;
+    private int mUniformCardWidth;
+    private int mUniformCardHeight;
+
+    // 叠层位置的计算
+    private final StackLayoutEngine mStackLayout = new StackLayoutEngine();
+
+    // 松手时计算出的目标位置
+    private final int[] mReleaseDest = new int[2];
+
     // 判断是否滑动的阈值(单位是像素)
     private int mTouchSlop = 5;
 
@@ -61,6 +254,99 @@ public class CardsContainer extends ViewGroup {
     // 记录按下时触点的坐标位置
     private Point mPressedPoint = new Point();
 
+    // 诊断记录(默认关闭)
+    private CardsTracer mTracer;
+
+    // 每次手势的帧耗时统计(默认关闭)
+    private CardsGestureMetrics mGestureMetrics;
+
+    // 卡片数据源(未设置时使用布局文件中的子视图)
+    private CardsAdapter mAdapter;
+
+    // 使用数据源时最多同时存在的子视图层数
+    private int mWindowSize = 4;
+
+    // 窗口移动时通知数据源预取窗口外的张数(默认不预取)
+    private int mPrefetchCount = 0;
+
+    // 通知数据源预取的位置，复用
+    private int[] mPrefetchPositions = new int[0];
+
+    // 飞出消失后回收待复用的子视图
+    private Pools.SimplePool<CardsBase> mRecycledCards = new Pools.SimplePool<>(mWindowSize);
+
+    // 所有卡片共用一个弹簧物理引擎，只注册一个帧回调
+    private final CardsMotionEngine mMotionEngine;
+
+    // 引擎槽位对应的卡片
+    private CardsBase[] mSlotCards = new CardsBase[8];
+
+    // 引擎槽位上正在飞出的卡片所属的那一批发牌
+    private PendingDeal[] mSlotDeals = new PendingDeal[8];
+
+    // 还有牌没发出去的各批发牌，按调用顺序
+    private final ArrayDeque<PendingDeal> mPendingDeals = new ArrayDeque<>();
+
+    // 窗口内的子视图已通知数据源解除绑定(离开窗口或即将回收)
+    private boolean mWindowUnbound = false;
+
+    // 最近飞出的卡片，可以按相反的顺序撤销
+    private CardsRewindHistory mRewindHistory = new CardsRewindHistory(DEFAULT_REWIND_CAPACITY);
+
+    // 正从别的牌堆飞过来、还没落到牌堆上的子视图下标，按飞来的顺序
+    // 它们是子视图但不在牌堆中，位置由 CardsDealer 决定，画在牌堆的上面
+    private int[] mIncoming = new int[4];
+    private int mIncomingCount = 0;
+
+    // 下一张牌最早在何时飞出(纳秒，与帧时间同一时钟)
+    private long mNextDealNanos = 0;
+
+    // 已请求下一帧但还没回调
+    private boolean mMotionFrameScheduled = false;
+
+    // 本帧有卡片静止，帧末把离开过叠层位置的卡片放回
+    private boolean mRepositionPending = false;
+
+    // 其他线程提交的牌堆变更，主线程每帧一次性取出处理
+    private final CardsCommandQueue<DeckCommand> mDeckCommands = new CardsCommandQueue<>();
+
+    // 已请求处理牌堆变更但还没处理
+    private final AtomicBoolean mDeckCommandsScheduled = new AtomicBoolean(false);
+
+    // 当前数据源能否修改数据，其他线程提交变更时检查
+    private volatile boolean mAcceptsDeckCommands = false;
+
+    // 其他线程通过它请求处理牌堆变更
+    // 不用 postOnAnimation：视图还没显示在窗口中时，它把回调放在提交线程自己的队列里，工作线程上永远不会执行
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    // 处理牌堆变更的帧回调
+    private final Runnable mDeckCommandsFrame = new Runnable() {
+        @Override
+        public void run() {
+            // 先清除标记再取出，取出过程中提交的变更会再请求一帧
+            mDeckCommandsScheduled.set(false);
+
+            drainDeckCommands();
+        }
+    };
+
+    // 推进引擎和发牌的帧回调(API 16 以下没有 Choreographer 时使用)
+    private final Runnable mMotionFrame = new Runnable() {
+        @Override
+        public void run() {
+            mMotionFrameScheduled = false;
+
+            doMotionFrame(System.nanoTime());
+        }
+    };
+
+    // 有 Choreographer 时按它给出的帧时间推进，第一次请求帧时创建
+    private Choreographer.FrameCallback mMotionFrameCallback;
+
+    // 拖动时处理触摸事件的耗时(纳秒)，一帧里可能有多个事件，累计后在帧回调里按一帧记录
+    private long mDragWorkNanos = 0;
+
     public CardsContainer(Context context) {
         this(context, null);
     }
@@ -74,9 +360,68 @@ public class CardsContainer extends ViewGroup {
 
         TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.container);
         mOverlapOffsetDist = (int)a.getDimension(R.styleable.container_overlapOffsetDist, mOverlapOffsetDist);
+        mMaxVisibleDepth   = a.getInt(R.styleable.container_maxVisibleDepth, mMaxVisibleDepth);
         mGravity           = a.getInt(R.styleable.container_android_gravity, -1);
+        mTranslationFollow = a.getBoolean(R.styleable.container_translationFollow, mTranslationFollow);
+        mOcclusionClip     = a.getBoolean(R.styleable.container_occlusionClip, mOcclusionClip);
+        mUniformCards      = a.getBoolean(R.styleable.container_uniformCards, mUniformCards);
+        mTouchPrediction   = a.getBoolean(R.styleable.container_touchPrediction, mTouchPrediction);
+        mDepthScaleStep    = a.getFloat(R.styleable.container_depthScaleStep, mDepthScaleStep);
+        mDepthAlphaStep    = a.getFloat(R.styleable.container_depthAlphaStep, mDepthAlphaStep);
+        mCardElevation     = a.getDimension(R.styleable.container_cardElevation, mCardElevation);
+        mElevationStep     = a.getDimension(R.styleable.container_depthElevationStep, mElevationStep);
+        int rewindCapacity = a.getInt(R.styleable.container_rewindCapacity, DEFAULT_REWIND_CAPACITY);
         a.recycle();
 
+        if (DEFAULT_REWIND_CAPACITY != rewindCapacity) {
+            setRewindCapacity(rewindCapacity);
+        }
+
+        mStackLayout.setOverlapOffsetDist(mOverlapOffsetDist);
+        mStackLayout.getTransformTable().setScales(1, 1 - mDepthScaleStep);
+        mStackLayout.getTransformTable().setAlphas(1, 1 - mDepthAlphaStep);
+        mStackLayout.getTransformTable().setElevations(mCardElevation, mCardElevation - mElevationStep);
+        mStackLayout.setCenter(Gravity.CENTER == mGravity);
+        mStackLayout.getDismissPolicy().setMinFlingVelocity(FLING_DISMISS_VELOCITY_DP * getResources().getDisplayMetrics().density);
+        mTouchPredictor.setMaxOffset(TOUCH_PREDICTION_MAX_OFFSET_DP * getResources().getDisplayMetrics().density);
+
+        // 按牌堆顺序绘制子视图
+        setChildrenDrawingOrderEnabled(true);
+
+        SpringConfig springConfig = SpringConfig.fromBouncinessAndSpeed(15, 20);
+
+        mMotionEngine = new CardsMotionEngine(springConfig.tension,
+                                              springConfig.friction,
+                                              new CardsMotionEngine.FrameScheduler() {
+            @Override
+            public void scheduleFrame() {
+                scheduleMotionFrame();
+            }
+        });
+
+        mMotionEngine.setListener(new CardsMotionEngine.Listener() {
+            @Override
+            public void onMotionUpdate(int slot, float x, float y) {
+                mSlotCards[slot].onMotionUpdate(x, y);
+            }
+
+            @Override
+            public void onMotionAtRest(int slot) {
+                // 飞出到达，移到牌堆底部
+                if (mSlotCards[slot].mFlyingOut) {
+                    landFlownOutCards();
+                    return;
+                }
+
+                // 同一帧内多张卡片静止也只放回一次
+                mRepositionPending = true;
+
+                if (null != mGestureMetrics) {
+                    mGestureMetrics.settle(slot, System.nanoTime());
+                }
+            }
+        });
+
         ViewConfiguration configuration = ViewConfiguration.get(getContext());
         mTouchSlop = configuration.getScaledTouchSlop();
 
@@ -112,7 +457,12 @@ public class CardsContainer extends ViewGroup {
             @Override
             public boolean tryCaptureView(View child, int pointerId) {
                 // 只捕获拖动最顶部的子视图
-                if (mChildrenViewList.indexOf(child) != 0) {
+                if (mLayers.isEmpty() || (child != getChildAtDepth(0))) {
+                    return false;
+                }
+
+                // 已经在飞出的不能再拖回来
+                if (((CardsBase)child).mFlyingOut) {
                     return false;
                 }
 
@@ -127,93 +477,75 @@ public class CardsContainer extends ViewGroup {
                 // 使子视图保持静止状态
                 ((CardsBase)child).setAtRest();
 
+                // 弹簧运动中被按住时，平移量需要并入布局位置后再拖动
+                if (mTranslationFollow) {
+                    ((CardsBase)child).mergeTranslationIntoLayout();
+                }
+
+                if (null != mGestureMetrics) {
+                    mGestureMetrics.beginGesture(((CardsBase)child).mMotionSlot, System.nanoTime());
+                }
+
                 return true;
             }
 
             @Override
             public void onViewPositionChanged(View changedView, int left, int top, int dx, int dy) {
-                // 能拖动的只可能是最顶层的子视图
-                // 上层子视图位置改变，下层的位置也需要随着改变，
-                // 只是上下左右移动的幅度不得：超过其上一层视图原来的位置，低过它自身原来的位置
-                float rateLeftRight = Math.abs(dx) / (float)mOverlapOffsetDist;
-                float rateTopBottom = Math.abs(dy) / (float)mOverlapOffsetDist;
-
-                rateLeftRight = rateLeftRight > 1 ? 1 : rateLeftRight;
-                rateTopBottom = rateTopBottom > 1 ? 1 : rateTopBottom;
-
-                for (int i = 1; i < mChildrenViewList.size(); i++) {
-                    View childView = mChildrenViewList.get(i);
-
-                    int itsOverlapOffsetDist = mOverlapOffsetDist * i;
-
-                    float newLeft = mTopChildRawLeft + itsOverlapOffsetDist;
-                    float newTop  = mTopChildRawTop  + itsOverlapOffsetDist;
-
-                    newLeft = newLeft - (itsOverlapOffsetDist * rateLeftRight);
-                    newTop  = newTop  - (itsOverlapOffsetDist * rateTopBottom);
-
-                    Log.d("DealCardDemo",
-                          "onViewPositionChanged - " +
-                          "i = " + i +
-                          "\nrateLeftRight = " + rateLeftRight +
-                          "\nrateTopBottom = " + rateTopBottom +
-                          "\nnewLeft = " + newLeft +
-                          "\nnewTop = " + newTop +
-                          "\nitsOverlapOffsetDist = " + itsOverlapOffsetDist);
-
-                    // 每个子视图的宽高都是一样的，所以这里用了最顶层子视图的宽高
-                    childView.layout((int)newLeft,
-                                     (int)newTop,
-                                     (int)newLeft + mTopChildRawWidth,
-                                     (int)newTop  + mTopChildRawHight);
-                }
+                onTopChildDragged((CardsBase)changedView, dx, dy);
             }
 
             @Override
             public void onViewReleased(View releasedChild, float xvel, float yvel) {
-                // 当前松手时的位置点到原始位置点的距离
-                final int distX = releasedChild.getLeft() - mTopChildRawLeft;
-                final int distY = releasedChild.getTop()  - mTopChildRawTop;
-
-                // 最顶层子视图的右边点
-                final int topChildRawRight = mTopChildRawLeft + mTopChildRawWidth;
-
-                int destX = mTopChildRawLeft;
-                int destY = mTopChildRawTop;
-
-                // 垂直上下拖动不消失
-                if (Math.abs(distY) < (Math.abs(distX) * 3)) {
-                    // 向右超出容器一半宽度，则向右滑出消失
-                    if (distX > (mTopChildRawWidth / 2)) {
-                        destX = mContainerWidth;
-                        destY = distY * topChildRawRight / distX + mTopChildRawTop;
-                    }
-                    // 向左超出容器一半宽度，则向左滑出消失
-                    else if (distX < -(mTopChildRawWidth / 2)) {
-                        destX = -mTopChildRawWidth;
-                        destY = distY * topChildRawRight / -distX + mTopChildRawTop;
-                    }
+                // 按松手时的位置和速度决定去向
+                int release = mStackLayout.computeReleaseTarget(mTopChildRawLeft,
+                                                                mTopChildRawTop,
+                                                                releasedChild.getLeft(),
+                                                                releasedChild.getTop(),
+                                                                xvel,
+                                                                yvel,
+                                                                mReleaseDest);
+
+                if (null != mGestureMetrics) {
+                    mGestureMetrics.release(System.nanoTime(), StackLayoutEngine.RELEASE_SNAP_BACK != release);
+                }
 
-                    if (destY > mContainerHeight) {
-                        destY = mContainerHeight;
-                    }
-                    else if (destY < -releasedChild.getHeight()) {
-                        destY = -releasedChild.getHeight();
+                CardsBase card = (CardsBase)releasedChild;
+
+                // 没被拖动过(只是点了一下)时不用回弹，手势直接结束
+                if ((StackLayoutEngine.RELEASE_SNAP_BACK == release)
+                 && !card.mPositionDirty
+                 && mMotionEngine.isAtRest(card.mMotionSlot)) {
+                    if (null != mGestureMetrics) {
+                        mGestureMetrics.settle(card.mMotionSlot, System.nanoTime());
                     }
                 }
-
                 // 回退原始位置后带有晃动效果
-                if (destX == mTopChildRawLeft) {
-                    ((CardsBase)releasedChild).animTo(mTopChildRawLeft, mTopChildRawTop);
+                else if (StackLayoutEngine.RELEASE_SNAP_BACK == release) {
+                    // 布局位置先回到原始位置，回弹只改变平移量，静止后不必重新布局
+                    if (mTranslationFollow) {
+                        card.moveLayoutOffsetToTranslation(mTopChildRawLeft, mTopChildRawTop);
+                    }
+
+                    card.animTo(mTopChildRawLeft, mTopChildRawTop);
                 }
-                // 移出消失
+                // 移出消失，飞出时长由松手速度决定
                 else {
-                    if (mDragHelper.smoothSlideViewTo(releasedChild, destX, destY)) {
-                        ViewCompat.postInvalidateOnAnimation(CardsContainer.this);
-                    }
+                    float distance = (float)Math.hypot(mReleaseDest[0] - releasedChild.getLeft(),
+                                                       mReleaseDest[1] - releasedChild.getTop());
+                    float speed    = (float)Math.hypot(xvel, yvel);
+
+                    card.flyOutTo(mReleaseDest[0],
+                                  mReleaseDest[1],
+                                  mStackLayout.getDismissPolicy().flyOutMillis(distance, speed));
                 }
             }
 
+            @Override
+            public int getOrderedChildIndex(int index) {
+                // 查找触点下的子视图时与绘制顺序一致
+                return getChildDrawingOrder(getChildCount(), index);
+            }
+
             @Override
             public int clampViewPositionHorizontal(View child, int left, int dx) {
                 return left;
@@ -233,23 +565,6 @@ public class CardsContainer extends ViewGroup {
         makeChildrenViewList();
     }
 
-    @Override
-    public void computeScroll() {
-        // ViewDragHelper::smoothSlideViewTo 函数实现动画移动到指定位置
-        // 就需要在 View::computeScroll 方法中加上如下处理代码
-        if (mDragHelper.continueSettling(true)) {
-            ViewCompat.postInvalidateOnAnimation(this);
-        }
-        // 动画结束
-        else {
-            synchronized(this) {
-                if (mDragHelper.getViewDragState() == ViewDragHelper.STATE_IDLE) {
-                    sortChildren();
-                }
-            }
-        }
-    }
-
     @Override
     public boolean dispatchTouchEvent(MotionEvent ev) {
         int action = ev.getActionMasked();
@@ -263,6 +578,94 @@ public class CardsContainer extends ViewGroup {
         return super.dispatchTouchEvent(ev);
     }
 
+    // 最顶层被拖动了 (dx, dy) ，下面的各层跟随
+    // 每帧都会调用，此处不能分配任何对象
+    void onTopChildDragged(CardsBase topChild, int dx, int dy) {
+        final CardsTracer tracer = mTracer;
+        final CardsGestureMetrics metrics = mGestureMetrics;
+        final long frameStart = (null != metrics) ? System.nanoTime() : 0;
+
+        if (null != tracer) {
+            tracer.beginSection(CardsTracer.SECTION_DRAG_FRAME);
+        }
+
+        topChild.mPositionDirty = true;
+
+        mDragDx = dx;
+        mDragDy = dy;
+
+        final int followed = followTopChild(dx, dy);
+
+        if (null != tracer) {
+            tracer.count(CardsTracer.COUNTER_DRAG_FRAMES, 1);
+            tracer.endSection(CardsTracer.SECTION_DRAG_FRAME);
+        }
+
+        if (null != metrics) {
+            if (!mTranslationFollow) {
+                metrics.countLayouts(followed);
+            }
+
+            // 帧时间取帧回调的，不按触摸事件的到达时间计
+            mDragWorkNanos += System.nanoTime() - frameStart;
+
+            scheduleMotionFrame();
+        }
+    }
+
+    // 下面的各层按最顶层移动了 (dx, dy) 跟随，返回跟随的层数
+    private int followTopChild(int dx, int dy) {
+        // 能拖动的只可能是最顶层的子视图
+        // 上层子视图位置改变，下层的位置也需要随着改变，
+        // 只是上下左右移动的幅度不得：超过其上一层视图原来的位置，低过它自身原来的位置
+        float rateLeftRight = mStackLayout.followRate(dx);
+        float rateTopBottom = mStackLayout.followRate(dy);
+
+        // 缩放、透明度、高度在本层和上一层之间插值，只查表
+        final StackTransformTable transforms = mStackLayout.getTransformTable();
+        final boolean transformed = !transforms.isUniform();
+        final float progress = Math.max(rateLeftRight, rateTopBottom);
+
+        // 看不见的层不跟随
+        final int childCount = getVisibleLayerCount();
+
+        for (int i = 1; i < childCount; i++) {
+            CardsBase childView = getChildAtDepth(i);
+            childView.mPositionDirty = true;
+
+            int newLeft = mStackLayout.followPosition(mTopChildRawLeft, i, rateLeftRight);
+            int newTop  = mStackLayout.followPosition(mTopChildRawTop,  i, rateTopBottom);
+
+            if (mTranslationFollow) {
+                // 布局位置保持在原来的叠层位置，只改变平移量
+                childView.setTranslationX(newLeft - childView.getLeft());
+                childView.setTranslationY(newTop  - childView.getTop());
+            }
+            else {
+                // 每个子视图的宽高都是一样的，所以这里用了最顶层子视图的宽高
+                childView.layout(newLeft,
+                                 newTop,
+                                 newLeft + mTopChildRawWidth,
+                                 newTop  + mTopChildRawHight);
+            }
+
+            if (transformed) {
+                applyDepthTransform(childView,
+                                    transforms.scaleToward(i, progress),
+                                    transforms.alphaToward(i, progress),
+                                    transforms.elevationToward(i, progress));
+            }
+        }
+
+        if (null != mTracer) {
+            mTracer.count(mTranslationFollow ? CardsTracer.COUNTER_CHILD_TRANSLATIONS
+                                             : CardsTracer.COUNTER_CHILD_LAYOUTS,
+                          childCount - 1);
+        }
+
+        return childCount - 1;
+    }
+
     // 在 onInterceptTouchEvent 和 onTouchEvent 里接管触摸方法
     @Override
     public boolean onInterceptTouchEvent(MotionEvent ev) {
@@ -271,13 +674,100 @@ public class CardsContainer extends ViewGroup {
 
     @Override
     public boolean onTouchEvent(MotionEvent e) {
+        if (!mTouchPrediction) {
+            mDragHelper.processTouchEvent(e);
+            return true;
+        }
+
+        final boolean predicted = (null != mPredictedView);
+
+        // ViewDragHelper 按手指的实际位移拖动，先去掉上次的外推偏移，松手时也按实际位置判断
+        removeTouchPrediction();
+        trackTouch(e);
+
         mDragHelper.processTouchEvent(e);
+
+        applyTouchPrediction(e);
+
+        // 还在拖动但这次没能外推，下面的各层回到按实际位移跟随的位置
+        if (predicted && (null == mPredictedView) && (null != mDragHelper.getCapturedView())) {
+            followTopChild(mDragDx, mDragDy);
+        }
+
         return true;
     }
 
+    // 记下事件中的全部历史采样和当前采样
+    private void trackTouch(MotionEvent e) {
+        if (MotionEvent.ACTION_DOWN == e.getActionMasked()) {
+            mTouchPredictor.reset();
+
+            mDragDx = 0;
+            mDragDy = 0;
+        }
+
+        final int historySize = e.getHistorySize();
+
+        for (int i = 0; i < historySize; i++) {
+            mTouchPredictor.addSample(e.getHistoricalEventTime(i) * 1000000L,
+                                      e.getHistoricalX(i),
+                                      e.getHistoricalY(i));
+        }
+
+        mTouchPredictor.addSample(e.getEventTime() * 1000000L, e.getX(), e.getY());
+    }
+
+    // 拖动中时把被拖动的卡片移到外推的位置
+    private void applyTouchPrediction(MotionEvent e) {
+        final View capturedView = mDragHelper.getCapturedView();
+
+        if ((ViewDragHelper.STATE_DRAGGING != mDragHelper.getViewDragState())
+         || (null == capturedView)
+         || !mTouchPredictor.predict(mTouchPredictionNanos, mPredictedPosition)) {
+            return;
+        }
+
+        mPredictedOffsetX = Math.round(mPredictedPosition[0] - e.getX());
+        mPredictedOffsetY = Math.round(mPredictedPosition[1] - e.getY());
+        mPredictedView    = capturedView;
+
+        capturedView.offsetLeftAndRight(mPredictedOffsetX);
+        capturedView.offsetTopAndBottom(mPredictedOffsetY);
+
+        // 下面的各层也按外推后的位移跟随，不落在后面
+        followTopChild(mDragDx + mPredictedOffsetX, mDragDy + mPredictedOffsetY);
+    }
+
+    private void removeTouchPrediction() {
+        if (null == mPredictedView) {
+            return;
+        }
+
+        // 拖动被中止时卡片已不归手势控制，不再移动它
+        if (mPredictedView == mDragHelper.getCapturedView()) {
+            mPredictedView.offsetLeftAndRight(-mPredictedOffsetX);
+            mPredictedView.offsetTopAndBottom(-mPredictedOffsetY);
+        }
+
+        mPredictedView    = null;
+        mPredictedOffsetX = 0;
+        mPredictedOffsetY = 0;
+    }
+
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-        measureChildren(widthMeasureSpec, heightMeasureSpec);
+        // 有非卡片的子视图时逐个测量
+        if (mUniformCards && (mLayers.size() == getChildCount())) {
+            measureUniformCards(widthMeasureSpec, heightMeasureSpec);
+        }
+        else if (mLayers.size() + mIncomingCount == getChildCount()) {
+            measureVisibleCards(widthMeasureSpec, heightMeasureSpec);
+        }
+        else {
+            measureChildren(widthMeasureSpec, heightMeasureSpec);
+
+            countMeasures(getChildCount());
+        }
 
         int maxWidth  = MeasureSpec.getSize(widthMeasureSpec);
         int maxHeight = MeasureSpec.getSize(heightMeasureSpec);
@@ -287,103 +777,1596 @@ public class CardsContainer extends ViewGroup {
 
         mContainerWidth  = getMeasuredWidth();
         mContainerHeight = getMeasuredHeight();
+
+        mStackLayout.setContainerSize(mContainerWidth, mContainerHeight);
     }
 
-    @Override
-    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
-        // 获取最顶层子视图原始宽度
-        mTopChildRawWidth = mChildrenViewList.get(0).getMeasuredWidth();
-        mTopChildRawHight = mChildrenViewList.get(0).getMeasuredHeight();
+    // 只在 MeasureSpec 变化(或卡片视图换了)时测量最顶层的一张，
+    // 其余卡片大小不对或内容变化请求了重新布局时才按测出的宽高精确测量
+    private void measureUniformCards(int widthMeasureSpec, int heightMeasureSpec) {
+        final int childCount = getChildCount();
 
-        adjustChildrenPosition();
-    }
+        if (childCount == 0) {
+            return;
+        }
 
-    // 形成子视图索引列表
-    private void makeChildrenViewList() {
-        mChildrenViewList.clear();
+        int measures = 0;
 
-        // 布局文件中后添加的子视图在显示时是在最上面的，
-        // 此处是以 Z 轴序自上而下取得子视图
-        for (int i = getChildCount(); i >= 0; i--) {
-            View childView = getChildAt(i);
+        View prototype = null;
 
-            if (childView instanceof CardsBase) {
-                ((CardsBase)childView).setParentView(this);
+        if (!mUniformMeasureValid
+         || (mUniformWidthSpec  != widthMeasureSpec)
+         || (mUniformHeightSpec != heightMeasureSpec)) {
+            prototype = getChildAtDepth(0);
+
+            measureChild(prototype, widthMeasureSpec, heightMeasureSpec);
+            measures++;
+
+            mUniformWidthSpec    = widthMeasureSpec;
+            mUniformHeightSpec   = heightMeasureSpec;
+            mUniformCardWidth    = prototype.getMeasuredWidth();
+            mUniformCardHeight   = prototype.getMeasuredHeight();
+            mUniformMeasureValid = true;
+        }
+
+        final int cardWidthSpec  = MeasureSpec.makeMeasureSpec(mUniformCardWidth,  MeasureSpec.EXACTLY);
+        final int cardHeightSpec = MeasureSpec.makeMeasureSpec(mUniformCardHeight, MeasureSpec.EXACTLY);
+
+        final int visibleCount = getVisibleLayerCount();
+
+        for (int i = 0; i < childCount; i++) {
+            CardsBase childView = (CardsBase)getChildAt(i);
+
+            if ((childView == prototype) || (childView.getVisibility() == GONE)) {
+                continue;
+            }
+
+            // 看不见的层不测量
+            if (mLayers.depthOf(i) >= visibleCount) {
+                childView.mMeasureSkipped = true;
+                continue;
+            }
 
-                childView.setTag(i + 1);
+            childView.mMeasureSkipped = false;
 
-                mChildrenViewList.add((CardsBase)childView);
+            if (childView.isLayoutRequested()
+             || (childView.getMeasuredWidth()  != mUniformCardWidth)
+             || (childView.getMeasuredHeight() != mUniformCardHeight)) {
+                childView.measure(cardWidthSpec, cardHeightSpec);
+                measures++;
             }
         }
+
+        countMeasures(measures);
     }
 
-    // 对View重新排序
-    private void sortChildren() {
-        synchronized(this) {
-            if (mTopChildRawLeft == mChildrenViewList.get(0).getLeft()) {
-                return;
+    // 全是卡片时只测量看得见的层和飞过来的牌，看不见的层等摆放时再测量
+    private void measureVisibleCards(int widthMeasureSpec, int heightMeasureSpec) {
+        final int childCount   = getChildCount();
+        final int visibleCount = getVisibleLayerCount();
+
+        int measures = 0;
+
+        for (int i = 0; i < childCount; i++) {
+            CardsBase childView = (CardsBase)getChildAt(i);
+
+            if (mLayers.depthOf(i) >= visibleCount) {
+                childView.mMeasureSkipped = true;
+                continue;
             }
 
-            // 调整子视图顺次
-            for (int i = mChildrenViewList.size() - 1; i > 0; i--) {
-                mChildrenViewList.get(i).bringToFront();
+            childView.mMeasureSkipped = false;
+
+            if (childView.getVisibility() != GONE) {
+                measureChild(childView, widthMeasureSpec, heightMeasureSpec);
+                measures++;
             }
+        }
 
-            makeChildrenViewList();
+        countMeasures(measures);
+    }
+
+    private void countMeasures(int measures) {
+        if (null != mTracer) {
+            mTracer.count(CardsTracer.COUNTER_CHILD_MEASURES, measures);
+        }
 
-            adjustChildrenPosition();
+        if (null != mGestureMetrics) {
+            mGestureMetrics.countMeasures(measures);
         }
     }
 
-    // 调整子视图的位置
-    public void adjustChildrenPosition() {
-        int parentLeft = getPaddingLeft();
-        int parentTop  = getPaddingTop();
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        if (mLayers.isEmpty()) {
+            return;
+        }
 
-        if (Gravity.CENTER == mGravity) {
-            // 叠层偏移延伸出的宽度
-            int overlapOffsetWidth = mOverlapOffsetDist * (mChildrenViewList.size() - 1);
+        // 获取最顶层子视图原始宽度
+        mTopChildRawWidth = getChildAtDepth(0).getMeasuredWidth();
+        mTopChildRawHight = getChildAtDepth(0).getMeasuredHeight();
+
+        mStackLayout.setCardSize(mTopChildRawWidth, mTopChildRawHight);
+        mStackLayout.setPadding(getPaddingLeft(), getPaddingTop(), getPaddingRight(), getPaddingBottom());
+
+        adjustChildrenPosition();
 
-            parentLeft += (mContainerWidth  - getPaddingRight()  - mTopChildRawWidth - overlapOffsetWidth) / 2;
-            parentTop  += (mContainerHeight - getPaddingBottom() - mTopChildRawHight - overlapOffsetWidth) / 2;
+        if (mRestoreTopOffset) {
+            mRestoreTopOffset = false;
+
+            springTopChildFrom(mRestoreTopOffsetX, mRestoreTopOffsetY);
         }
+    }
+
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        SavedState state = new SavedState(super.onSaveInstanceState());
 
-        for (int i = 0; i < mChildrenViewList.size(); i++) {
-            View childView   = mChildrenViewList.get(i);
+        state.deckOrder         = mDeck.toArray();
+        state.pendingDismissals = collectPendingDismissals();
 
-            Log.d("DealCardDemo",
-                  "adjustChildrenPosition - " +
-                  "\ni = " + i +
-                  "\nparentLeft = " + parentLeft +
-                  "\nparentTop = " + parentTop);
+        if (!mLayers.isEmpty() && !getChildAtDepth(0).mFlyingOut) {
+            CardsBase topChild = getChildAtDepth(0);
 
-            // 每个子视图的宽高都是一样的，所以这里用了最顶层子视图的宽高
-            childView.layout(parentLeft, parentTop, parentLeft + mTopChildRawWidth, parentTop + mTopChildRawHight);
+            state.topOffsetX = topChild.getLeft() + (int)topChild.getTranslationX() - mTopChildRawLeft;
+            state.topOffsetY = topChild.getTop()  + (int)topChild.getTranslationY() - mTopChildRawTop;
+        }
 
-            childView.offsetLeftAndRight(mOverlapOffsetDist * i);
-            childView.offsetTopAndBottom(mOverlapOffsetDist * i);
+        return state;
+    }
 
-            // 按比例缩小
-//            final float scale = 1 - 0.06f * i;
-//            childView.setScaleX(scale);
-//            childView.setScaleY(scale);
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
         }
 
-        // 获取最顶层子视图原始位置坐标
-        mTopChildRawLeft = mChildrenViewList.get(0).getLeft();
-        mTopChildRawTop  = mChildrenViewList.get(0).getTop();
+        SavedState savedState = (SavedState)state;
+
+        super.onRestoreInstanceState(savedState.getSuperState());
+
+        mPendingRestore = savedState;
+
+        // 布局文件中的子视图已经加载，或已设置数据源时直接恢复，否则等设置数据源
+        if ((null != mAdapter) || !mLayers.isEmpty()) {
+            applyPendingRestore();
+        }
     }
 
-    // 外部控制最顶层子视图消失
-    public void vanishTopChild(VanishTopChildMode vtcMode) {
-        synchronized(this) {
-            View topChild = mChildrenViewList.get(0);
+    @Override
+    protected void dispatchSaveInstanceState(SparseArray<Parcelable> container) {
+        // 数据源模式下子视图是复用的，内容由绑定的数据决定，只保存容器自身
+        if (null != mAdapter) {
+            dispatchFreezeSelfOnly(container);
+        }
+        else {
+            super.dispatchSaveInstanceState(container);
+        }
+    }
 
-            if (mDragHelper.smoothSlideViewTo(topChild,
-                                              (VanishTopChildMode.VANISHING_TYPE_TO_LEFT == vtcMode) ? -mContainerWidth : mContainerWidth,
-                                              mContainerHeight)) {
-                ViewCompat.postInvalidateOnAnimation(this);
-            }
+    @Override
+    protected void dispatchRestoreInstanceState(SparseArray<Parcelable> container) {
+        if (null != mAdapter) {
+            dispatchThawSelfOnly(container);
         }
+        else {
+            super.dispatchRestoreInstanceState(container);
+        }
+    }
+
+    // 正在飞出的牌(都在顶部)和还没发出的牌的方向
+    private int[] collectPendingDismissals() {
+        int flying = 0;
+
+        while ((flying < mLayers.size()) && getChildAtDepth(flying).mFlyingOut) {
+            flying++;
+        }
+
+        int queued = 0;
+
+        for (PendingDeal deal : mPendingDeals) {
+            queued += deal.count - deal.launched;
+        }
+
+        int[] directions = new int[flying + queued];
+
+        for (int i = 0; i < flying; i++) {
+            CardsBase card = getChildAtDepth(i);
+
+            directions[i] = (card.getLeft() + card.getTranslationX() < mTopChildRawLeft) ? -1 : 1;
+        }
+
+        int index = flying;
+
+        for (PendingDeal deal : mPendingDeals) {
+            int direction = (VanishTopChildMode.VANISHING_TYPE_TO_LEFT == deal.mode) ? -1 : 1;
+
+            for (int i = deal.launched; i < deal.count; i++) {
+                directions[index++] = direction;
+            }
+        }
+
+        return directions;
+    }
+
+    private void applyPendingRestore() {
+        SavedState state = mPendingRestore;
+        mPendingRestore = null;
+
+        if (!restoreDeckOrder(state.deckOrder)) {
+            return;
+        }
+
+        // 飞出中的牌重新飞出，方向相同的连续几张合成一次发牌
+        int[] pending = state.pendingDismissals;
+        int start = 0;
+
+        while ((null != pending) && (start < pending.length)) {
+            int end = start + 1;
+
+            while ((end < pending.length) && (pending[end] == pending[start])) {
+                end++;
+            }
+
+            deal(end - start,
+                 (pending[start] < 0) ? VanishTopChildMode.VANISHING_TYPE_TO_LEFT
+                                      : VanishTopChildMode.VANISHING_TYPE_TO_RIGHT,
+                 0,
+                 null);
+
+            start = end;
+        }
+
+        if ((null == pending) || (0 == pending.length)) {
+            mRestoreTopOffset  = (0 != state.topOffsetX) || (0 != state.topOffsetY);
+            mRestoreTopOffsetX = state.topOffsetX;
+            mRestoreTopOffsetY = state.topOffsetY;
+        }
+
+        requestLayout();
+        invalidate();
+    }
+
+    // 按保存的顺序重排牌堆，数据源模式下窗口内的子视图回收后重新绑定
+    // 保存的顺序与当前的卡片对不上时(例如数据变了)不恢复，返回 false
+    private boolean restoreDeckOrder(int[] order) {
+        int count = (null != mAdapter) ? mAdapter.getCount() : mDeck.size();
+
+        if ((null == order) || (order.length != count) || (0 == count)) {
+            return false;
+        }
+
+        // 数据源模式下元素是数据位置，否则是子视图下标且必须是同样的子视图
+        boolean[] seen = new boolean[(null != mAdapter) ? count : getChildCount()];
+
+        for (int item : order) {
+            if ((item < 0) || (item >= seen.length) || seen[item]) {
+                return false;
+            }
+
+            if ((null == mAdapter) && !mDeck.contains(item)) {
+                return false;
+            }
+
+            seen[item] = true;
+        }
+
+        if (null == mAdapter) {
+            mDeck.clear();
+
+            for (int item : order) {
+                mDeck.add(item);
+            }
+
+            return true;
+        }
+
+        recycleWindow();
+
+        mDeck.clear();
+
+        for (int item : order) {
+            mDeck.add(item);
+        }
+
+        bindWindow();
+
+        return true;
+    }
+
+    // 最顶层从离原始位置 (dx, dy) 处像松手一样弹回
+    private void springTopChildFrom(int dx, int dy) {
+        if (mLayers.isEmpty()) {
+            return;
+        }
+
+        CardsBase topChild = getChildAtDepth(0);
+
+        topChild.offsetLeftAndRight(dx);
+        topChild.offsetTopAndBottom(dy);
+        topChild.mPositionDirty = true;
+
+        if (mTranslationFollow) {
+            topChild.moveLayoutOffsetToTranslation(mTopChildRawLeft, mTopChildRawTop);
+        }
+
+        topChild.animTo(mTopChildRawLeft, mTopChildRawTop);
+    }
+
+    @Override
+    protected int getChildDrawingOrder(int childCount, int i) {
+        // 有非卡片的子视图时按添加顺序绘制
+        if (mLayers.size() + mIncomingCount != childCount) {
+            return i;
+        }
+
+        final int layerCount = mLayers.size();
+
+        // 飞过来的牌画在最上面
+        if (i >= layerCount) {
+            return mIncoming[i - layerCount];
+        }
+
+        // 由底至顶绘制
+        return mLayers.get(layerCount - 1 - i);
+    }
+
+    @Override
+    protected boolean drawChild(Canvas canvas, View child, long drawingTime) {
+        // 有非卡片的子视图时不知道层次，照常绘制
+        if ((mLayers.size() + mIncomingCount != getChildCount()) || !(child instanceof CardsBase)) {
+            return super.drawChild(canvas, child, drawingTime);
+        }
+
+        final CardsTracer tracer = mTracer;
+        final int depth = mLayers.depthOf(((CardsBase)child).mChildIndex);
+
+        // 飞过来的牌还不在牌堆中，照常绘制
+        if (depth < 0) {
+            if (null != tracer) {
+                tracer.count(CardsTracer.COUNTER_CARDS_DRAWN, 1);
+            }
+
+            return super.drawChild(canvas, child, drawingTime);
+        }
+
+        // 超出显示层数的卡片不绘制
+        if ((mMaxVisibleDepth >= 0) && (depth > mMaxVisibleDepth)) {
+            if (null != tracer) {
+                tracer.count(CardsTracer.COUNTER_CARDS_SKIPPED, 1);
+            }
+
+            return false;
+        }
+
+        if (!mOcclusionClip
+         || (depth == 0)
+         || (getChildAtDepth(depth - 1).getAlpha() < 1f)
+         || !getChildAtDepth(depth - 1).getOpaqueBounds(mOccluderBounds)) {
+            if (null != tracer) {
+                tracer.count(CardsTracer.COUNTER_CARDS_DRAWN, 1);
+            }
+
+            return super.drawChild(canvas, child, drawingTime);
+        }
+
+        // 上一层的不透明区域转为容器坐标(包括拖动和弹簧运动中的平移量，以及按层缩放)
+        // 盖住的区域向内取整，被盖住的卡片向外取整，宁可多画也不能漏画
+        mapRectToParent(getChildAtDepth(depth - 1), mOccluderBounds, true);
+
+        mOccludedBounds.set(0, 0, child.getWidth(), child.getHeight());
+        mapRectToParent(child, mOccludedBounds, false);
+
+        int left   = mOccludedBounds.left;
+        int top    = mOccludedBounds.top;
+        int right  = mOccludedBounds.right;
+        int bottom = mOccludedBounds.bottom;
+
+        // 整张被盖住的不绘制
+        if (StackOcclusion.contains(mOccluderBounds.left, mOccluderBounds.top,
+                                    mOccluderBounds.right, mOccluderBounds.bottom,
+                                    left, top, right, bottom)) {
+            if (null != tracer) {
+                tracer.count(CardsTracer.COUNTER_CARDS_SKIPPED, 1);
+            }
+
+            return false;
+        }
+
+        // 硬件加速时 API 18 以前不支持非 INTERSECT 的裁剪
+        if ((Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR2) && canvas.isHardwareAccelerated()) {
+            if (null != tracer) {
+                tracer.count(CardsTracer.COUNTER_CARDS_DRAWN, 1);
+            }
+
+            return super.drawChild(canvas, child, drawingTime);
+        }
+
+        int saveCount = canvas.save();
+        canvas.clipRect(mOccluderBounds, Region.Op.DIFFERENCE);
+        boolean more = super.drawChild(canvas, child, drawingTime);
+        canvas.restoreToCount(saveCount);
+
+        if (null != tracer) {
+            tracer.count(CardsTracer.COUNTER_CARDS_DRAWN, 1);
+            tracer.count(CardsTracer.COUNTER_OCCLUDED_PIXELS,
+                         (int)StackOcclusion.intersectionArea(mOccluderBounds.left, mOccluderBounds.top,
+                                                              mOccluderBounds.right, mOccluderBounds.bottom,
+                                                              left, top, right, bottom));
+        }
+
+        return more;
+    }
+
+    // 子视图上的矩形转为容器坐标，inner 为 true 时向内取整，否则向外取整
+    private static void mapRectToParent(View child, Rect rect, boolean inner) {
+        float originX = child.getLeft() + child.getTranslationX();
+        float originY = child.getTop()  + child.getTranslationY();
+
+        float left   = StackOcclusion.scaleAboutPivot(originX, child.getPivotX(), child.getScaleX(), rect.left);
+        float top    = StackOcclusion.scaleAboutPivot(originY, child.getPivotY(), child.getScaleY(), rect.top);
+        float right  = StackOcclusion.scaleAboutPivot(originX, child.getPivotX(), child.getScaleX(), rect.right);
+        float bottom = StackOcclusion.scaleAboutPivot(originY, child.getPivotY(), child.getScaleY(), rect.bottom);
+
+        if (inner) {
+            rect.set((int)Math.ceil(left), (int)Math.ceil(top), (int)Math.floor(right), (int)Math.floor(bottom));
+        }
+        else {
+            rect.set((int)Math.floor(left), (int)Math.floor(top), (int)Math.ceil(right), (int)Math.ceil(bottom));
+        }
+    }
+
+    // 第 depth 层的子视图，0 为最顶层
+    CardsBase getChildAtDepth(int depth) {
+        return (CardsBase)getChildAt(mLayers.get(depth));
+    }
+
+    // 形成牌堆
+    private void makeChildrenViewList() {
+        mDeck.clear();
+        mRewindHistory.clear();
+        mLayers = mDeck;
+
+        // 布局文件中后添加的子视图在显示时是在最上面的，
+        // 此处是以 Z 轴序自上而下取得子视图
+        for (int i = getChildCount() - 1; i >= 0; i--) {
+            View childView = getChildAt(i);
+
+            if (childView instanceof CardsBase) {
+                ((CardsBase)childView).setParentView(this);
+                ((CardsBase)childView).mChildIndex = i;
+
+                mDeck.add(i);
+            }
+        }
+    }
+
+    // 最顶层移到最底层(包内可见，供测试模拟飞出结束)
+    void dismissTopChild() {
+        CardsBase topChild = getChildAtDepth(0);
+
+        // 记下飞出的方向，撤销时从这里飞回来
+        mRewindHistory.push(mDeck.peek(),
+                            topChild.getLeft() + (int)topChild.getTranslationX() - mTopChildRawLeft,
+                            topChild.getTop()  + (int)topChild.getTranslationY() - mTopChildRawTop);
+
+        mDeck.rotate();
+
+        if (mLayers != mDeck) {
+            mLayers.rotate();
+
+            // 数据比窗口多时，飞出的子视图绑定窗口外的下一张卡片
+            if (mAdapter.getCount() > mLayers.size()) {
+                rebindBottomChild(topChild);
+                prefetchCards();
+            }
+        }
+
+        adjustChildrenPosition();
+
+        // 绘制顺序变了
+        invalidate();
+    }
+
+    // 调整子视图的位置
+    public void adjustChildrenPosition() {
+        if (mLayers.isEmpty()) {
+            return;
+        }
+
+        final CardsTracer tracer = mTracer;
+
+        if (null != tracer) {
+            tracer.beginSection(CardsTracer.SECTION_ADJUST_CHILDREN);
+        }
+
+        // 只布局看得见的层，居中时也只按看得见的层计算
+        final int childCount = getVisibleLayerCount();
+
+        // 层数或属性变了才重新计算各层的值
+        mStackLayout.getTransformTable().prepare(childCount);
+
+        int parentLeft = mStackLayout.computeBaseLeft(childCount);
+        int parentTop  = mStackLayout.computeBaseTop(childCount);
+
+        for (int i = 0; i < childCount; i++) {
+            CardsBase childView = getChildAtDepth(i);
+
+            // 飞出中的位置由物理引擎决定
+            if (childView.mFlyingOut) {
+                continue;
+            }
+
+            placeChild(childView, i, parentLeft, parentTop);
+        }
+
+        // 最顶层子视图原始位置坐标
+        mTopChildRawLeft = parentLeft;
+        mTopChildRawTop  = parentTop;
+
+        if (null != mGestureMetrics) {
+            mGestureMetrics.countAdjustPass();
+            mGestureMetrics.countLayouts(childCount);
+        }
+
+        if (null != tracer) {
+            tracer.count(CardsTracer.COUNTER_ADJUST_PASSES, 1);
+            tracer.count(CardsTracer.COUNTER_CHILD_LAYOUTS, childCount);
+            tracer.endSection(CardsTracer.SECTION_ADJUST_CHILDREN);
+        }
+    }
+
+    // 把第 depth 层放到叠层位置上
+    private void placeChild(CardsBase childView, int depth, int parentLeft, int parentTop) {
+        // 之前在看不见的层上没有测量
+        if (childView.mMeasureSkipped) {
+            remeasureCard(childView);
+        }
+
+        // 每个子视图的宽高都是一样的，所以这里用了最顶层子视图的宽高
+        childView.layout(parentLeft, parentTop, parentLeft + mTopChildRawWidth, parentTop + mTopChildRawHight);
+
+        childView.offsetLeftAndRight(mStackLayout.layerOffset(depth));
+        childView.offsetTopAndBottom(mStackLayout.layerOffset(depth));
+
+        if (mTranslationFollow) {
+            childView.setTranslationX(0);
+            childView.setTranslationY(0);
+        }
+
+        final StackTransformTable transforms = mStackLayout.getTransformTable();
+
+        applyDepthTransform(childView, transforms.scale(depth), transforms.alpha(depth), transforms.elevation(depth));
+
+        childView.mPositionDirty = false;
+    }
+
+    private static void applyDepthTransform(CardsBase childView, float scale, float alpha, float elevation) {
+        childView.setScaleX(scale);
+        childView.setScaleY(scale);
+        childView.setAlpha(alpha);
+        ViewCompat.setElevation(childView, elevation);
+    }
+
+    // 只把离开过叠层位置、且已经停下的卡片放回去，没动过的卡片不碰
+    private void repositionDirtyChildren() {
+        mRepositionPending = false;
+
+        if (mLayers.isEmpty()) {
+            return;
+        }
+
+        final int childCount = getVisibleLayerCount();
+        final View capturedView = mDragHelper.getCapturedView();
+
+        int parentLeft = mStackLayout.computeBaseLeft(childCount);
+        int parentTop  = mStackLayout.computeBaseTop(childCount);
+
+        int repositioned = 0;
+
+        for (int i = 0; i < childCount; i++) {
+            CardsBase childView = getChildAtDepth(i);
+
+            // 还在运动或正被拖动的等它停下
+            if (!childView.mPositionDirty
+             || childView.mFlyingOut
+             || (childView == capturedView)
+             || !mMotionEngine.isAtRest(childView.mMotionSlot)) {
+                continue;
+            }
+
+            placeChild(childView, i, parentLeft, parentTop);
+            repositioned++;
+        }
+
+        if (null != mGestureMetrics) {
+            mGestureMetrics.countLayouts(repositioned);
+        }
+
+        if (null != mTracer) {
+            mTracer.count(CardsTracer.COUNTER_REPOSITION_PASSES, 1);
+            mTracer.count(CardsTracer.COUNTER_CHILD_REPOSITIONS, repositioned);
+        }
+    }
+
+    // 外部控制最顶层子视图消失
+    // 上一张还没飞完时再调用会排队，不会丢失
+    public void vanishTopChild(VanishTopChildMode vtcMode) {
+        deal(1, vtcMode, 0, null);
+    }
+
+    // 撤销最近一次飞出：那张牌移回最顶层，从飞出的方向弹回原位，下面的牌各下移一层
+    // 数据比窗口多时由窗口最底层的子视图改绑这张牌，不创建视图，开销与飞出一张相同
+    // 正在拖动、有牌在飞、没有记录或记录已失效时返回 false
+    public boolean rewind() {
+        if (mRewindHistory.isEmpty()
+         || mLayers.isEmpty()
+         || !mPendingDeals.isEmpty()
+         || (null != mDragHelper.getCapturedView())
+         || getChildAtDepth(0).mFlyingOut) {
+            return false;
+        }
+
+        // 飞出的牌都移到了最底层，不在那里说明牌堆变过
+        if (mDeck.get(mDeck.size() - 1) != mRewindHistory.peekItem()) {
+            mRewindHistory.clear();
+            return false;
+        }
+
+        int exitX = mRewindHistory.peekExitX();
+        int exitY = mRewindHistory.peekExitY();
+
+        mRewindHistory.pop();
+
+        mDeck.rotateBack();
+
+        if (mLayers != mDeck) {
+            mLayers.rotateBack();
+
+            // 窗口最底层的子视图移到最顶层，绑定撤销回来的卡片
+            if (mAdapter.getCount() > mLayers.size()) {
+                CardsBase card = getChildAtDepth(0);
+
+                card.setAtRest();
+                bindCard(card, mDeck.peek());
+                remeasureCard(card);
+
+                prefetchCards();
+            }
+        }
+
+        adjustChildrenPosition();
+        springTopChildFrom(exitX, exitY);
+
+        // 绘制顺序变了
+        invalidate();
+
+        return true;
+    }
+
+    // 还能撤销的张数
+    public int getRewindCount() {
+        return mRewindHistory.size();
+    }
+
+    // 最多能撤销的张数，0 表示不记录，修改后之前的记录清空
+    public void setRewindCapacity(int capacity) {
+        mRewindHistory = new CardsRewindHistory(capacity);
+    }
+
+    public int getRewindCapacity() {
+        return mRewindHistory.getCapacity();
+    }
+
+    // 连续发出 count 张牌，每张比上一张晚 staggerMillis 毫秒飞出
+    // 多张牌可以同时在飞，由同一个帧回调推进；窗口内的子视图都在飞时等最早的一张到达后再发下一张。
+    // 多次调用按调用顺序排队。数据源变化时还没完成的发牌被取消。
+    public void deal(int count, VanishTopChildMode mode, int staggerMillis, OnDealListener listener) {
+        if ((count < 0) || (staggerMillis < 0)) {
+            throw new IllegalArgumentException("count and staggerMillis must not be negative");
+        }
+
+        if ((count == 0) || mLayers.isEmpty()) {
+            if (null != listener) {
+                listener.onDealFinished();
+            }
+
+            return;
+        }
+
+        mPendingDeals.add(new PendingDeal(count, mode, staggerMillis * 1000000L, listener));
+
+        scheduleMotionFrame();
+    }
+
+    // 在帧回调中推进物理引擎，并发出到时间的牌
+    void doMotionFrame(long frameTimeNanos) {
+        final CardsGestureMetrics metrics = mGestureMetrics;
+        final boolean timed = (null != metrics) && metrics.isGestureActive();
+        final long frameStart = timed ? System.nanoTime() : 0;
+
+        mMotionEngine.doFrame(frameTimeNanos);
+
+        if (mRepositionPending) {
+            repositionDirtyChildren();
+        }
+
+        launchPendingDeals(frameTimeNanos);
+
+        if (timed) {
+            metrics.frame(frameTimeNanos, System.nanoTime() - frameStart + mDragWorkNanos);
+        }
+
+        mDragWorkNanos = 0;
+    }
+
+    private void scheduleMotionFrame() {
+        if (mMotionFrameScheduled) {
+            return;
+        }
+
+        mMotionFrameScheduled = true;
+
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+            ViewCompat.postOnAnimation(this, mMotionFrame);
+            return;
+        }
+
+        if (null == mMotionFrameCallback) {
+            mMotionFrameCallback = new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    mMotionFrameScheduled = false;
+
+                    doMotionFrame(frameTimeNanos);
+                }
+            };
+        }
+
+        Choreographer.getInstance().postFrameCallback(mMotionFrameCallback);
+    }
+
+    private void launchPendingDeals(long frameTimeNanos) {
+        while (!mPendingDeals.isEmpty() && (frameTimeNanos >= mNextDealNanos)) {
+            CardsBase card = nextCardToDeal();
+
+            // 窗口内都在飞，等到达后再发
+            if (null == card) {
+                break;
+            }
+
+            PendingDeal deal = mPendingDeals.peek();
+
+            mSlotDeals[card.mMotionSlot] = deal;
+
+            card.flyOutTo((VanishTopChildMode.VANISHING_TYPE_TO_LEFT == deal.mode) ? -mContainerWidth : mContainerWidth,
+                          mContainerHeight,
+                          mStackLayout.getDismissPolicy().getMaxFlyOutMillis());
+
+            if (++deal.launched == deal.count) {
+                mPendingDeals.poll();
+            }
+
+            mNextDealNanos = frameTimeNanos + deal.staggerNanos;
+        }
+
+        if (!mPendingDeals.isEmpty()) {
+            scheduleMotionFrame();
+        }
+    }
+
+    // 自顶向下第一张没在飞的牌，正被拖动或窗口内都在飞时返回 null
+    private CardsBase nextCardToDeal() {
+        final int childCount = mLayers.size();
+
+        for (int i = 0; i < childCount; i++) {
+            CardsBase card = getChildAtDepth(i);
+
+            if (!card.mFlyingOut) {
+                return (card == mDragHelper.getCapturedView()) ? null : card;
+            }
+        }
+
+        return null;
+    }
+
+    // 已飞到的牌依次移到牌堆底部
+    // 只有最顶层能移到底部，下层先到达时要等上层也到达
+    private void landFlownOutCards() {
+        while (!mLayers.isEmpty()) {
+            CardsBase topChild = getChildAtDepth(0);
+
+            if (!topChild.mFlyingOut || !mMotionEngine.isAtRest(topChild.mMotionSlot)) {
+                return;
+            }
+
+            topChild.mFlyingOut = false;
+
+            PendingDeal deal = mSlotDeals[topChild.mMotionSlot];
+            mSlotDeals[topChild.mMotionSlot] = null;
+
+            int position = mDeck.peek();
+
+            dismissTopChild();
+
+            if (null != mGestureMetrics) {
+                mGestureMetrics.settle(topChild.mMotionSlot, System.nanoTime());
+            }
+
+            if ((null != deal) && (null != deal.listener)) {
+                deal.listener.onCardDealt(position);
+
+                if (++deal.landed == deal.count) {
+                    deal.listener.onDealFinished();
+                }
+            }
+        }
+    }
+
+    // 在 position 处插入一张卡片，可以在任意线程调用，不会阻塞
+    // item 在主线程通过 CardsAdapter.onInsertItem 交给数据源
+    // 数据源不能修改数据时抛出 IllegalStateException ，位置为负时抛出 IndexOutOfBoundsException
+    // 位置超出处理时的卡片总数的变更被跳过，并通过 CardsAdapter.onItemChangeRejected 通知
+    public void postInsertCard(int position, Object item) {
+        checkPosition(position);
+
+        postDeckCommand(new DeckCommand(DeckCommand.INSERT, position, -1, item));
+    }
+
+    // 删除 position 处的卡片，可以在任意线程调用，不会阻塞
+    public void postRemoveCard(int position) {
+        checkPosition(position);
+
+        postDeckCommand(new DeckCommand(DeckCommand.REMOVE, position, -1, null));
+    }
+
+    // 把 fromPosition 处的卡片移到 toPosition ，可以在任意线程调用，不会阻塞
+    public void postMoveCard(int fromPosition, int toPosition) {
+        checkPosition(fromPosition);
+        checkPosition(toPosition);
+
+        postDeckCommand(new DeckCommand(DeckCommand.MOVE, fromPosition, toPosition, null));
+    }
+
+    // 总数在主线程才确定，这里只能拒绝负的位置
+    private static void checkPosition(int position) {
+        if (position < 0) {
+            throw new IndexOutOfBoundsException("position " + position + " is negative");
+        }
+    }
+
+    private void postDeckCommand(DeckCommand command) {
+        if (!mAcceptsDeckCommands) {
+            throw new IllegalStateException("adapter does not accept item changes, see CardsAdapter.isMutable");
+        }
+
+        mDeckCommands.offer(command);
+
+        // 放入后再请求，保证取出者一定能看到这次放入的变更
+        if (mDeckCommandsScheduled.compareAndSet(false, true)) {
+            mMainHandler.post(mDeckCommandsFrame);
+        }
+    }
+
+    // 在主线程取出所有已提交的变更，依次交给数据源修改数据，最后只重新绑定一次窗口
+    void drainDeckCommands() {
+        if (mDeckCommands.isEmpty()) {
+            return;
+        }
+
+        // 没有数据源或提交后换成了不能修改的数据源时，变更无处可去
+        if ((null == mAdapter) || !mAdapter.isMutable()) {
+            while (null != mDeckCommands.poll()) {
+                // 丢弃
+            }
+
+            return;
+        }
+
+        // 跟踪原来最顶层的卡片变更后所在的位置
+        int topPosition = mDeck.isEmpty() ? -1 : mDeck.peek();
+        int count       = mAdapter.getCount();
+
+        DeckCommand command;
+
+        while (null != (command = mDeckCommands.poll())) {
+            switch (command.type) {
+                case DeckCommand.INSERT:
+                    if (command.position > count) {
+                        mAdapter.onItemChangeRejected(command.position, count);
+                        break;
+                    }
+
+                    mAdapter.onInsertItem(command.position, command.item);
+
+                    if ((topPosition < 0) || (command.position <= topPosition)) {
+                        topPosition++;
+                    }
+
+                    count++;
+                    break;
+
+                case DeckCommand.REMOVE:
+                    if (command.position >= count) {
+                        mAdapter.onItemChangeRejected(command.position, count);
+                        break;
+                    }
+
+                    mAdapter.onRemoveItem(command.position);
+
+                    count--;
+
+                    if (count == 0) {
+                        topPosition = -1;
+                    }
+                    else if (command.position < topPosition) {
+                        topPosition--;
+                    }
+                    // 删除的是最顶层时下一张成为最顶层
+                    else if (command.position == topPosition) {
+                        topPosition %= count;
+                    }
+                    break;
+
+                case DeckCommand.MOVE:
+                    if ((command.position >= count) || (command.toPosition >= count)) {
+                        mAdapter.onItemChangeRejected(Math.max(command.position, command.toPosition), count);
+                        break;
+                    }
+
+                    mAdapter.onMoveItem(command.position, command.toPosition);
+
+                    if (command.position == topPosition) {
+                        topPosition = command.toPosition;
+                    }
+                    else if ((command.position < topPosition) && (command.toPosition >= topPosition)) {
+                        topPosition--;
+                    }
+                    else if ((command.position > topPosition) && (command.toPosition <= topPosition)) {
+                        topPosition++;
+                    }
+                    break;
+            }
+        }
+
+        // 数据源的总数不对时按它的总数形成牌堆，再通知数据源(在帧回调中抛出异常找不到提交变更的调用者)
+        int actualCount = mAdapter.getCount();
+
+        if (count == actualCount) {
+            refreshWindow(Math.max(0, topPosition));
+            return;
+        }
+
+        refreshWindow((actualCount > 0) ? (Math.max(0, topPosition) % actualCount) : 0);
+
+        mAdapter.onItemCountMismatch(count, actualCount);
+    }
+
+    // 数据变更后从 topPosition 开始重新形成牌堆
+    // 层数不变时沿用现有的子视图，只重新绑定数据位置变了的；层数变了才全部回收重建
+    private void refreshWindow(int topPosition) {
+        int count  = mAdapter.getCount();
+        int layers = Math.min(count, mWindowSize);
+
+        if ((layers != mLayers.size()) || (mLayers == mDeck)) {
+            recycleWindow();
+            fillWindow(topPosition);
+
+            requestLayout();
+            invalidate();
+            return;
+        }
+
+        stopWindowMotion();
+
+        mDeck.clear();
+        mRewindHistory.clear();
+
+        for (int i = 0; i < count; i++) {
+            mDeck.add((topPosition + i) % count);
+        }
+
+        for (int i = 0; i < layers; i++) {
+            CardsBase card = getChildAtDepth(i);
+
+            if (card.mPosition != mDeck.get(i)) {
+                bindCard(card, mDeck.get(i));
+                remeasureCard(card);
+            }
+        }
+
+        prefetchCards();
+
+        adjustChildrenPosition();
+        invalidate();
+    }
+
+    // 取消还没完成的发牌
+    private void cancelDeals() {
+        mPendingDeals.clear();
+        Arrays.fill(mSlotDeals, null);
+    }
+
+    // 数据变了，在飞的牌到达后报告的会是变更前的位置：取消发牌，窗口内的卡片全部停下
+    private void stopWindowMotion() {
+        cancelDeals();
+
+        for (int i = 0; i < getChildCount(); i++) {
+            ((CardsBase)getChildAt(i)).setAtRest();
+        }
+    }
+
+    // 还原所有子视图的平移量
+    private void resetChildrenTranslation() {
+        final int childCount = getVisibleLayerCount();
+
+        for (int i = 0; i < childCount; i++) {
+            View childView = getChildAtDepth(i);
+
+            childView.setTranslationX(0);
+            childView.setTranslationY(0);
+        }
+
+        if (null != mTracer) {
+            mTracer.count(CardsTracer.COUNTER_CHILD_TRANSLATIONS, childCount);
+        }
+    }
+
+    // 开启后拖动跟随和回弹只改变子视图的平移量，只在卡片顺序变化时才重新布局
+    public void setTranslationFollowEnabled(boolean enabled) {
+        if (mTranslationFollow == enabled) {
+            return;
+        }
+
+        mTranslationFollow = enabled;
+
+        // 切换模式时清掉残留的平移量，由布局决定位置
+        resetChildrenTranslation();
+        requestLayout();
+    }
+
+    public boolean isTranslationFollowEnabled() {
+        return mTranslationFollow;
+    }
+
+    // 开启后认为所有卡片一样大，只测量最顶层的一张，测量耗时与卡片张数无关
+    public void setUniformCardsEnabled(boolean enabled) {
+        if (mUniformCards != enabled) {
+            mUniformCards        = enabled;
+            mUniformMeasureValid = false;
+
+            requestLayout();
+        }
+    }
+
+    public boolean isUniformCardsEnabled() {
+        return mUniformCards;
+    }
+
+    // 卡片大小可能变了(例如更换了卡片的 LayoutParams )时调用，下次测量时重新测量最顶层的一张
+    public void invalidateCardsMeasure() {
+        mUniformMeasureValid = false;
+
+        requestLayout();
+    }
+
+    // 开启后绘制下层卡片时不画被上一层不透明区域盖住的部分
+    public void setOcclusionClipEnabled(boolean enabled) {
+        if (mOcclusionClip != enabled) {
+            mOcclusionClip = enabled;
+            invalidate();
+        }
+    }
+
+    public boolean isOcclusionClipEnabled() {
+        return mOcclusionClip;
+    }
+
+    // 设置最多显示到第几层(0 为最顶层)，-1 表示不限制
+    // 更下面的卡片不布局、拖动时不跟随、不绘制，直到飞出消失使它们进入显示范围
+    public void setMaxVisibleDepth(int maxVisibleDepth) {
+        if (mMaxVisibleDepth != maxVisibleDepth) {
+            mMaxVisibleDepth = maxVisibleDepth;
+
+            requestLayout();
+            invalidate();
+        }
+    }
+
+    public int getMaxVisibleDepth() {
+        return mMaxVisibleDepth;
+    }
+
+    // 看得见的层数
+    private int getVisibleLayerCount() {
+        final int layerCount = mLayers.size();
+
+        return (mMaxVisibleDepth >= 0) ? Math.min(layerCount, mMaxVisibleDepth + 1) : layerCount;
+    }
+
+    // 松手时是否飞出的判断，可调整距离、速度阈值和飞出时长
+    public DismissPolicy getDismissPolicy() {
+        return mStackLayout.getDismissPolicy();
+    }
+
+    // 每一层的偏移、缩放、透明度、高度，修改后调用 adjustChildrenPosition 生效
+    public StackTransformTable getTransformTable() {
+        return mStackLayout.getTransformTable();
+    }
+
+    // 设置诊断记录，传 null 关闭
+    public void setTracer(CardsTracer tracer) {
+        mTracer = tracer;
+    }
+
+    public CardsTracer getTracer() {
+        return mTracer;
+    }
+
+    // 设置每次手势的帧耗时统计，传 null 关闭
+    public void setGestureMetrics(CardsGestureMetrics gestureMetrics) {
+        mGestureMetrics = gestureMetrics;
+    }
+
+    public CardsGestureMetrics getGestureMetrics() {
+        return mGestureMetrics;
+    }
+
+    public CardsMotionEngine getMotionEngine() {
+        return mMotionEngine;
+    }
+
+    // 为卡片分配物理引擎槽位，复用的卡片沿用原来的槽位
+    void registerCard(CardsBase card) {
+        if (card.mMotionSlot >= 0) {
+            return;
+        }
+
+        card.mMotionSlot = mMotionEngine.obtainSlot();
+
+        if (card.mMotionSlot >= mSlotCards.length) {
+            CardsBase[] slotCards = new CardsBase[mSlotCards.length * 2];
+            System.arraycopy(mSlotCards, 0, slotCards, 0, mSlotCards.length);
+            mSlotCards = slotCards;
+
+            PendingDeal[] slotDeals = new PendingDeal[mSlotCards.length];
+            System.arraycopy(mSlotDeals, 0, slotDeals, 0, mSlotDeals.length);
+            mSlotDeals = slotDeals;
+        }
+
+        mSlotCards[card.mMotionSlot] = card;
+    }
+
+    // 卡片移到别的容器，释放它在本容器物理引擎中的槽位
+    private void unregisterCard(CardsBase card) {
+        card.setAtRest();
+
+        mMotionEngine.releaseSlot(card.mMotionSlot);
+
+        mSlotCards[card.mMotionSlot] = null;
+        mSlotDeals[card.mMotionSlot] = null;
+
+        card.mMotionSlot = -1;
+    }
+
+    // 取下最顶层的卡片交给 CardsDealer 移到别的容器，视图保留在原来的显示位置上
+    // 最顶层正被拖动、还在运动或牌堆为空时返回 null
+    // 数据源模式下子视图属于窗口，不能移走
+    CardsBase takeTopCard() {
+        if (null != mAdapter) {
+            throw new IllegalStateException("cards bound by an adapter can't be moved to another container");
+        }
+
+        if (mLayers.isEmpty()) {
+            return null;
+        }
+
+        CardsBase card = getChildAtDepth(0);
+
+        if (card.mFlyingOut
+         || (card == mDragHelper.getCapturedView())
+         || !mMotionEngine.isAtRest(card.mMotionSlot)) {
+            return null;
+        }
+
+        int index = mDeck.peek();
+        int[] order = mDeck.toArray();
+
+        unregisterCard(card);
+        removeViewInLayout(card);
+
+        // 后面的子视图下标都减一
+        mDeck.clear();
+        mRewindHistory.clear();
+
+        for (int i = 1; i < order.length; i++) {
+            mDeck.add((order[i] > index) ? (order[i] - 1) : order[i]);
+        }
+
+        for (int i = 0; i < mIncomingCount; i++) {
+            if (mIncoming[i] > index) {
+                mIncoming[i]--;
+            }
+        }
+
+        for (int i = index; i < getChildCount(); i++) {
+            if (getChildAt(i) instanceof CardsBase) {
+                ((CardsBase)getChildAt(i)).mChildIndex = i;
+            }
+        }
+
+        requestLayout();
+        invalidate();
+
+        return card;
+    }
+
+    // 从别的容器飞过来的卡片先加为子视图，放在落到牌堆顶部时的位置上，
+    // 该位置写入 outRestPosition[0], outRestPosition[1] ，飞行中由 CardsDealer 设置平移量
+    void addIncomingCard(CardsBase card, int[] outRestPosition) {
+        if (null != mAdapter) {
+            throw new IllegalStateException("cards can't be dealt into a container with an adapter");
+        }
+
+        card.setParentView(this);
+
+        // 在它前面飞来的牌先落下，它落下时是第 layerCount 层中的最顶层
+        int layerCount = mLayers.size() + mIncomingCount + 1;
+        int visibleCount = (mMaxVisibleDepth >= 0) ? Math.min(layerCount, mMaxVisibleDepth + 1) : layerCount;
+
+        measureChild(card,
+                     MeasureSpec.makeMeasureSpec(mContainerWidth,  MeasureSpec.EXACTLY),
+                     MeasureSpec.makeMeasureSpec(mContainerHeight, MeasureSpec.EXACTLY));
+
+        // 空的牌堆还不知道卡片的大小
+        if (mLayers.isEmpty()) {
+            mTopChildRawWidth = card.getMeasuredWidth();
+            mTopChildRawHight = card.getMeasuredHeight();
+
+            mStackLayout.setCardSize(mTopChildRawWidth, mTopChildRawHight);
+            mStackLayout.setPadding(getPaddingLeft(), getPaddingTop(), getPaddingRight(), getPaddingBottom());
+        }
+
+        int left = mStackLayout.computeBaseLeft(visibleCount);
+        int top  = mStackLayout.computeBaseTop(visibleCount);
+
+        addCardInLayout(card, getChildCount());
+        card.layout(left, top, left + card.getMeasuredWidth(), top + card.getMeasuredHeight());
+
+        if (mIncomingCount == mIncoming.length) {
+            mIncoming = Arrays.copyOf(mIncoming, mIncomingCount * 2);
+        }
+
+        mIncoming[mIncomingCount++] = getChildCount() - 1;
+
+        outRestPosition[0] = left;
+        outRestPosition[1] = top;
+
+        invalidate();
+    }
+
+    // 飞过来的卡片到达，放到牌堆顶部
+    void landIncomingCard(CardsBase card) {
+        int index = indexOfChild(card);
+
+        for (int i = 0; i < mIncomingCount; i++) {
+            if (mIncoming[i] == index) {
+                System.arraycopy(mIncoming, i + 1, mIncoming, i, mIncomingCount - i - 1);
+                mIncomingCount--;
+                break;
+            }
+        }
+
+        card.setTranslationX(0);
+        card.setTranslationY(0);
+
+        mDeck.push(index);
+
+        // 牌堆顺序变了，撤销会把之前飞出的牌放到新发来的牌上面
+        mRewindHistory.clear();
+
+        // 下面的牌都往下移一层
+        requestLayout();
+        invalidate();
+    }
+
+    // 设置卡片数据源，布局文件中的子视图会被替换掉
+    public void setAdapter(CardsAdapter adapter) {
+        if (null != mAdapter) {
+            // 旧数据源的子视图不再使用，先让它释放图片等
+            unbindWindow();
+
+            mAdapter.setContainer(null);
+        }
+
+        mAdapter = adapter;
+        mAcceptsDeckCommands = (null != adapter) && adapter.isMutable();
+
+        // 不同数据源创建的视图不能混用
+        mRecycledCards = new Pools.SimplePool<>(mWindowSize);
+
+        // 旧的子视图停止运动
+        for (int i = 0; i < getChildCount(); i++) {
+            View childView = getChildAt(i);
+
+            if (childView instanceof CardsBase) {
+                ((CardsBase)childView).setAtRest();
+            }
+        }
+
+        cancelDeals();
+        removeAllViewsInLayout();
+        mDeck.clear();
+        mLayers = mDeck;
+
+        // 换了数据源，卡片视图可能不一样大
+        mUniformMeasureValid = false;
+
+        if (null != mAdapter) {
+            mAdapter.setContainer(this);
+            fillWindow(0);
+
+            if (null != mPendingRestore) {
+                applyPendingRestore();
+            }
+        }
+
+        requestLayout();
+        invalidate();
+    }
+
+    public CardsAdapter getAdapter() {
+        return mAdapter;
+    }
+
+    // 设置使用数据源时最多同时存在的子视图层数
+    public void setWindowSize(int windowSize) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("windowSize must be at least 1");
+        }
+
+        mWindowSize = windowSize;
+
+        if (null != mAdapter) {
+            setAdapter(mAdapter);
+        }
+    }
+
+    public int getWindowSize() {
+        return mWindowSize;
+    }
+
+    // 拖动时按全部历史采样外推手指位置，减少卡片落后手指的距离
+    public void setTouchPredictionEnabled(boolean enabled) {
+        if (!enabled) {
+            removeTouchPrediction();
+        }
+
+        mTouchPrediction = enabled;
+    }
+
+    public boolean isTouchPredictionEnabled() {
+        return mTouchPrediction;
+    }
+
+    // 设置外推的时长，即触摸事件到达后多久画面才显示出来
+    public void setTouchPredictionMillis(int millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("millis must not be negative");
+        }
+
+        mTouchPredictionNanos = millis * 1000000L;
+    }
+
+    public int getTouchPredictionMillis() {
+        return (int)(mTouchPredictionNanos / 1000000L);
+    }
+
+    public TouchPredictor getTouchPredictor() {
+        return mTouchPredictor;
+    }
+
+    // 设置窗口移动时预取窗口外的张数，0 为不预取
+    public void setPrefetchCount(int prefetchCount) {
+        if (prefetchCount < 0) {
+            throw new IllegalArgumentException("prefetchCount must not be negative");
+        }
+
+        mPrefetchCount = prefetchCount;
+
+        if ((null != mAdapter) && (mLayers != mDeck)) {
+            prefetchCards();
+        }
+    }
+
+    public int getPrefetchCount() {
+        return mPrefetchCount;
+    }
+
+    // 最顶层卡片对应的数据位置(未设置数据源时为子视图下标)，没有卡片时返回 -1
+    public int getTopPosition() {
+        return mDeck.isEmpty() ? -1 : mDeck.peek();
+    }
+
+    // 获取最顶层的子视图
+    CardsBase getTopChild() {
+        return mLayers.isEmpty() ? null : getChildAtDepth(0);
+    }
+
+    // 数据源整体变化，窗口内的子视图全部回收后重新绑定
+    void onAdapterDataSetChanged() {
+        int topPosition = mDeck.isEmpty() ? 0 : mDeck.peek();
+
+        recycleWindow();
+
+        int count = mAdapter.getCount();
+
+        fillWindow((count > 0) ? (topPosition % count) : 0);
+
+        requestLayout();
+        invalidate();
+    }
+
+    // 窗口内的子视图全部回收，还没完成的发牌取消
+    private void recycleWindow() {
+        stopWindowMotion();
+        unbindWindow();
+
+        for (int i = 0; i < getChildCount(); i++) {
+            mRecycledCards.release((CardsBase)getChildAt(i));
+        }
+
+        removeAllViewsInLayout();
+    }
+
+    // 窗口内的子视图不再显示各自的数据，通知数据源释放
+    private void unbindWindow() {
+        if (mWindowUnbound || (mLayers == mDeck)) {
+            return;
+        }
+
+        for (int i = 0; i < getChildCount(); i++) {
+            mAdapter.onUnbindCard((CardsBase)getChildAt(i));
+        }
+
+        mWindowUnbound = true;
+    }
+
+    // 离开窗口时释放的数据，回到窗口时按原来的位置重新绑定
+    private void rebindWindow() {
+        if (!mWindowUnbound || (null == mAdapter)) {
+            return;
+        }
+
+        mWindowUnbound = false;
+
+        for (int i = 0; i < getChildCount(); i++) {
+            CardsBase card = (CardsBase)getChildAt(i);
+
+            bindCard(card, card.mPosition);
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+
+        rebindWindow();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        // 不再显示，不必占着图片内存
+        if (null != mAdapter) {
+            unbindWindow();
+        }
+
+        super.onDetachedFromWindow();
+    }
+
+    // 从 topPosition 开始形成牌堆，按窗口大小创建或复用子视图并绑定数据
+    private void fillWindow(int topPosition) {
+        int count = mAdapter.getCount();
+
+        mDeck.clear();
+
+        for (int i = 0; i < count; i++) {
+            mDeck.add((topPosition + i) % count);
+        }
+
+        bindWindow();
+    }
+
+    // 按牌堆顶部的若干张创建或复用子视图并绑定数据
+    private void bindWindow() {
+        // 牌堆重新形成，之前的记录对不上了
+        mRewindHistory.clear();
+        mWindowUnbound = false;
+
+        int layers = Math.min(mDeck.size(), mWindowSize);
+
+        mLayers = new CardsDeck(layers);
+
+        // 先添加的子视图在最底层，所以由底至顶添加
+        for (int i = layers - 1; i >= 0; i--) {
+            CardsBase card = obtainCard();
+            bindCard(card, mDeck.get(i));
+            addCardInLayout(card, getChildCount());
+        }
+
+        for (int i = 0; i < layers; i++) {
+            mLayers.add(layers - 1 - i);
+        }
+
+        prefetchCards();
+    }
+
+    // 通知数据源窗口外接下来的 mPrefetchCount 张
+    private void prefetchCards() {
+        int count = Math.min(mPrefetchCount, mDeck.size() - mLayers.size());
+
+        if (count <= 0) {
+            return;
+        }
+
+        if (mPrefetchPositions.length < count) {
+            mPrefetchPositions = new int[count];
+        }
+
+        for (int i = 0; i < count; i++) {
+            mPrefetchPositions[i] = mDeck.get(mLayers.size() + i);
+        }
+
+        mAdapter.onPrefetchCards(mPrefetchPositions, count);
+    }
+
+    // 飞出的子视图直接复用，绑定窗口外的下一张卡片后成为最底层
+    private void rebindBottomChild(CardsBase card) {
+        card.setAtRest();
+
+        bindCard(card, mDeck.get(mLayers.size() - 1));
+
+        // 绑定了新数据，需按原始宽高重新测量
+        remeasureCard(card);
+    }
+
+    private void bindCard(CardsBase card, int position) {
+        mAdapter.onBindCard(card, position);
+        card.mPosition = position;
+    }
+
+    private void remeasureCard(CardsBase card) {
+        countMeasures(1);
+
+        card.mMeasureSkipped = false;
+
+        card.measure(MeasureSpec.makeMeasureSpec(mTopChildRawWidth, MeasureSpec.EXACTLY),
+                     MeasureSpec.makeMeasureSpec(mTopChildRawHight, MeasureSpec.EXACTLY));
+    }
+
+    // 优先复用回收的子视图，没有时才让数据源创建
+    private CardsBase obtainCard() {
+        CardsBase card = mRecycledCards.acquire();
+
+        if (null == card) {
+            card = mAdapter.onCreateCard(this);
+        }
+
+        card.setParentView(this);
+
+        return card;
+    }
+
+    private void addCardInLayout(CardsBase card, int index) {
+        LayoutParams lp = card.getLayoutParams();
+
+        if (null == lp) {
+            lp = generateDefaultLayoutParams();
+        }
+
+        addViewInLayout(card, index, lp, true);
+
+        card.mChildIndex = index;
     }
-}
\ No newline at end of file
+}
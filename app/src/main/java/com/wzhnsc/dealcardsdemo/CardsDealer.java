@@ -0,0 +1,356 @@
+package com.wzhnsc.dealcardsdemo;
+
+import android.os.Build;
+import android.support.v4.view.ViewCompat;
+import android.view.Choreographer;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+
+import java.util.ArrayDeque;
+
+import com.facebook.rebound.SpringConfig;
+
+// 从一个牌堆向几个牌堆轮流发牌
+// 卡片视图直接从源容器移到目标容器，不重新创建；飞行中的牌不论去哪个牌堆，
+// 都由同一个物理引擎在同一个帧回调中一次推进。
+// 牌从源牌堆的位置飞到目标牌堆的顶部，飞行中要画到目标容器之外，
+// 所以目标容器及其父视图都不裁剪子视图。源容器和目标容器都不能设置数据源。
+public class CardsDealer {
+    // 发牌的回调
+    public interface OnDealListener {
+        // 一张牌落到第 pile 个牌堆上
+        void onCardDealt(CardsBase card, int pile);
+
+        // 这一批全部落下
+        void onDealFinished();
+    }
+
+    // 默认每张牌的飞行时长(毫秒)
+    private static final int DEFAULT_FLIGHT_MILLIS = 300;
+
+    // 一批待发的牌
+    private static class PendingDeal {
+        // 源牌堆的牌不够时会减少
+        int count;
+        final long staggerNanos;
+        final OnDealListener listener;
+
+        // 已飞出和已落下的张数
+        int launched;
+        int landed;
+
+        PendingDeal(int count, long staggerNanos, OnDealListener listener) {
+            this.count        = count;
+            this.staggerNanos = staggerNanos;
+            this.listener     = listener;
+        }
+    }
+
+    private final CardsContainer mSource;
+    private final CardsContainer[] mPiles;
+
+    // 所有飞行中的牌共用一个引擎
+    private final CardsMotionEngine mMotionEngine;
+
+    // 引擎槽位上飞行中的牌、它去的牌堆、它所属的那一批
+    private CardsBase[] mSlotCards = new CardsBase[8];
+    private int[] mSlotPiles = new int[8];
+    private PendingDeal[] mSlotDeals = new PendingDeal[8];
+
+    private int mInFlightCount = 0;
+
+    // 还有牌没发出去的各批发牌，按调用顺序
+    private final ArrayDeque<PendingDeal> mPendingDeals = new ArrayDeque<>();
+
+    // 下一张发到哪个牌堆
+    private int mNextPile = 0;
+
+    // 下一张牌最早在何时飞出(纳秒，与帧时间同一时钟)
+    private long mNextDealNanos = 0;
+
+    private int mFlightMillis = DEFAULT_FLIGHT_MILLIS;
+
+    // 已请求下一帧但还没回调
+    private boolean mFrameScheduled = false;
+
+    // 计算飞行起点时使用，避免分配对象
+    private final float[] mSourceLocation = new float[2];
+    private final float[] mPileLocation = new float[2];
+    private final int[] mRestPosition = new int[2];
+
+    // 推进飞行和发牌的帧回调(API 16 以下没有 Choreographer 时使用)
+    private final Runnable mFrame = new Runnable() {
+        @Override
+        public void run() {
+            mFrameScheduled = false;
+
+            doFrame(System.nanoTime());
+        }
+    };
+
+    // 有 Choreographer 时按它给出的帧时间推进，与容器的回弹同一时钟，第一次请求帧时创建
+    private Choreographer.FrameCallback mFrameCallback;
+
+    public CardsDealer(CardsContainer source, CardsContainer... piles) {
+        if (piles.length == 0) {
+            throw new IllegalArgumentException("at least one pile is needed");
+        }
+
+        for (CardsContainer pile : piles) {
+            if (pile == source) {
+                throw new IllegalArgumentException("source can't be one of the piles");
+            }
+
+            // 牌从容器外飞进来
+            pile.setClipChildren(false);
+
+            ViewParent parent = pile.getParent();
+
+            if (parent instanceof ViewGroup) {
+                ((ViewGroup)parent).setClipChildren(false);
+            }
+        }
+
+        mSource = source;
+        mPiles  = piles.clone();
+
+        SpringConfig springConfig = SpringConfig.fromBouncinessAndSpeed(15, 20);
+
+        mMotionEngine = new CardsMotionEngine(springConfig.tension,
+                                              springConfig.friction,
+                                              new CardsMotionEngine.FrameScheduler() {
+            @Override
+            public void scheduleFrame() {
+                scheduleDealFrame();
+            }
+        });
+
+        mMotionEngine.setListener(new CardsMotionEngine.Listener() {
+            @Override
+            public void onMotionUpdate(int slot, float x, float y) {
+                // 位置是目标容器中的坐标，只改变平移量
+                CardsBase card = mSlotCards[slot];
+
+                card.setTranslationX(x - card.getLeft());
+                card.setTranslationY(y - card.getTop());
+            }
+
+            @Override
+            public void onMotionAtRest(int slot) {
+                landCard(slot);
+            }
+        });
+    }
+
+    public void setFlightMillis(int flightMillis) {
+        if (flightMillis <= 0) {
+            throw new IllegalArgumentException("flightMillis must be positive");
+        }
+
+        mFlightMillis = flightMillis;
+    }
+
+    public int getFlightMillis() {
+        return mFlightMillis;
+    }
+
+    public int getPileCount() {
+        return mPiles.length;
+    }
+
+    public CardsContainer getPile(int pile) {
+        return mPiles[pile];
+    }
+
+    // 正在飞行的张数
+    public int getInFlightCount() {
+        return mInFlightCount;
+    }
+
+    public CardsMotionEngine getMotionEngine() {
+        return mMotionEngine;
+    }
+
+    // 从源牌堆顶部轮流向各牌堆发 count 张，每张比上一张晚 staggerMillis 毫秒飞出
+    // 多次调用按调用顺序排队，源牌堆发完时这一批提前结束
+    public void deal(int count, int staggerMillis, OnDealListener listener) {
+        if ((count < 0) || (staggerMillis < 0)) {
+            throw new IllegalArgumentException("count and staggerMillis must not be negative");
+        }
+
+        if (count == 0) {
+            if (null != listener) {
+                listener.onDealFinished();
+            }
+
+            return;
+        }
+
+        mPendingDeals.add(new PendingDeal(count, staggerMillis * 1000000L, listener));
+
+        scheduleDealFrame();
+    }
+
+    // 在帧回调中一次推进所有飞行中的牌，再发出到时间的牌(新发出的这一帧画在起点)
+    void doFrame(long frameTimeNanos) {
+        mMotionEngine.doFrame(frameTimeNanos);
+
+        launchPendingDeals(frameTimeNanos);
+
+        if (!mPendingDeals.isEmpty()) {
+            scheduleDealFrame();
+        }
+    }
+
+    private void scheduleDealFrame() {
+        if (mFrameScheduled) {
+            return;
+        }
+
+        mFrameScheduled = true;
+
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+            ViewCompat.postOnAnimation(mSource, mFrame);
+            return;
+        }
+
+        if (null == mFrameCallback) {
+            mFrameCallback = new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    mFrameScheduled = false;
+
+                    CardsDealer.this.doFrame(frameTimeNanos);
+                }
+            };
+        }
+
+        Choreographer.getInstance().postFrameCallback(mFrameCallback);
+    }
+
+    private void launchPendingDeals(long frameTimeNanos) {
+        while (!mPendingDeals.isEmpty() && (frameTimeNanos >= mNextDealNanos)) {
+            PendingDeal deal = mPendingDeals.peek();
+
+            // 源牌堆发完了，这一批到此为止
+            if (null == mSource.getTopChild()) {
+                mPendingDeals.poll();
+                deal.count = deal.launched;
+
+                finishIfLanded(deal);
+                continue;
+            }
+
+            // 源牌堆顶部被按住或还在动，下一帧再发
+            if (!launchCard(deal)) {
+                break;
+            }
+
+            if (++deal.launched == deal.count) {
+                mPendingDeals.poll();
+            }
+
+            mNextDealNanos = frameTimeNanos + deal.staggerNanos;
+        }
+    }
+
+    private boolean launchCard(PendingDeal deal) {
+        CardsBase card = mSource.takeTopCard();
+
+        if (null == card) {
+            return false;
+        }
+
+        int pileIndex = mNextPile;
+        mNextPile = (mNextPile + 1) % mPiles.length;
+
+        CardsContainer pile = mPiles[pileIndex];
+
+        // 起点是牌在源容器中显示的位置，转为目标容器中的坐标
+        locateInRoot(mSource, mSourceLocation);
+        locateInRoot(pile, mPileLocation);
+
+        float fromX = mSourceLocation[0] - mPileLocation[0] + card.getLeft() + card.getTranslationX();
+        float fromY = mSourceLocation[1] - mPileLocation[1] + card.getTop()  + card.getTranslationY();
+
+        pile.addIncomingCard(card, mRestPosition);
+
+        // 在第一次推进之前也要画在起点
+        card.setTranslationX(fromX - card.getLeft());
+        card.setTranslationY(fromY - card.getTop());
+
+        int slot = mMotionEngine.obtainSlot();
+
+        if (slot >= mSlotCards.length) {
+            int capacity = mSlotCards.length * 2;
+
+            CardsBase[] slotCards = new CardsBase[capacity];
+            System.arraycopy(mSlotCards, 0, slotCards, 0, mSlotCards.length);
+            mSlotCards = slotCards;
+
+            int[] slotPiles = new int[capacity];
+            System.arraycopy(mSlotPiles, 0, slotPiles, 0, mSlotPiles.length);
+            mSlotPiles = slotPiles;
+
+            PendingDeal[] slotDeals = new PendingDeal[capacity];
+            System.arraycopy(mSlotDeals, 0, slotDeals, 0, mSlotDeals.length);
+            mSlotDeals = slotDeals;
+        }
+
+        mSlotCards[slot] = card;
+        mSlotPiles[slot] = pileIndex;
+        mSlotDeals[slot] = deal;
+
+        mInFlightCount++;
+
+        mMotionEngine.flyTo(slot, fromX, fromY, mRestPosition[0], mRestPosition[1], mFlightMillis);
+
+        return true;
+    }
+
+    // 视图左上角在最外层父视图中的位置，两个容器的位置相减即为两者之间的偏移
+    // 不要求已显示在窗口中
+    private static void locateInRoot(View view, float[] outLocation) {
+        float x = 0;
+        float y = 0;
+
+        for (Object node = view; node instanceof View; node = ((View)node).getParent()) {
+            View current = (View)node;
+
+            x += current.getLeft() + current.getTranslationX() - current.getScrollX();
+            y += current.getTop()  + current.getTranslationY() - current.getScrollY();
+        }
+
+        outLocation[0] = x;
+        outLocation[1] = y;
+    }
+
+    private void landCard(int slot) {
+        CardsBase card = mSlotCards[slot];
+        int pileIndex = mSlotPiles[slot];
+        PendingDeal deal = mSlotDeals[slot];
+
+        mSlotCards[slot] = null;
+        mSlotDeals[slot] = null;
+
+        mMotionEngine.releaseSlot(slot);
+        mInFlightCount--;
+
+        mPiles[pileIndex].landIncomingCard(card);
+
+        deal.landed++;
+
+        if (null != deal.listener) {
+            deal.listener.onCardDealt(card, pileIndex);
+        }
+
+        finishIfLanded(deal);
+    }
+
+    private static void finishIfLanded(PendingDeal deal) {
+        if ((deal.landed == deal.count) && (null != deal.listener)) {
+            deal.listener.onDealFinished();
+        }
+    }
+}
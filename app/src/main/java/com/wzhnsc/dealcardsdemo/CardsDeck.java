@@ -0,0 +1,214 @@
+package com.wzhnsc.dealcardsdemo;
+
+import java.util.Arrays;
+
+// 自顶至底的卡片顺序，保存在基本类型的环形缓冲区中
+// 元素是非负整数(子视图下标或数据位置)，另外记录每个元素所在的槽位，
+// 所以飞出一张(顶部移到底部)、取顶部、按层取元素、查元素所在层都是 O(1) 。
+public class CardsDeck {
+    // 环形缓冲区
+    private int[] mSlots;
+    // 顶部所在的槽位
+    private int mHead = 0;
+    // 元素个数
+    private int mSize = 0;
+
+    // 元素所在的槽位，-1 表示不在牌堆中
+    private int[] mSlotOfItem;
+
+    public CardsDeck() {
+        this(8);
+    }
+
+    public CardsDeck(int capacity) {
+        mSlots      = new int[Math.max(1, capacity)];
+        mSlotOfItem = new int[Math.max(1, capacity)];
+
+        Arrays.fill(mSlotOfItem, -1);
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    // 清空后按 0 ~ size-1 的顺序自顶至底排列
+    public void reset(int size) {
+        clear();
+
+        for (int i = 0; i < size; i++) {
+            add(i);
+        }
+    }
+
+    public void clear() {
+        for (int i = 0; i < mSize; i++) {
+            mSlotOfItem[mSlots[slotOf(i)]] = -1;
+        }
+
+        mHead = 0;
+        mSize = 0;
+    }
+
+    // 加到最底层
+    public void add(int item) {
+        if (item < 0) {
+            throw new IllegalArgumentException("item must not be negative: " + item);
+        }
+
+        ensureItemCapacity(item + 1);
+
+        if (mSlotOfItem[item] >= 0) {
+            throw new IllegalStateException("item already in deck: " + item);
+        }
+
+        if (mSize == mSlots.length) {
+            growSlots(mSize * 2);
+        }
+
+        int slot = slotOf(mSize);
+
+        mSlots[slot]      = item;
+        mSlotOfItem[item] = slot;
+
+        mSize++;
+    }
+
+    // 加到最顶层
+    public void push(int item) {
+        if (item < 0) {
+            throw new IllegalArgumentException("item must not be negative: " + item);
+        }
+
+        ensureItemCapacity(item + 1);
+
+        if (mSlotOfItem[item] >= 0) {
+            throw new IllegalStateException("item already in deck: " + item);
+        }
+
+        if (mSize == mSlots.length) {
+            growSlots(mSize * 2);
+        }
+
+        mHead = (mHead - 1 + mSlots.length) % mSlots.length;
+
+        mSlots[mHead]     = item;
+        mSlotOfItem[item] = mHead;
+
+        mSize++;
+    }
+
+    // 最顶层的元素
+    public int peek() {
+        if (mSize == 0) {
+            throw new IllegalStateException("deck is empty");
+        }
+
+        return mSlots[mHead];
+    }
+
+    // 第 depth 层的元素，0 为最顶层
+    public int get(int depth) {
+        if ((depth < 0) || (depth >= mSize)) {
+            throw new IndexOutOfBoundsException("depth " + depth + ", size " + mSize);
+        }
+
+        return mSlots[slotOf(depth)];
+    }
+
+    // 元素所在的层，不在牌堆中返回 -1
+    public int depthOf(int item) {
+        if ((item < 0) || (item >= mSlotOfItem.length) || (mSlotOfItem[item] < 0)) {
+            return -1;
+        }
+
+        return (mSlotOfItem[item] - mHead + mSlots.length) % mSlots.length;
+    }
+
+    public boolean contains(int item) {
+        return depthOf(item) >= 0;
+    }
+
+    // 最顶层移到最底层
+    public void rotate() {
+        if (mSize < 2) {
+            return;
+        }
+
+        if (mSize < mSlots.length) {
+            // 缓冲区没有用满时把顶部元素搬到尾部空槽位
+            int item = mSlots[mHead];
+            int tail = slotOf(mSize);
+
+            mSlots[tail]      = item;
+            mSlotOfItem[item] = tail;
+        }
+
+        // 用满时尾部的下一个槽位就是顶部，只需移动顶部位置
+        mHead = (mHead + 1) % mSlots.length;
+    }
+
+    // 最底层移到最顶层(rotate 的逆操作)
+    public void rotateBack() {
+        if (mSize < 2) {
+            return;
+        }
+
+        int head = (mHead - 1 + mSlots.length) % mSlots.length;
+
+        if (mSize < mSlots.length) {
+            // 缓冲区没有用满时把尾部元素搬到顶部前面的空槽位
+            int item = mSlots[slotOf(mSize - 1)];
+
+            mSlots[head]      = item;
+            mSlotOfItem[item] = head;
+        }
+
+        // 用满时顶部的前一个槽位就是尾部，只需移动顶部位置
+        mHead = head;
+    }
+
+    // 自顶至底复制到数组中
+    public int[] toArray() {
+        int[] items = new int[mSize];
+
+        for (int i = 0; i < mSize; i++) {
+            items[i] = mSlots[slotOf(i)];
+        }
+
+        return items;
+    }
+
+    private int slotOf(int depth) {
+        return (mHead + depth) % mSlots.length;
+    }
+
+    private void growSlots(int capacity) {
+        int[] slots = new int[capacity];
+
+        for (int i = 0; i < mSize; i++) {
+            int item = mSlots[slotOf(i)];
+
+            slots[i]          = item;
+            mSlotOfItem[item] = i;
+        }
+
+        mSlots = slots;
+        mHead  = 0;
+    }
+
+    private void ensureItemCapacity(int capacity) {
+        if (capacity <= mSlotOfItem.length) {
+            return;
+        }
+
+        int[] slotOfItem = new int[Math.max(capacity, mSlotOfItem.length * 2)];
+        Arrays.fill(slotOfItem, mSlotOfItem.length, slotOfItem.length, -1);
+        System.arraycopy(mSlotOfItem, 0, slotOfItem, 0, mSlotOfItem.length);
+
+        mSlotOfItem = slotOfItem;
+    }
+}
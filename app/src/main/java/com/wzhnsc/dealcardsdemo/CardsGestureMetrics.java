@@ -0,0 +1,227 @@
+package com.wzhnsc.dealcardsdemo;
+
+import java.util.Arrays;
+
+// 每次拖动手势的帧耗时和掉帧统计(默认关闭，通过 CardsContainer.setGestureMetrics 开启)
+// 一次手势从按住卡片开始，到松手后回弹静止或飞出到达为止。
+// 帧间隔和每帧处理耗时记录在预先分配好的固定分桶直方图里，手势进行中不分配任何对象；
+// 手势结束时把结果交给监听者，监听者拿到的快照对象会被下一次手势复用，需要保留时调用 copy() 。
+public class CardsGestureMetrics {
+    public interface Listener {
+        void onGestureMetrics(Snapshot snapshot);
+    }
+
+    // 帧间隔直方图每个分桶的上限(毫秒，不含)，最后一个分桶没有上限
+    private static final long[] FRAME_INTERVAL_BOUNDS_MILLIS = {8, 12, 17, 25, 34, 50, 100};
+
+    // 每帧处理耗时直方图每个分桶的上限(微秒，不含)，最后一个分桶没有上限
+    private static final long[] FRAME_WORK_BOUNDS_MICROS = {250, 500, 1000, 2000, 4000, 8000, 16000};
+
+    public static final int FRAME_INTERVAL_BUCKET_COUNT = FRAME_INTERVAL_BOUNDS_MILLIS.length + 1;
+    public static final int FRAME_WORK_BUCKET_COUNT = FRAME_WORK_BOUNDS_MICROS.length + 1;
+
+    // 一次手势的统计结果
+    public static class Snapshot {
+        // 帧间隔分布，分桶见 getFrameIntervalBucketBoundMillis
+        public final int[] frameIntervalHistogram = new int[FRAME_INTERVAL_BUCKET_COUNT];
+        // 每帧处理耗时分布，分桶见 getFrameWorkBucketBoundMicros
+        public final int[] frameWorkHistogram = new int[FRAME_WORK_BUCKET_COUNT];
+
+        // 帧数(拖动帧和松手后的动画帧)
+        public int frames;
+        // 按刷新间隔推算掉了的帧数
+        public int droppedFrames;
+        // 最长的帧间隔(纳秒)
+        public long maxFrameIntervalNanos;
+
+        // 子视图 layout 、 measure 的次数和 adjustChildrenPosition 的次数
+        public int childLayouts;
+        public int childMeasures;
+        public int adjustPasses;
+
+        // 按住到松手的时长(纳秒)
+        public long dragNanos;
+        // 松手到静止或飞出到达的时长(纳秒)
+        public long settleNanos;
+        // 是否飞出消失(否则是回弹)
+        public boolean dismissed;
+
+        void clear() {
+            Arrays.fill(frameIntervalHistogram, 0);
+            Arrays.fill(frameWorkHistogram, 0);
+
+            frames                = 0;
+            droppedFrames         = 0;
+            maxFrameIntervalNanos = 0;
+            childLayouts          = 0;
+            childMeasures         = 0;
+            adjustPasses          = 0;
+            dragNanos             = 0;
+            settleNanos           = 0;
+            dismissed             = false;
+        }
+
+        public void copyTo(Snapshot target) {
+            System.arraycopy(frameIntervalHistogram, 0, target.frameIntervalHistogram, 0, FRAME_INTERVAL_BUCKET_COUNT);
+            System.arraycopy(frameWorkHistogram, 0, target.frameWorkHistogram, 0, FRAME_WORK_BUCKET_COUNT);
+
+            target.frames                = frames;
+            target.droppedFrames         = droppedFrames;
+            target.maxFrameIntervalNanos = maxFrameIntervalNanos;
+            target.childLayouts          = childLayouts;
+            target.childMeasures         = childMeasures;
+            target.adjustPasses          = adjustPasses;
+            target.dragNanos             = dragNanos;
+            target.settleNanos           = settleNanos;
+            target.dismissed             = dismissed;
+        }
+
+        public Snapshot copy() {
+            Snapshot snapshot = new Snapshot();
+            copyTo(snapshot);
+            return snapshot;
+        }
+    }
+
+    private static final int STATE_IDLE = 0;
+    private static final int STATE_DRAGGING = 1;
+    private static final int STATE_SETTLING = 2;
+
+    // 屏幕刷新间隔(纳秒)
+    private final long mFrameIntervalNanos;
+
+    private final Listener mListener;
+
+    private final Snapshot mSnapshot = new Snapshot();
+
+    private int mState = STATE_IDLE;
+
+    private long mGestureStartNanos;
+    private long mReleaseNanos;
+    // 上一帧的时间，-1 表示还没有帧
+    private long mLastFrameNanos = -1;
+
+    // 正在统计的卡片在物理引擎中的槽位
+    private int mMotionSlot = -1;
+
+    public CardsGestureMetrics(long frameIntervalNanos, Listener listener) {
+        if (frameIntervalNanos <= 0) {
+            throw new IllegalArgumentException("frameIntervalNanos must be positive");
+        }
+
+        mFrameIntervalNanos = frameIntervalNanos;
+        mListener           = listener;
+    }
+
+    // 第 bucket 个帧间隔分桶的上限(毫秒，不含)，最后一个分桶返回 Long.MAX_VALUE
+    public static long getFrameIntervalBucketBoundMillis(int bucket) {
+        return (bucket < FRAME_INTERVAL_BOUNDS_MILLIS.length) ? FRAME_INTERVAL_BOUNDS_MILLIS[bucket] : Long.MAX_VALUE;
+    }
+
+    // 第 bucket 个处理耗时分桶的上限(微秒，不含)，最后一个分桶返回 Long.MAX_VALUE
+    public static long getFrameWorkBucketBoundMicros(int bucket) {
+        return (bucket < FRAME_WORK_BOUNDS_MICROS.length) ? FRAME_WORK_BOUNDS_MICROS[bucket] : Long.MAX_VALUE;
+    }
+
+    public boolean isGestureActive() {
+        return STATE_IDLE != mState;
+    }
+
+    // 按住卡片开始拖动，上一次手势还没结束时直接丢弃
+    void beginGesture(int motionSlot, long nowNanos) {
+        mSnapshot.clear();
+
+        mState             = STATE_DRAGGING;
+        mMotionSlot        = motionSlot;
+        mGestureStartNanos = nowNanos;
+        mLastFrameNanos    = -1;
+    }
+
+    // 一帧结束，workNanos 为本帧容器处理的耗时
+    void frame(long frameTimeNanos, long workNanos) {
+        if (STATE_IDLE == mState) {
+            return;
+        }
+
+        Snapshot snapshot = mSnapshot;
+
+        snapshot.frames++;
+        snapshot.frameWorkHistogram[bucketOf(workNanos / 1000, FRAME_WORK_BOUNDS_MICROS)]++;
+
+        if (mLastFrameNanos >= 0) {
+            long interval = frameTimeNanos - mLastFrameNanos;
+
+            snapshot.frameIntervalHistogram[bucketOf(interval / 1000000, FRAME_INTERVAL_BOUNDS_MILLIS)]++;
+
+            // 间隔超过刷新间隔一半以上的部分算作掉帧
+            long missed = (interval + mFrameIntervalNanos / 2) / mFrameIntervalNanos - 1;
+
+            if (missed > 0) {
+                snapshot.droppedFrames += (int)missed;
+            }
+
+            if (interval > snapshot.maxFrameIntervalNanos) {
+                snapshot.maxFrameIntervalNanos = interval;
+            }
+        }
+
+        mLastFrameNanos = frameTimeNanos;
+    }
+
+    void countLayouts(int layouts) {
+        if (STATE_IDLE != mState) {
+            mSnapshot.childLayouts += layouts;
+        }
+    }
+
+    void countMeasures(int measures) {
+        if (STATE_IDLE != mState) {
+            mSnapshot.childMeasures += measures;
+        }
+    }
+
+    void countAdjustPass() {
+        if (STATE_IDLE != mState) {
+            mSnapshot.adjustPasses++;
+        }
+    }
+
+    // 松手
+    void release(long nowNanos, boolean dismissed) {
+        if (STATE_DRAGGING != mState) {
+            return;
+        }
+
+        mState        = STATE_SETTLING;
+        mReleaseNanos = nowNanos;
+
+        mSnapshot.dragNanos = nowNanos - mGestureStartNanos;
+        mSnapshot.dismissed = dismissed;
+    }
+
+    // 槽位静止或飞出到达，是本次手势的卡片时结束统计并通知监听者
+    void settle(int motionSlot, long nowNanos) {
+        if ((STATE_SETTLING != mState) || (motionSlot != mMotionSlot)) {
+            return;
+        }
+
+        mState      = STATE_IDLE;
+        mMotionSlot = -1;
+
+        mSnapshot.settleNanos = nowNanos - mReleaseNanos;
+
+        if (null != mListener) {
+            mListener.onGestureMetrics(mSnapshot);
+        }
+    }
+
+    private static int bucketOf(long value, long[] bounds) {
+        for (int i = 0; i < bounds.length; i++) {
+            if (value < bounds[i]) {
+                return i;
+            }
+        }
+
+        return bounds.length;
+    }
+}
@@ -0,0 +1,372 @@
+package com.wzhnsc.dealcardsdemo;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+
+// 在后台线程解码卡片图片
+// 主线程只查缓存，没有时提交解码请求并立即返回，不会因为解码卡住；
+// 解码时先读出原图尺寸，按卡片尺寸缩小采样，并尽量复用缓存淘汰下来的图片内存。
+// 卡片等着显示的请求排在最前面，预取的排在后面；
+// 预取窗口移动后，还没开始解码的旧预取请求直接丢弃，快速划过很多张时不会积压。
+public class CardsImageLoader {
+    // 按 key 打开图片数据，在解码线程调用，每次解码会调用两次(先读尺寸再解码)
+    public interface Source {
+        InputStream open(String key) throws IOException;
+    }
+
+    // 图片解码完成，在主线程调用
+    public interface Target {
+        void onImageLoaded(String key, Bitmap bitmap);
+    }
+
+    private static class Request {
+        final String key;
+
+        // 等待显示的卡片，预取时为 null
+        Target target;
+
+        // 最近一次预取到它的批次
+        int prefetchGeneration;
+
+        // 已被解码线程取走
+        boolean started;
+
+        boolean cancelled;
+
+        Request(String key) {
+            this.key = key;
+        }
+    }
+
+    private final Source mSource;
+    private final CardsBitmapCache mCache;
+    private final Handler mMainHandler;
+
+    // 等待解码的请求，卡片的在前、预取的在后
+    private final BlockingDeque<Request> mQueue = new LinkedBlockingDeque<>();
+
+    // 还没解码完成的请求
+    private final HashMap<String, Request> mPending = new HashMap<>();
+
+    private final Thread[] mWorkers;
+
+    // 解码的目标尺寸（卡片的测量尺寸）
+    private int mTargetWidth = 0;
+    private int mTargetHeight = 0;
+
+    // 预取的批次，每次 prefetch 加一
+    private int mPrefetchGeneration = 0;
+
+    private Bitmap.Config mConfig = Bitmap.Config.ARGB_8888;
+
+    public CardsImageLoader(Source source, CardsBitmapCache cache, int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("threadCount must be at least 1");
+        }
+
+        mSource      = source;
+        mCache       = cache;
+        mMainHandler = new Handler(Looper.getMainLooper());
+        mWorkers     = new Thread[threadCount];
+
+        for (int i = 0; i < threadCount; i++) {
+            mWorkers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+
+                    decodeLoop();
+                }
+            }, "CardsImageLoader-" + i);
+
+            mWorkers[i].setDaemon(true);
+            mWorkers[i].start();
+        }
+    }
+
+    public CardsBitmapCache getCache() {
+        return mCache;
+    }
+
+    // 解码使用的像素格式，照片不需要透明时可以用 RGB_565 节省一半内存
+    public synchronized void setBitmapConfig(Bitmap.Config config) {
+        if (mConfig != config) {
+            mConfig = config;
+            mCache.clear();
+        }
+    }
+
+    // 设置解码的目标尺寸，尺寸变化后之前解码的都不再使用
+    public void setTargetSize(int width, int height) {
+        synchronized (this) {
+            if ((width == mTargetWidth) && (height == mTargetHeight)) {
+                return;
+            }
+
+            mTargetWidth  = width;
+            mTargetHeight = height;
+        }
+
+        mCache.clear();
+    }
+
+    public synchronized int getTargetWidth() {
+        return mTargetWidth;
+    }
+
+    public synchronized int getTargetHeight() {
+        return mTargetHeight;
+    }
+
+    // 在主线程调用：缓存中有时直接返回并 pin 住；
+    // 否则返回 null ，解码完成后通过 target 通知（届时 key 已 pin 住）
+    // 不再需要时调用 release(key, target)
+    public Bitmap load(String key, Target target) {
+        mCache.pin(key);
+
+        Bitmap bitmap = mCache.get(key);
+
+        if (null != bitmap) {
+            return bitmap;
+        }
+
+        synchronized (this) {
+            Request request = mPending.get(key);
+
+            if (null == request) {
+                request = new Request(key);
+                mPending.put(key, request);
+            }
+            else if (request.started) {
+                // 正在解码，完成后通知
+                request.target = target;
+                return null;
+            }
+            else {
+                // 已在预取队列中，提到最前面
+                mQueue.remove(request);
+            }
+
+            request.target = target;
+            mQueue.offerFirst(request);
+        }
+
+        return null;
+    }
+
+    // 在主线程调用：卡片不再显示 key ，还没开始解码的请求转为预取(之后可能被丢弃)
+    public void release(String key, Target target) {
+        synchronized (this) {
+            Request request = mPending.get(key);
+
+            if ((null != request) && (request.target == target)) {
+                request.target = null;
+            }
+        }
+
+        mCache.unpin(key);
+    }
+
+    // 预取 keys 的前 count 个，上一批中不在这一批里、还没开始解码的请求取消
+    public void prefetch(String[] keys, int count) {
+        synchronized (this) {
+            int generation = ++mPrefetchGeneration;
+
+            for (int i = 0; i < count; i++) {
+                String key = keys[i];
+
+                Request request = mPending.get(key);
+
+                if (null != request) {
+                    request.prefetchGeneration = generation;
+                    continue;
+                }
+
+                if (null != mCache.get(key)) {
+                    continue;
+                }
+
+                request = new Request(key);
+                request.prefetchGeneration = generation;
+
+                mPending.put(key, request);
+                mQueue.offerLast(request);
+            }
+
+            Iterator<Request> iterator = mPending.values().iterator();
+
+            while (iterator.hasNext()) {
+                Request request = iterator.next();
+
+                if ((null == request.target) && (request.prefetchGeneration != generation)) {
+                    request.cancelled = true;
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    // 还没解码完成的请求数
+    public synchronized int getPendingCount() {
+        return mPending.size();
+    }
+
+    // 停止解码线程
+    public void shutdown() {
+        for (Thread worker : mWorkers) {
+            worker.interrupt();
+        }
+
+        synchronized (this) {
+            mQueue.clear();
+            mPending.clear();
+        }
+    }
+
+    private void decodeLoop() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Request request = mQueue.takeFirst();
+
+                int targetWidth;
+                int targetHeight;
+                Bitmap.Config config;
+
+                synchronized (this) {
+                    if (request.cancelled) {
+                        continue;
+                    }
+
+                    request.started = true;
+
+                    targetWidth  = mTargetWidth;
+                    targetHeight = mTargetHeight;
+                    config       = mConfig;
+                }
+
+                Bitmap bitmap = decode(request.key, targetWidth, targetHeight, config);
+
+                if (null != bitmap) {
+                    mCache.put(request.key, bitmap);
+                }
+
+                deliver(request, bitmap);
+            }
+        }
+        catch (InterruptedException e) {
+            // 已关闭
+        }
+    }
+
+    private void deliver(final Request request, final Bitmap bitmap) {
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                Target target;
+
+                synchronized (CardsImageLoader.this) {
+                    if (mPending.get(request.key) == request) {
+                        mPending.remove(request.key);
+                    }
+
+                    target = request.target;
+                }
+
+                if ((null != target) && (null != bitmap)) {
+                    target.onImageLoaded(request.key, bitmap);
+                }
+            }
+        });
+    }
+
+    private Bitmap decode(String key, int targetWidth, int targetHeight, Bitmap.Config config) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+
+        // 先只读尺寸
+        options.inJustDecodeBounds = true;
+        decodeStream(key, options);
+
+        if ((options.outWidth <= 0) || (options.outHeight <= 0)) {
+            return null;
+        }
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize       = computeSampleSize(options.outWidth, options.outHeight,
+                                                       targetWidth, targetHeight);
+        options.inPreferredConfig  = config;
+        options.inMutable          = true;
+
+        Bitmap reusable = mCache.takeReusable(options);
+        options.inBitmap = reusable;
+
+        try {
+            Bitmap bitmap = decodeStream(key, options);
+
+            if ((null == bitmap) && (null != reusable)) {
+                mCache.returnReusable(reusable);
+            }
+
+            return bitmap;
+        }
+        catch (IllegalArgumentException e) {
+            if (null == reusable) {
+                return null;
+            }
+
+            // 复用的内存不合适，不复用重新解码
+            mCache.returnReusable(reusable);
+            options.inBitmap = null;
+
+            return decodeStream(key, options);
+        }
+    }
+
+    private Bitmap decodeStream(String key, BitmapFactory.Options options) {
+        InputStream in = null;
+
+        try {
+            in = mSource.open(key);
+
+            return (null == in) ? null : BitmapFactory.decodeStream(in, null, options);
+        }
+        catch (IOException e) {
+            return null;
+        }
+        finally {
+            if (null != in) {
+                try {
+                    in.close();
+                }
+                catch (IOException e) {
+                    // 忽略
+                }
+            }
+        }
+    }
+
+    // 缩小采样后宽高都不小于目标尺寸的最大的 2 的幂，目标尺寸未知时不缩小
+    static int computeSampleSize(int width, int height, int targetWidth, int targetHeight) {
+        int sampleSize = 1;
+
+        if ((targetWidth <= 0) || (targetHeight <= 0)) {
+            return sampleSize;
+        }
+
+        while (((width  / (sampleSize * 2)) >= targetWidth)
+            && ((height / (sampleSize * 2)) >= targetHeight)) {
+            sampleSize *= 2;
+        }
+
+        return sampleSize;
+    }
+}
@@ -0,0 +1,42 @@
+package com.wzhnsc.dealcardsdemo;
+
+import android.support.v4.util.LruCache;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+
+// 卡片文字排版结果的缓存
+// 同样的文字只排版一次，之后所有卡片直接绘制缓存的 StaticLayout ，
+// 最多保留 maxSize 个，最久没用的先淘汰。LruCache 自带同步，可在多个线程使用。
+public class CardsLabelCache {
+    private final TextPaint mPaint;
+
+    private final LruCache<String, StaticLayout> mLayouts;
+
+    public CardsLabelCache(TextPaint paint, int maxSize) {
+        mPaint   = paint;
+        mLayouts = new LruCache<>(maxSize);
+    }
+
+    public StaticLayout get(String label) {
+        StaticLayout layout = mLayouts.get(label);
+
+        if (null == layout) {
+            int width = (int)Math.ceil(mPaint.measureText(label));
+
+            layout = new StaticLayout(label, mPaint, width, Layout.Alignment.ALIGN_NORMAL, 1f, 0f, true);
+
+            mLayouts.put(label, layout);
+        }
+
+        return layout;
+    }
+
+    public TextPaint getPaint() {
+        return mPaint;
+    }
+
+    public int size() {
+        return mLayouts.size();
+    }
+}
@@ -0,0 +1,360 @@
+package com.wzhnsc.dealcardsdemo;
+
+// 容器内所有卡片共用的弹簧物理引擎
+// 每张卡片占用一个槽位，位置、速度和目标值都存放在基本类型数组里，
+// 由同一个帧回调推进所有处于运动中的槽位，卡片再多也只有一个帧回调。
+// 与 rebound 的 Spring 一样遵循胡克定律：加速度 = 张力 * 位移 - 摩擦力 * 速度。
+// 另外支持限定时长的匀减速飞行(飞出消失用)，与弹簧运动共用同一个帧回调。
+public class CardsMotionEngine {
+    public interface Listener {
+        // 槽位位置更新
+        void onMotionUpdate(int slot, float x, float y);
+
+        // 槽位两个方向都已静止（每次运动只回调一次）
+        void onMotionAtRest(int slot);
+    }
+
+    // 由使用者决定如何在下一帧回调 doFrame
+    public interface FrameScheduler {
+        void scheduleFrame();
+    }
+
+    // 积分步长(秒)，步长固定保证不同帧率下运动一致
+    private static final float SOLVER_TIMESTEP_SEC = 0.001f;
+    // 单帧最多推进的时间(秒)，避免卡顿后一次跳得过远
+    private static final float MAX_DELTA_TIME_SEC = 0.064f;
+    // 从静止开始运动后的第一帧还没有上一帧可比，按一帧的时长推进
+    private static final float FIRST_FRAME_DELTA_SEC = 1 / 60f;
+    // 离目标距离和速度都低于阈值时视为静止
+    private static final float REST_DISPLACEMENT_THRESHOLD = 0.5f;
+    private static final float REST_SPEED_THRESHOLD = 5f;
+
+    private final float mTension;
+    private final float mFriction;
+
+    private final FrameScheduler mFrameScheduler;
+    private Listener mListener;
+
+    // 已分配的槽位数
+    private int mSlotCount = 0;
+
+    private float[] mPosX = new float[0];
+    private float[] mPosY = new float[0];
+    private float[] mVelX = new float[0];
+    private float[] mVelY = new float[0];
+    private float[] mEndX = new float[0];
+    private float[] mEndY = new float[0];
+
+    // 飞行的起点、已飞行的时间和总时长(秒)，总时长为 0 表示弹簧运动
+    private float[] mFromX = new float[0];
+    private float[] mFromY = new float[0];
+    private float[] mFlightElapsed = new float[0];
+    private float[] mFlightDuration = new float[0];
+
+    // 运动中的槽位列表及每个槽位在列表中的下标(-1 表示静止)
+    private int[] mActiveSlots = new int[0];
+    private int[] mActiveIndex = new int[0];
+    private int mActiveCount = 0;
+
+    // 本帧静止的槽位，遍历完运动列表后再回调 onMotionAtRest
+    private int[] mRestedSlots = new int[0];
+
+    // 释放后可以再分配的槽位
+    private int[] mFreeSlots = new int[0];
+    private int mFreeCount = 0;
+
+    // 已请求下一帧但还没回调
+    private boolean mFrameScheduled = false;
+    // 上一帧的时间(纳秒)，-1 表示从静止开始运动后还没有推进过
+    private long mLastFrameNanos = -1;
+
+    public CardsMotionEngine(double tension, double friction, FrameScheduler frameScheduler) {
+        mTension        = (float)tension;
+        mFriction       = (float)friction;
+        mFrameScheduler = frameScheduler;
+    }
+
+    public void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    // 分配一个槽位，优先使用释放过的
+    public int obtainSlot() {
+        if (mFreeCount > 0) {
+            int slot = mFreeSlots[--mFreeCount];
+
+            mPosX[slot] = 0;
+            mPosY[slot] = 0;
+            setAtRest(slot);
+
+            return slot;
+        }
+
+        if (mSlotCount == mPosX.length) {
+            int capacity = Math.max(8, mSlotCount * 2);
+
+            mPosX = grow(mPosX, capacity);
+            mPosY = grow(mPosY, capacity);
+            mVelX = grow(mVelX, capacity);
+            mVelY = grow(mVelY, capacity);
+            mEndX = grow(mEndX, capacity);
+            mEndY = grow(mEndY, capacity);
+
+            mFromX          = grow(mFromX, capacity);
+            mFromY          = grow(mFromY, capacity);
+            mFlightElapsed  = grow(mFlightElapsed, capacity);
+            mFlightDuration = grow(mFlightDuration, capacity);
+
+            int[] activeSlots = new int[capacity];
+            System.arraycopy(mActiveSlots, 0, activeSlots, 0, mActiveCount);
+            mActiveSlots = activeSlots;
+
+            int[] activeIndex = new int[capacity];
+            System.arraycopy(mActiveIndex, 0, activeIndex, 0, mSlotCount);
+            mActiveIndex = activeIndex;
+
+            mRestedSlots = new int[capacity];
+        }
+
+        mActiveIndex[mSlotCount] = -1;
+
+        return mSlotCount++;
+    }
+
+    // 卡片移到别的容器后释放它的槽位，释放时立即静止
+    public void releaseSlot(int slot) {
+        setAtRest(slot);
+
+        if (mFreeCount == mFreeSlots.length) {
+            int[] freeSlots = new int[Math.max(8, mFreeCount * 2)];
+            System.arraycopy(mFreeSlots, 0, freeSlots, 0, mFreeCount);
+            mFreeSlots = freeSlots;
+        }
+
+        mFreeSlots[mFreeCount++] = slot;
+    }
+
+    public int getSlotCount() {
+        return mSlotCount;
+    }
+
+    public int getActiveCount() {
+        return mActiveCount;
+    }
+
+    // 从指定位置带晃动效果地运动到目标位置
+    public void animTo(int slot, float fromX, float fromY, float toX, float toY) {
+        mPosX[slot] = fromX;
+        mPosY[slot] = fromY;
+        mEndX[slot] = toX;
+        mEndY[slot] = toY;
+
+        // 飞行中改为弹簧运动时从静止开始
+        if ((mActiveIndex[slot] < 0) || (mFlightDuration[slot] > 0)) {
+            mVelX[slot] = 0;
+            mVelY[slot] = 0;
+        }
+
+        mFlightDuration[slot] = 0;
+
+        activate(slot);
+    }
+
+    // 从指定位置匀减速地飞到目标位置，durationMillis 毫秒后到达并静止
+    public void flyTo(int slot, float fromX, float fromY, float toX, float toY, int durationMillis) {
+        if (durationMillis <= 0) {
+            throw new IllegalArgumentException("durationMillis must be positive: " + durationMillis);
+        }
+
+        mPosX[slot]  = fromX;
+        mPosY[slot]  = fromY;
+        mFromX[slot] = fromX;
+        mFromY[slot] = fromY;
+        mEndX[slot]  = toX;
+        mEndY[slot]  = toY;
+        mVelX[slot]  = 0;
+        mVelY[slot]  = 0;
+
+        mFlightElapsed[slot]  = 0;
+        mFlightDuration[slot] = durationMillis / 1000f;
+
+        activate(slot);
+    }
+
+    public boolean isFlying(int slot) {
+        return (mActiveIndex[slot] >= 0) && (mFlightDuration[slot] > 0);
+    }
+
+    // 使槽位立即静止在当前位置，不回调 onMotionAtRest
+    public void setAtRest(int slot) {
+        if (mActiveIndex[slot] >= 0) {
+            deactivate(slot);
+        }
+
+        mVelX[slot] = 0;
+        mVelY[slot] = 0;
+        mEndX[slot] = mPosX[slot];
+        mEndY[slot] = mPosY[slot];
+
+        mFlightDuration[slot] = 0;
+    }
+
+    public boolean isAtRest(int slot) {
+        return mActiveIndex[slot] < 0;
+    }
+
+    public float getX(int slot) {
+        return mPosX[slot];
+    }
+
+    public float getY(int slot) {
+        return mPosY[slot];
+    }
+
+    // 推进一帧，frameTimeNanos 为当前帧的时间
+    public void doFrame(long frameTimeNanos) {
+        mFrameScheduled = false;
+
+        if (mActiveCount == 0) {
+            mLastFrameNanos = -1;
+            return;
+        }
+
+        float deltaSec = (mLastFrameNanos < 0) ? FIRST_FRAME_DELTA_SEC : Math.max(0, frameTimeNanos - mLastFrameNanos) / 1e9f;
+        mLastFrameNanos = frameTimeNanos;
+
+        if (deltaSec > MAX_DELTA_TIME_SEC) {
+            deltaSec = MAX_DELTA_TIME_SEC;
+        }
+
+        int steps = (int)(deltaSec / SOLVER_TIMESTEP_SEC + 0.5f);
+
+        int restedCount = 0;
+
+        // 倒序遍历，静止的槽位移出列表时不影响未遍历的部分
+        for (int i = mActiveCount - 1; i >= 0; i--) {
+            int slot = mActiveSlots[i];
+
+            boolean atRest;
+
+            if (mFlightDuration[slot] > 0) {
+                atRest = fly(slot, deltaSec);
+            }
+            else {
+                for (int s = 0; s < steps; s++) {
+                    step(slot);
+                }
+
+                atRest = isSettled(slot);
+            }
+
+            if (atRest) {
+                mPosX[slot] = mEndX[slot];
+                mPosY[slot] = mEndY[slot];
+                mVelX[slot] = 0;
+                mVelY[slot] = 0;
+
+                mFlightDuration[slot] = 0;
+
+                deactivate(slot);
+
+                mRestedSlots[restedCount++] = slot;
+            }
+
+            if (null != mListener) {
+                mListener.onMotionUpdate(slot, mPosX[slot], mPosY[slot]);
+            }
+        }
+
+        // 回调中可能开始或停止别的槽位的运动，所以等遍历完再回调
+        for (int i = 0; i < restedCount; i++) {
+            int slot = mRestedSlots[i];
+
+            // 前面的回调又让它运动起来了，这次运动结束时再回调
+            if ((null != mListener) && (mActiveIndex[slot] < 0)) {
+                mListener.onMotionAtRest(slot);
+            }
+        }
+
+        scheduleFrameIfNeeded();
+    }
+
+    // 半隐式欧拉积分推进一个步长
+    private void step(int slot) {
+        float accX = mTension * (mEndX[slot] - mPosX[slot]) - mFriction * mVelX[slot];
+        float accY = mTension * (mEndY[slot] - mPosY[slot]) - mFriction * mVelY[slot];
+
+        mVelX[slot] += accX * SOLVER_TIMESTEP_SEC;
+        mVelY[slot] += accY * SOLVER_TIMESTEP_SEC;
+
+        mPosX[slot] += mVelX[slot] * SOLVER_TIMESTEP_SEC;
+        mPosY[slot] += mVelY[slot] * SOLVER_TIMESTEP_SEC;
+    }
+
+    // 飞行推进 deltaSec 秒，到达目标后返回 true
+    // 位置按 1 - (1 - t)^2 插值：初速是平均速度的两倍，到达时速度减为 0
+    private boolean fly(int slot, float deltaSec) {
+        mFlightElapsed[slot] += deltaSec;
+
+        float t = mFlightElapsed[slot] / mFlightDuration[slot];
+
+        if (t >= 1) {
+            return true;
+        }
+
+        float eased = 1 - (1 - t) * (1 - t);
+
+        mPosX[slot] = mFromX[slot] + (mEndX[slot] - mFromX[slot]) * eased;
+        mPosY[slot] = mFromY[slot] + (mEndY[slot] - mFromY[slot]) * eased;
+
+        return false;
+    }
+
+    private boolean isSettled(int slot) {
+        return (Math.abs(mEndX[slot] - mPosX[slot]) <= REST_DISPLACEMENT_THRESHOLD)
+            && (Math.abs(mEndY[slot] - mPosY[slot]) <= REST_DISPLACEMENT_THRESHOLD)
+            && (Math.abs(mVelX[slot]) <= REST_SPEED_THRESHOLD)
+            && (Math.abs(mVelY[slot]) <= REST_SPEED_THRESHOLD);
+    }
+
+    // 加入运动列表(已在列表中时不重复加入)并请求下一帧
+    private void activate(int slot) {
+        // 从静止开始运动，重新计时(上一帧的时间可能是很久以前的)
+        if (mActiveCount == 0) {
+            mLastFrameNanos = -1;
+        }
+
+        if (mActiveIndex[slot] < 0) {
+            mActiveIndex[slot] = mActiveCount;
+            mActiveSlots[mActiveCount++] = slot;
+        }
+
+        scheduleFrameIfNeeded();
+    }
+
+    // 从运动列表中移除，用最后一个元素填补空位
+    private void deactivate(int slot) {
+        int index = mActiveIndex[slot];
+        int last  = mActiveSlots[--mActiveCount];
+
+        mActiveSlots[index] = last;
+        mActiveIndex[last]  = index;
+        mActiveIndex[slot]  = -1;
+    }
+
+    private void scheduleFrameIfNeeded() {
+        if ((mActiveCount > 0) && !mFrameScheduled) {
+            mFrameScheduled = true;
+            mFrameScheduler.scheduleFrame();
+        }
+        else if (mActiveCount == 0) {
+            mLastFrameNanos = -1;
+        }
+    }
+
+    private static float[] grow(float[] src, int capacity) {
+        float[] dst = new float[capacity];
+        System.arraycopy(src, 0, dst, 0, src.length);
+        return dst;
+    }
+}
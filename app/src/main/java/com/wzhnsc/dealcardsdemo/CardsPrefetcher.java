@@ -0,0 +1,170 @@
+package com.wzhnsc.dealcardsdemo;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// 在后台线程提前创建卡片视图，主线程需要时直接取走
+// 每张卡片都要加载布局、读取属性，全放在主线程会拖慢启动。
+// 预先创建的卡片放在固定容量的队列里，队列没有空位时后台线程就等待(背压)，
+// 主线程取卡片从不阻塞，来不及预先创建时当场创建；
+// 可以用 whenReady 等第一屏的卡片创建好再设置数据源，避免当场创建。
+public class CardsPrefetcher {
+    // 创建卡片的方法，在后台线程调用（卡片尚未加到视图树上）
+    public interface Factory {
+        CardsBase createCard(Context context);
+    }
+
+    private final Context mContext;
+    private final Factory mFactory;
+
+    // 已创建好等待取走的卡片
+    private final BlockingQueue<CardsBase> mReadyCards;
+
+    // 队列中的空位，有空位才创建下一张
+    private final Semaphore mFreeSlots;
+
+    // 还可以创建的卡片数
+    private final AtomicInteger mRemaining;
+
+    private final int mQueueDepth;
+
+    private final Thread mWorker;
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    // 等待预先创建好的张数达到 mReadyTarget 的回调，只由持有 this 锁时访问
+    private Runnable mReadyCallback;
+    private int mReadyTarget;
+
+    // 后台线程已不再创建
+    private volatile boolean mFinished = false;
+
+    // queueDepth 为最多预先创建的张数，maxCards 为总共需要创建的张数
+    public CardsPrefetcher(Context context, int queueDepth, int maxCards, Factory factory) {
+        if (queueDepth < 1) {
+            throw new IllegalArgumentException("queueDepth must be at least 1");
+        }
+
+        mContext    = context;
+        mFactory    = factory;
+        mQueueDepth = queueDepth;
+        mReadyCards = new ArrayBlockingQueue<>(queueDepth);
+        mFreeSlots  = new Semaphore(queueDepth);
+        mRemaining  = new AtomicInteger(maxCards);
+
+        mWorker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+
+                prefetch();
+            }
+        }, "CardsPrefetcher");
+
+        mWorker.setDaemon(true);
+        mWorker.start();
+    }
+
+    private void prefetch() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                // 队列满时等待主线程取走
+                mFreeSlots.acquire();
+
+                if (!claim()) {
+                    break;
+                }
+
+                mReadyCards.put(mFactory.createCard(mContext));
+
+                checkReady();
+            }
+        }
+        catch (InterruptedException e) {
+            // 已关闭
+        }
+        finally {
+            mFinished = true;
+
+            checkReady();
+        }
+    }
+
+    // 预先创建好 count 张(最多 queueDepth 张)，或后台已创建完时，在主线程调用 callback
+    // 已经满足时也不直接调用，而是 post 到主线程；只保留最后一次设置的回调
+    public void whenReady(int count, Runnable callback) {
+        synchronized (this) {
+            mReadyCallback = callback;
+            mReadyTarget   = Math.min(count, mQueueDepth);
+        }
+
+        checkReady();
+    }
+
+    private void checkReady() {
+        Runnable callback;
+
+        synchronized (this) {
+            if ((null == mReadyCallback) || ((mReadyCards.size() < mReadyTarget) && !mFinished)) {
+                return;
+            }
+
+            callback = mReadyCallback;
+            mReadyCallback = null;
+        }
+
+        mMainHandler.post(callback);
+    }
+
+    // 占用一个创建名额，名额用完返回 false
+    private boolean claim() {
+        while (true) {
+            int remaining = mRemaining.get();
+
+            if (remaining <= 0) {
+                return false;
+            }
+
+            if (mRemaining.compareAndSet(remaining, remaining - 1)) {
+                return true;
+            }
+        }
+    }
+
+    // 在主线程调用，不会阻塞：有预先创建好的直接取走，否则当场创建
+    public CardsBase obtain() {
+        CardsBase card = mReadyCards.poll();
+
+        if (null != card) {
+            mFreeSlots.release();
+            return card;
+        }
+
+        // 当场创建的也计入总数，后台线程就少创建一张
+        claim();
+
+        return mFactory.createCard(mContext);
+    }
+
+    // 已创建好等待取走的张数
+    public int getReadyCount() {
+        return mReadyCards.size();
+    }
+
+    // 停止后台创建并丢弃还没取走的卡片
+    public void shutdown() {
+        synchronized (this) {
+            mReadyCallback = null;
+        }
+
+        mWorker.interrupt();
+        mReadyCards.clear();
+    }
+}
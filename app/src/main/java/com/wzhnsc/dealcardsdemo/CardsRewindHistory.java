@@ -0,0 +1,92 @@
+package com.wzhnsc.dealcardsdemo;
+
+// 最近飞出的卡片及其飞出时的偏移(离原始位置的距离)，用于撤销
+// 保存在固定容量的基本类型环形缓冲区中，满了以后覆盖最早的记录，记录和撤销都不分配对象。
+public class CardsRewindHistory {
+    private final int[] mItems;
+    private final int[] mExitXs;
+    private final int[] mExitYs;
+
+    // 最早的记录所在的下标和记录数
+    private int mHead = 0;
+    private int mSize = 0;
+
+    public CardsRewindHistory(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity must not be negative: " + capacity);
+        }
+
+        mItems  = new int[capacity];
+        mExitXs = new int[capacity];
+        mExitYs = new int[capacity];
+    }
+
+    public int getCapacity() {
+        return mItems.length;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    public void clear() {
+        mHead = 0;
+        mSize = 0;
+    }
+
+    // 记录一张飞出的卡片，容量为 0 时不记录
+    public void push(int item, int exitX, int exitY) {
+        if (mItems.length == 0) {
+            return;
+        }
+
+        if (mSize == mItems.length) {
+            mHead = (mHead + 1) % mItems.length;
+            mSize--;
+        }
+
+        int index = indexOf(mSize);
+
+        mItems[index]  = item;
+        mExitXs[index] = exitX;
+        mExitYs[index] = exitY;
+
+        mSize++;
+    }
+
+    // 最近一次记录的卡片
+    public int peekItem() {
+        return mItems[lastIndex()];
+    }
+
+    public int peekExitX() {
+        return mExitXs[lastIndex()];
+    }
+
+    public int peekExitY() {
+        return mExitYs[lastIndex()];
+    }
+
+    // 去掉最近一次记录
+    public void pop() {
+        lastIndex();
+
+        mSize--;
+    }
+
+    private int lastIndex() {
+        if (mSize == 0) {
+            throw new IllegalStateException("history is empty");
+        }
+
+        return indexOf(mSize - 1);
+    }
+
+    private int indexOf(int i) {
+        return (mHead + i) % mItems.length;
+    }
+}
@@ -0,0 +1,104 @@
+package com.wzhnsc.dealcardsdemo;
+
+// 把计数和耗时记录到预先分配好的数组里的 CardsTracer 实现
+// 每个区段的耗时保存在固定容量的环形缓冲区中，写满后覆盖最早的记录，
+// 记录过程中不分配任何对象，可以常驻在拖动的热路径上。
+public class CardsTraceRecorder implements CardsTracer {
+    private final long[] mCounters = new long[COUNTER_COUNT];
+
+    // 区段开始的时间，-1 表示未开始
+    private final long[] mSectionStart = new long[SECTION_COUNT];
+
+    // 每个区段最近若干次的耗时(纳秒)
+    private final long[][] mSamples;
+    // 每个区段累计记录的次数
+    private final long[] mSampleTotal = new long[SECTION_COUNT];
+    private final long[] mTotalNanos = new long[SECTION_COUNT];
+    private final long[] mMaxNanos = new long[SECTION_COUNT];
+
+    public CardsTraceRecorder(int samplesPerSection) {
+        if (samplesPerSection < 1) {
+            throw new IllegalArgumentException("samplesPerSection must be at least 1");
+        }
+
+        mSamples = new long[SECTION_COUNT][samplesPerSection];
+
+        reset();
+    }
+
+    @Override
+    public void beginSection(int section) {
+        mSectionStart[section] = System.nanoTime();
+    }
+
+    @Override
+    public void endSection(int section) {
+        long start = mSectionStart[section];
+
+        if (start < 0) {
+            return;
+        }
+
+        long duration = System.nanoTime() - start;
+        long[] samples = mSamples[section];
+
+        samples[(int)(mSampleTotal[section] % samples.length)] = duration;
+
+        mSampleTotal[section]++;
+        mTotalNanos[section] += duration;
+
+        if (duration > mMaxNanos[section]) {
+            mMaxNanos[section] = duration;
+        }
+
+        mSectionStart[section] = -1;
+    }
+
+    @Override
+    public void count(int counter, int delta) {
+        mCounters[counter] += delta;
+    }
+
+    public long getCounter(int counter) {
+        return mCounters[counter];
+    }
+
+    // 区段累计记录的次数
+    public long getSectionCount(int section) {
+        return mSampleTotal[section];
+    }
+
+    public long getTotalNanos(int section) {
+        return mTotalNanos[section];
+    }
+
+    public long getMaxNanos(int section) {
+        return mMaxNanos[section];
+    }
+
+    // 缓冲区中保存的记录数
+    public int getSampleCount(int section) {
+        return (int)Math.min(mSampleTotal[section], mSamples[section].length);
+    }
+
+    // 缓冲区中第 index 条记录的耗时，0 为最早的一条
+    public long getSample(int section, int index) {
+        long[] samples = mSamples[section];
+        long first = mSampleTotal[section] - getSampleCount(section);
+
+        return samples[(int)((first + index) % samples.length)];
+    }
+
+    public void reset() {
+        for (int i = 0; i < COUNTER_COUNT; i++) {
+            mCounters[i] = 0;
+        }
+
+        for (int i = 0; i < SECTION_COUNT; i++) {
+            mSectionStart[i] = -1;
+            mSampleTotal[i]  = 0;
+            mTotalNanos[i]   = 0;
+            mMaxNanos[i]     = 0;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.wzhnsc.dealcardsdemo;
+
+// 容器的诊断接口，替代原来每帧都拼接字符串的 Log.d
+// 实现者需要自行保证不在热路径上分配内存（参见 CardsTraceRecorder ）。
+public interface CardsTracer {
+    // 拖动时一帧 onViewPositionChanged 的处理
+    int SECTION_DRAG_FRAME = 0;
+    // 一次 adjustChildrenPosition 的处理
+    int SECTION_ADJUST_CHILDREN = 1;
+
+    int SECTION_COUNT = 2;
+
+    // 拖动帧数
+    int COUNTER_DRAG_FRAMES = 0;
+    // 调用子视图 layout 的次数
+    int COUNTER_CHILD_LAYOUTS = 1;
+    // adjustChildrenPosition 的次数
+    int COUNTER_ADJUST_PASSES = 2;
+    // 设置子视图平移量的次数
+    int COUNTER_CHILD_TRANSLATIONS = 3;
+    // 绘制的卡片张数
+    int COUNTER_CARDS_DRAWN = 4;
+    // 被上层完全盖住或超出绘制层数而跳过的卡片张数
+    int COUNTER_CARDS_SKIPPED = 5;
+    // 被上层盖住而裁剪掉、没有重复绘制的像素数
+    int COUNTER_OCCLUDED_PIXELS = 6;
+    // 调用子视图 measure 的次数
+    int COUNTER_CHILD_MEASURES = 7;
+    // 静止后把卡片放回叠层位置的次数(每帧最多一次)
+    int COUNTER_REPOSITION_PASSES = 8;
+    // 其中实际放回的卡片张数
+    int COUNTER_CHILD_REPOSITIONS = 9;
+
+    int COUNTER_COUNT = 10;
+
+    void beginSection(int section);
+
+    void endSection(int section);
+
+    void count(int counter, int delta);
+}
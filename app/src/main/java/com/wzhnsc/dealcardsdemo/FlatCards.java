@@ -0,0 +1,150 @@
+package com.wzhnsc.dealcardsdemo;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.support.v4.content.ContextCompat;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.util.AttributeSet;
+
+// 自己绘制背景和数字的卡片
+// Cards 是 FrameLayout 里再加载一个 FrameLayout 和 TextView ，每张卡片三层视图，
+// 各自测量、布局、绘制；这里只有一个视图，直接画 9-patch 背景和缓存好的数字排版。
+public class FlatCards extends CardsBase {
+    // 所有卡片共用的文字排版缓存，文字大小或颜色变了(字体缩放、屏幕密度等配置变化)时重建
+    private static CardsLabelCache sLabelCache;
+
+    // 缓存的排版数量，一副牌的数字足够用
+    private static final int LABEL_CACHE_SIZE = 64;
+
+    private final Drawable mBackground;
+
+    // 背景距卡片边缘的距离
+    private final int mMargin;
+
+    // 背景 9-patch 的阴影宽度
+    private final Rect mBackgroundPadding = new Rect();
+
+    // 背景圆角的半径
+    private final int mCornerRadius;
+
+    private CardsLabelCache mLabelCache;
+
+    // 当前显示的数字和它的排版
+    private int mNumber;
+    private StaticLayout mLabelLayout;
+
+    public FlatCards(Context context) {
+        this(context, null);
+    }
+
+    public FlatCards(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public FlatCards(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+
+        setWillNotDraw(false);
+
+        mBackground   = ContextCompat.getDrawable(context, R.drawable.shape_cards_bg);
+        mMargin       = getResources().getDimensionPixelSize(R.dimen.cards_margin);
+        mCornerRadius = getResources().getDimensionPixelSize(R.dimen.cards_corner_radius);
+        mLabelCache   = obtainLabelCache(context);
+
+        mBackground.getPadding(mBackgroundPadding);
+
+        TypedArray ta = context.obtainStyledAttributes(attrs, R.styleable.card);
+        setNumber(ta.getInt(R.styleable.card_number, 0));
+        ta.recycle();
+    }
+
+    // 按 context 当前配置下的文字大小和颜色取缓存
+    private static CardsLabelCache obtainLabelCache(Context context) {
+        return obtainLabelCache(context.getResources().getDimensionPixelSize(R.dimen.cards_number_text_size),
+                                ContextCompat.getColor(context, R.color.colorPrimary));
+    }
+
+    // 卡片可能在预加载线程中创建，所以需要同步
+    static synchronized CardsLabelCache obtainLabelCache(float textSize, int color) {
+        if ((null == sLabelCache)
+         || (sLabelCache.getPaint().getTextSize() != textSize)
+         || (sLabelCache.getPaint().getColor() != color)) {
+            TextPaint paint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+            paint.setColor(color);
+            paint.setTextSize(textSize);
+
+            sLabelCache = new CardsLabelCache(paint, LABEL_CACHE_SIZE);
+        }
+
+        return sLabelCache;
+    }
+
+    @Override
+    protected void onConfigurationChanged(Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+
+        // 字体缩放或密度变了，按新的文字大小重新排版
+        CardsLabelCache labelCache = obtainLabelCache(getContext());
+
+        if (labelCache != mLabelCache) {
+            mLabelCache = labelCache;
+            setNumber(mNumber);
+        }
+    }
+
+    // 设置卡片上显示的数字（复用卡片时重新绑定数据用）
+    public void setNumber(int number) {
+        mNumber = number;
+
+        StaticLayout labelLayout = mLabelCache.get(String.valueOf(number));
+
+        if (labelLayout != mLabelLayout) {
+            mLabelLayout = labelLayout;
+            invalidate();
+        }
+    }
+
+    CardsLabelCache getLabelCache() {
+        return mLabelCache;
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+
+        mBackground.setBounds(mMargin, mMargin, w - mMargin, h - mMargin);
+    }
+
+    @Override
+    public boolean getOpaqueBounds(Rect outBounds) {
+        // 去掉背景的外边距、阴影和圆角
+        outBounds.set(mMargin + mBackgroundPadding.left + mCornerRadius,
+                      mMargin + mBackgroundPadding.top  + mCornerRadius,
+                      getWidth()  - mMargin - mBackgroundPadding.right  - mCornerRadius,
+                      getHeight() - mMargin - mBackgroundPadding.bottom - mCornerRadius);
+
+        return (outBounds.right > outBounds.left) && (outBounds.bottom > outBounds.top);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        mBackground.draw(canvas);
+
+        if (null == mLabelLayout) {
+            return;
+        }
+
+        // 数字居中
+        int saveCount = canvas.save();
+        canvas.translate((getWidth()  - mLabelLayout.getWidth())  / 2,
+                         (getHeight() - mLabelLayout.getHeight()) / 2);
+        mLabelLayout.draw(canvas);
+        canvas.restoreToCount(saveCount);
+    }
+}
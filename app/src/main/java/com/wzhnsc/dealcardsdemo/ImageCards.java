@@ -0,0 +1,191 @@
+package com.wzhnsc.dealcardsdemo;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.support.v4.content.ContextCompat;
+import android.util.AttributeSet;
+
+// 显示图片的卡片
+// 图片由 CardsImageLoader 在后台线程按卡片尺寸解码，还没解码好时只画背景；
+// 卡片绑定新图片时释放旧图片，旧图片的内存才能被缓存复用。
+public class ImageCards extends CardsBase implements CardsImageLoader.Target {
+    private final Drawable mBackground;
+
+    // 背景距卡片边缘的距离
+    private final int mMargin;
+
+    // 背景 9-patch 的阴影宽度
+    private final Rect mBackgroundPadding = new Rect();
+
+    // 背景圆角的半径
+    private final int mCornerRadius;
+
+    private final Paint mBitmapPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    // 图片居中裁剪后取的部分和画到的位置
+    private final Rect mSrcRect = new Rect();
+    private final Rect mDstRect = new Rect();
+
+    private CardsImageLoader mLoader;
+
+    // 当前绑定的图片
+    private String mImageKey;
+
+    private Bitmap mBitmap;
+
+    public ImageCards(Context context) {
+        this(context, null);
+    }
+
+    public ImageCards(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public ImageCards(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+
+        setWillNotDraw(false);
+
+        mBackground   = ContextCompat.getDrawable(context, R.drawable.shape_cards_bg);
+        mMargin       = getResources().getDimensionPixelSize(R.dimen.cards_margin);
+        mCornerRadius = getResources().getDimensionPixelSize(R.dimen.cards_corner_radius);
+
+        mBackground.getPadding(mBackgroundPadding);
+    }
+
+    // 绑定 key 对应的图片（复用卡片时重新绑定数据用），在主线程调用
+    public void setImage(CardsImageLoader loader, String key) {
+        if ((loader == mLoader) && (null != key) && key.equals(mImageKey)) {
+            return;
+        }
+
+        releaseImage();
+
+        mLoader   = loader;
+        mImageKey = key;
+
+        if ((null == loader) || (null == key)) {
+            return;
+        }
+
+        // 还没测量时按布局参数中的尺寸解码
+        int width  = getWidth();
+        int height = getHeight();
+
+        if (((width <= 0) || (height <= 0)) && (null != getLayoutParams())) {
+            width  = getLayoutParams().width;
+            height = getLayoutParams().height;
+        }
+
+        if ((width > 0) && (height > 0)) {
+            loader.setTargetSize(width, height);
+        }
+
+        setBitmap(loader.load(key, this));
+    }
+
+    public String getImageKey() {
+        return mImageKey;
+    }
+
+    public Bitmap getBitmap() {
+        return mBitmap;
+    }
+
+    // 释放当前图片，卡片不再使用时调用
+    public void releaseImage() {
+        if ((null != mLoader) && (null != mImageKey)) {
+            mLoader.release(mImageKey, this);
+        }
+
+        mLoader   = null;
+        mImageKey = null;
+        setBitmap(null);
+    }
+
+    @Override
+    public void onImageLoaded(String key, Bitmap bitmap) {
+        if (key.equals(mImageKey)) {
+            setBitmap(bitmap);
+        }
+    }
+
+    private void setBitmap(Bitmap bitmap) {
+        if (bitmap != mBitmap) {
+            mBitmap = bitmap;
+
+            updateBitmapRects();
+            invalidate();
+        }
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+
+        mBackground.setBounds(mMargin, mMargin, w - mMargin, h - mMargin);
+
+        updateBitmapRects();
+
+        // 之后的解码按实际尺寸
+        if ((null != mLoader) && (w > 0) && (h > 0)) {
+            mLoader.setTargetSize(w, h);
+        }
+    }
+
+    @Override
+    public boolean getOpaqueBounds(Rect outBounds) {
+        // 去掉背景的外边距、阴影和圆角
+        outBounds.set(mMargin + mBackgroundPadding.left + mCornerRadius,
+                      mMargin + mBackgroundPadding.top  + mCornerRadius,
+                      getWidth()  - mMargin - mBackgroundPadding.right  - mCornerRadius,
+                      getHeight() - mMargin - mBackgroundPadding.bottom - mCornerRadius);
+
+        return (outBounds.right > outBounds.left) && (outBounds.bottom > outBounds.top);
+    }
+
+    // 图片按比例缩放到填满背景内部，多出的部分居中裁掉
+    private void updateBitmapRects() {
+        mDstRect.set(mMargin + mBackgroundPadding.left,
+                     mMargin + mBackgroundPadding.top,
+                     getWidth()  - mMargin - mBackgroundPadding.right,
+                     getHeight() - mMargin - mBackgroundPadding.bottom);
+
+        if ((null == mBitmap) || mDstRect.isEmpty()) {
+            return;
+        }
+
+        int bitmapWidth  = mBitmap.getWidth();
+        int bitmapHeight = mBitmap.getHeight();
+
+        int dstWidth  = mDstRect.width();
+        int dstHeight = mDstRect.height();
+
+        // 比较 bitmapWidth / bitmapHeight 与 dstWidth / dstHeight
+        if ((long)bitmapWidth * dstHeight > (long)dstWidth * bitmapHeight) {
+            int srcWidth = (int)((long)bitmapHeight * dstWidth / dstHeight);
+            int srcLeft  = (bitmapWidth - srcWidth) / 2;
+
+            mSrcRect.set(srcLeft, 0, srcLeft + srcWidth, bitmapHeight);
+        }
+        else {
+            int srcHeight = (int)((long)bitmapWidth * dstHeight / dstWidth);
+            int srcTop    = (bitmapHeight - srcHeight) / 2;
+
+            mSrcRect.set(0, srcTop, bitmapWidth, srcTop + srcHeight);
+        }
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        mBackground.draw(canvas);
+
+        if ((null != mBitmap) && !mDstRect.isEmpty()) {
+            canvas.drawBitmap(mBitmap, mSrcRect, mDstRect, mBitmapPaint);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.wzhnsc.dealcardsdemo;
+
+// 显示图片的卡片数据源
+// 绑定时卡片向 CardsImageLoader 要图片，缓存中没有就先显示背景，解码完成后再显示；
+// 窗口移动时预取接下来几张的图片(需要 CardsContainer.setPrefetchCount )。
+// 子类只需提供每张卡片的图片 key 和创建 ImageCards 。
+public abstract class ImageCardsAdapter extends CardsAdapter {
+    private final CardsImageLoader mLoader;
+
+    // 预取的图片 key ，复用
+    private String[] mPrefetchKeys = new String[0];
+
+    public ImageCardsAdapter(CardsImageLoader loader) {
+        mLoader = loader;
+    }
+
+    public CardsImageLoader getImageLoader() {
+        return mLoader;
+    }
+
+    // position 处卡片的图片 key ，交给 CardsImageLoader.Source 打开
+    public abstract String getImageKey(int position);
+
+    @Override
+    public void onBindCard(CardsBase card, int position) {
+        ((ImageCards)card).setImage(mLoader, getImageKey(position));
+    }
+
+    // 解除 pin ，图片淘汰后内存才能被复用，等待中的解码请求也不再引用这张卡片
+    @Override
+    public void onUnbindCard(CardsBase card) {
+        ((ImageCards)card).releaseImage();
+    }
+
+    @Override
+    public void onPrefetchCards(int[] positions, int count) {
+        if (mPrefetchKeys.length < count) {
+            mPrefetchKeys = new String[count];
+        }
+
+        for (int i = 0; i < count; i++) {
+            mPrefetchKeys[i] = getImageKey(positions[i]);
+        }
+
+        mLoader.prefetch(mPrefetchKeys, count);
+    }
+}
@@ -1,14 +1,85 @@
 package com.wzhnsc.dealcardsdemo;
 
 import android.app.Activity;
+import android.content.Context;
 import android.os.Bundle;
-import android.util.Log;
+import android.view.ViewGroup;
 
 public class MainActivity extends Activity {
+    // 一副牌的张数
+    private static final int DECK_SIZE = 52;
+
+    // 同时存在的卡片视图层数
+    private static final int WINDOW_SIZE = 4;
+
+    private CardsPrefetcher mPrefetcher;
+
+    private CardsContainer mContainer;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+
+        final int cardsSize = getResources().getDimensionPixelSize(R.dimen.cards_size);
+
+        // 加载布局的同时，后台线程先把最先显示的几张卡片创建好
+        mPrefetcher = new CardsPrefetcher(this, WINDOW_SIZE, WINDOW_SIZE, new CardsPrefetcher.Factory() {
+            @Override
+            public CardsBase createCard(Context context) {
+                FlatCards card = new FlatCards(context);
+                card.setLayoutParams(new ViewGroup.LayoutParams(cardsSize, cardsSize));
+
+                return card;
+            }
+        });
+
         setContentView(R.layout.activity_main);
+
+        mContainer = (CardsContainer)findViewById(R.id.cc_container);
+
+        mContainer.setWindowSize(WINDOW_SIZE);
+
+        // 布局里已没有卡片，加载布局很快，后台线程多半还没创建好；
+        // 等第一屏的卡片创建好再设置数据源，否则还是在主线程当场创建
+        mPrefetcher.whenReady(WINDOW_SIZE, new Runnable() {
+            @Override
+            public void run() {
+                bindCards();
+            }
+        });
+    }
+
+    private void bindCards() {
+        mContainer.setAdapter(new CardsAdapter() {
+            @Override
+            public int getCount() {
+                return DECK_SIZE;
+            }
+
+            @Override
+            public CardsBase onCreateCard(CardsContainer parent) {
+                return mPrefetcher.obtain();
+            }
+
+            @Override
+            public void onBindCard(CardsBase card, int position) {
+                ((FlatCards)card).setNumber(position + 1);
+            }
+        });
+    }
+
+    // 返回键先撤销最近飞出的卡片，没有可撤销的才退出
+    @Override
+    public void onBackPressed() {
+        if (!mContainer.rewind()) {
+            super.onBackPressed();
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        mPrefetcher.shutdown();
+
+        super.onDestroy();
     }
 }
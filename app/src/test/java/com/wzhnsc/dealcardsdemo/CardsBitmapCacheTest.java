@@ -0,0 +1,109 @@
+package com.wzhnsc.dealcardsdemo;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * 缓存与复用池合计不超过字节上限，淘汰的图片内存被下次解码复用，显示中的图片不被复用。
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class CardsBitmapCacheTest {
+    private static final int SIZE = 100;
+
+    // 每张 100x100 ARGB_8888 占 40000 字节，上限放得下两张半
+    private static final int MAX_BYTES = 100000;
+
+    @Test
+    public void staysWithinBudget() throws Exception {
+        CardsBitmapCache cache = new CardsBitmapCache(MAX_BYTES);
+
+        for (int i = 0; i < 1000; i++) {
+            Bitmap reusable = cache.takeReusable(decodeOptions());
+
+            cache.put(String.valueOf(i), (null != reusable) ? reusable : newBitmap());
+
+            assertTrue(cache.getByteCount() <= MAX_BYTES);
+        }
+    }
+
+    @Test
+    public void takeReusable_evictsLeastRecentlyUsed() throws Exception {
+        CardsBitmapCache cache = new CardsBitmapCache(MAX_BYTES);
+
+        Bitmap a = newBitmap();
+        Bitmap b = newBitmap();
+
+        cache.put("a", a);
+        cache.put("b", b);
+
+        // 再解码一张放不下，最久没用的 a 淘汰后复用
+        assertSame(a, cache.takeReusable(decodeOptions()));
+        assertNull(cache.get("a"));
+        assertSame(b, cache.get("b"));
+    }
+
+    @Test
+    public void pinnedBitmap_isReusedOnlyAfterUnpin() throws Exception {
+        CardsBitmapCache cache = new CardsBitmapCache(MAX_BYTES);
+
+        Bitmap a = newBitmap();
+
+        cache.put("a", a);
+        cache.pin("a");
+        cache.put("b", newBitmap());
+
+        // a 还在显示，淘汰了也不能复用
+        assertNull(cache.takeReusable(decodeOptions()));
+
+        cache.unpin("a");
+
+        assertSame(a, cache.takeReusable(decodeOptions()));
+    }
+
+    @Test
+    public void pinnedBitmap_returnsToCacheWhenRequestedAgain() throws Exception {
+        CardsBitmapCache cache = new CardsBitmapCache(MAX_BYTES);
+
+        Bitmap a = newBitmap();
+
+        cache.put("a", a);
+        cache.pin("a");
+        cache.put("b", newBitmap());
+        cache.put("c", newBitmap());
+
+        assertSame(a, cache.get("a"));
+    }
+
+    @Test
+    public void smallerBitmap_isNotReusedForLargerDecode() throws Exception {
+        CardsBitmapCache cache = new CardsBitmapCache(MAX_BYTES);
+
+        cache.returnReusable(Bitmap.createBitmap(SIZE / 2, SIZE / 2, Bitmap.Config.ARGB_8888));
+
+        assertNull(cache.takeReusable(decodeOptions()));
+        assertEquals(1, cache.getReusableCount());
+    }
+
+    private static Bitmap newBitmap() {
+        return Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+    }
+
+    // 400x400 的原图采样 4 解码为 100x100
+    private static BitmapFactory.Options decodeOptions() {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.outWidth          = SIZE * 4;
+        options.outHeight         = SIZE * 4;
+        options.inSampleSize      = 4;
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+
+        return options;
+    }
+}
@@ -0,0 +1,85 @@
+package com.wzhnsc.dealcardsdemo;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class CardsCommandQueueTest {
+    @Test
+    public void singleThread_isFifo() throws Exception {
+        CardsCommandQueue<Integer> queue = new CardsCommandQueue<>();
+
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+
+        for (int i = 0; i < 10; i++) {
+            queue.offer(i);
+        }
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, (int)queue.poll());
+        }
+
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void manyProducers_deliverEverythingInPerProducerOrder() throws Exception {
+        final int producers = 4;
+        final int perProducer = 50000;
+
+        final CardsCommandQueue<int[]> queue = new CardsCommandQueue<>();
+        final CountDownLatch start = new CountDownLatch(1);
+
+        Thread[] threads = new Thread[producers];
+
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+
+            threads[p] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    }
+                    catch (InterruptedException e) {
+                        return;
+                    }
+
+                    for (int i = 0; i < perProducer; i++) {
+                        queue.offer(new int[] {producer, i});
+                    }
+                }
+            });
+            threads[p].start();
+        }
+
+        start.countDown();
+
+        // 主线程作为唯一的取出者，与放入同时进行
+        int[] nextExpected = new int[producers];
+        int received = 0;
+
+        while (received < producers * perProducer) {
+            int[] item = queue.poll();
+
+            if (null == item) {
+                Thread.yield();
+                continue;
+            }
+
+            assertEquals(nextExpected[item[0]], item[1]);
+            nextExpected[item[0]]++;
+            received++;
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertNull(queue.poll());
+    }
+}
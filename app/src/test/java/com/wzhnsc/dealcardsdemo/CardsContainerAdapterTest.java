@@ -0,0 +1,159 @@
+package com.wzhnsc.dealcardsdemo;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * 数据源模式下，整副牌再大，存在的子视图数量也只与窗口大小有关。
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class CardsContainerAdapterTest {
+    private static final int DECK_SIZE = 5000;
+
+    private CardsContainer mContainer;
+    private CountingAdapter mAdapter;
+
+    @Before
+    public void setUp() throws Exception {
+        mContainer = new CardsContainer(RuntimeEnvironment.application);
+        mAdapter   = new CountingAdapter(DECK_SIZE);
+
+        mContainer.setAdapter(mAdapter);
+        layoutContainer();
+    }
+
+    @Test
+    public void window_isBoundedByWindowSize() throws Exception {
+        assertEquals(mContainer.getWindowSize(), mContainer.getChildCount());
+        assertEquals(mContainer.getWindowSize(), mAdapter.created);
+    }
+
+    @Test
+    public void dismissingWholeDeck_recyclesViewsInsteadOfCreating() throws Exception {
+        for (int i = 0; i < DECK_SIZE; i++) {
+            dismissTopChild();
+
+            assertTrue(mContainer.getChildCount() <= mContainer.getWindowSize());
+        }
+
+        // 只有最初填满窗口时创建过子视图
+        assertEquals(mContainer.getWindowSize(), mAdapter.created);
+        assertEquals(0, mContainer.getTopPosition());
+    }
+
+    @Test
+    public void dismissing_bindsNextPositionToBottom() throws Exception {
+        dismissTopChild();
+
+        assertEquals(1, mContainer.getTopPosition());
+        assertEquals(mContainer.getWindowSize(), mAdapter.lastBoundPosition);
+    }
+
+    @Test
+    public void dismissing_drawsNewTopChildLast() throws Exception {
+        CardsBase oldTop = mContainer.getTopChild();
+
+        dismissTopChild();
+
+        int childCount = mContainer.getChildCount();
+        CardsBase newTop = mContainer.getTopChild();
+
+        assertNotSame(oldTop, newTop);
+        // 子视图本身没有调整顺次，只是绘制顺序变了
+        assertSame(newTop, mContainer.getChildAt(mContainer.getChildDrawingOrder(childCount, childCount - 1)));
+        assertSame(oldTop, mContainer.getChildAt(mContainer.getChildDrawingOrder(childCount, 0)));
+    }
+
+    @Test
+    public void smallDeck_rotatesWithoutRebinding() throws Exception {
+        mAdapter = new CountingAdapter(2);
+        mContainer.setAdapter(mAdapter);
+        layoutContainer();
+
+        int bound = mAdapter.bound;
+
+        dismissTopChild();
+
+        assertEquals(2, mContainer.getChildCount());
+        assertEquals(bound, mAdapter.bound);
+        assertEquals(1, mContainer.getTopPosition());
+    }
+
+    @Test
+    public void dismissing_prefetchesCardsBeyondWindow() throws Exception {
+        mContainer.setPrefetchCount(3);
+
+        int windowSize = mContainer.getWindowSize();
+
+        assertArrayEquals(new int[] {windowSize, windowSize + 1, windowSize + 2}, mAdapter.prefetched);
+
+        dismissTopChild();
+
+        assertArrayEquals(new int[] {windowSize + 1, windowSize + 2, windowSize + 3}, mAdapter.prefetched);
+    }
+
+    private void layoutContainer() {
+        mContainer.measure(View.MeasureSpec.makeMeasureSpec(1080, View.MeasureSpec.EXACTLY),
+                           View.MeasureSpec.makeMeasureSpec(1920, View.MeasureSpec.EXACTLY));
+        mContainer.layout(0, 0, 1080, 1920);
+    }
+
+    // 模拟最顶层子视图飞出后动画结束
+    private void dismissTopChild() {
+        mContainer.getTopChild().offsetLeftAndRight(mContainer.getWidth());
+        mContainer.dismissTopChild();
+    }
+
+    private static class CountingAdapter extends CardsAdapter {
+        private final int mCount;
+
+        int created;
+        int bound;
+        int lastBoundPosition = -1;
+        int[] prefetched;
+
+        CountingAdapter(int count) {
+            mCount = count;
+        }
+
+        @Override
+        public int getCount() {
+            return mCount;
+        }
+
+        @Override
+        public CardsBase onCreateCard(CardsContainer parent) {
+            created++;
+
+            Cards card = new Cards(parent.getContext());
+            card.setLayoutParams(new ViewGroup.LayoutParams(300, 300));
+
+            return card;
+        }
+
+        @Override
+        public void onBindCard(CardsBase card, int position) {
+            bound++;
+            lastBoundPosition = position;
+
+            ((Cards)card).setNumber(position + 1);
+        }
+
+        @Override
+        public void onPrefetchCards(int[] positions, int count) {
+            prefetched = Arrays.copyOf(positions, count);
+        }
+    }
+}
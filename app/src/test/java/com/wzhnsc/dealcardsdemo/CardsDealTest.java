@@ -0,0 +1,151 @@
+package com.wzhnsc.dealcardsdemo;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 连续发牌时多张牌同时在飞，总时长不是每张牌时长的累加。
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class CardsDealTest {
+    private static final int DECK_SIZE = 52;
+    private static final long FRAME_NANOS = 16666667L;
+    private static final int STAGGER_MILLIS = 20;
+
+    private CardsContainer mContainer;
+
+    private final List<Integer> mDealt = new ArrayList<>();
+    private int mFinished;
+
+    private final CardsContainer.OnDealListener mListener = new CardsContainer.OnDealListener() {
+        @Override
+        public void onCardDealt(int position) {
+            mDealt.add(position);
+        }
+
+        @Override
+        public void onDealFinished() {
+            mFinished++;
+        }
+    };
+
+    private long mNow = 0;
+
+    @Before
+    public void setUp() throws Exception {
+        mContainer = new CardsContainer(RuntimeEnvironment.application);
+        mContainer.setAdapter(new CardsAdapter() {
+            @Override
+            public int getCount() {
+                return DECK_SIZE;
+            }
+
+            @Override
+            public CardsBase onCreateCard(CardsContainer parent) {
+                Cards card = new Cards(parent.getContext());
+                card.setLayoutParams(new ViewGroup.LayoutParams(300, 300));
+
+                return card;
+            }
+
+            @Override
+            public void onBindCard(CardsBase card, int position) {
+                ((Cards)card).setNumber(position + 1);
+            }
+        });
+
+        mContainer.measure(View.MeasureSpec.makeMeasureSpec(1080, View.MeasureSpec.EXACTLY),
+                           View.MeasureSpec.makeMeasureSpec(1920, View.MeasureSpec.EXACTLY));
+        mContainer.layout(0, 0, 1080, 1920);
+    }
+
+    @Test
+    public void dealingWholeDeck_overlapsFlights() throws Exception {
+        mContainer.deal(DECK_SIZE, CardsContainer.VanishTopChildMode.VANISHING_TYPE_TO_RIGHT, STAGGER_MILLIS, mListener);
+
+        int frames = runUntil(1);
+
+        // 按顺序全部到达，回到第一张
+        assertEquals(DECK_SIZE, mDealt.size());
+
+        for (int i = 0; i < DECK_SIZE; i++) {
+            assertEquals(i, (int)mDealt.get(i));
+        }
+
+        assertEquals(0, mContainer.getTopPosition());
+
+        // 窗口内的牌同时飞，每一轮飞窗口那么多张：轮数 x 一次飞行(到达那帧再多一帧)，
+        // 加上一轮内各张错开的时间和少量余量；只有两张同时飞时要多出一倍
+        int inFlight      = mContainer.getWindowSize();
+        int flightFrames  = (int)Math.ceil(mContainer.getDismissPolicy().getMaxFlyOutMillis() * 1000000.0 / FRAME_NANOS);
+        int staggerFrames = (int)Math.ceil(STAGGER_MILLIS * 1000000.0 / FRAME_NANOS);
+        int rounds        = (DECK_SIZE + inFlight - 1) / inFlight;
+
+        int bound = rounds * (flightFrames + 1) + inFlight * staggerFrames + 5;
+
+        assertTrue("took " + frames + " frames, bound " + bound, frames <= bound);
+    }
+
+    @Test
+    public void moreThanOneCard_isInFlightAtOnce() throws Exception {
+        mContainer.deal(3, CardsContainer.VanishTopChildMode.VANISHING_TYPE_TO_LEFT, 0, mListener);
+
+        frame();
+
+        assertEquals(3, mContainer.getMotionEngine().getActiveCount());
+    }
+
+    @Test
+    public void rapidVanishCalls_areQueuedNotLost() throws Exception {
+        mContainer.vanishTopChild(CardsContainer.VanishTopChildMode.VANISHING_TYPE_TO_LEFT);
+        mContainer.vanishTopChild(CardsContainer.VanishTopChildMode.VANISHING_TYPE_TO_RIGHT);
+        mContainer.deal(1, CardsContainer.VanishTopChildMode.VANISHING_TYPE_TO_RIGHT, 0, mListener);
+
+        runUntil(1);
+
+        assertEquals(3, mContainer.getTopPosition());
+        assertEquals(1, mDealt.size());
+        assertEquals(2, (int)mDealt.get(0));
+    }
+
+    @Test
+    public void dealingFromEmptyDeck_finishesImmediately() throws Exception {
+        mContainer.setAdapter(null);
+
+        mContainer.deal(5, CardsContainer.VanishTopChildMode.VANISHING_TYPE_TO_LEFT, 0, mListener);
+
+        assertEquals(1, mFinished);
+        assertTrue(mDealt.isEmpty());
+    }
+
+    private void frame() {
+        mContainer.doMotionFrame(mNow);
+        mNow += FRAME_NANOS;
+    }
+
+    private int runUntil(int finished) {
+        int frames = 0;
+
+        while (mFinished < finished) {
+            frame();
+            frames++;
+
+            assertTrue("deal never finished", frames < 10000);
+        }
+
+        return frames;
+    }
+}
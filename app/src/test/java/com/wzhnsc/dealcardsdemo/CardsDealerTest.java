@@ -0,0 +1,257 @@
+package com.wzhnsc.dealcardsdemo;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 一副牌轮流发给四家：卡片视图从源容器移到各家的容器，不重新创建，飞行中的牌由一个引擎一起推进。
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class CardsDealerTest {
+    private static final int DECK_SIZE = 52;
+    private static final int PLAYERS = 4;
+    private static final int CARD_SIZE = 200;
+    private static final int PILE_SIZE = 500;
+
+    private static final long FRAME_NANOS = 16666667L;
+
+    private FrameLayout mRoot;
+    private CardsContainer mSource;
+    private CardsContainer[] mPiles = new CardsContainer[PLAYERS];
+    private CardsDealer mDealer;
+
+    // 发牌前源牌堆自顶至底的卡片
+    private final List<CardsBase> mCards = new ArrayList<>();
+
+    private final List<Integer> mDealtPiles = new ArrayList<>();
+    private int mFinished;
+
+    private final CardsDealer.OnDealListener mListener = new CardsDealer.OnDealListener() {
+        @Override
+        public void onCardDealt(CardsBase card, int pile) {
+            mDealtPiles.add(pile);
+        }
+
+        @Override
+        public void onDealFinished() {
+            mFinished++;
+        }
+    };
+
+    private long mNow = 0;
+
+    @Before
+    public void setUp() throws Exception {
+        mRoot   = new FrameLayout(RuntimeEnvironment.application);
+        mSource = new CardsContainer(RuntimeEnvironment.application);
+
+        for (int i = 0; i < DECK_SIZE; i++) {
+            FlatCards card = new FlatCards(RuntimeEnvironment.application);
+            card.setNumber(i + 1);
+
+            mSource.addView(card, new FrameLayout.LayoutParams(CARD_SIZE, CARD_SIZE));
+        }
+
+        // 与布局文件加载完成时一样形成牌堆
+        mSource.onFinishInflate();
+
+        addToRoot(mSource, 290, 1300);
+
+        for (int i = 0; i < PLAYERS; i++) {
+            mPiles[i] = new CardsContainer(RuntimeEnvironment.application);
+
+            addToRoot(mPiles[i], (i % 2) * 540, (i / 2) * 600);
+        }
+
+        layoutRoot();
+
+        for (int i = 0; i < DECK_SIZE; i++) {
+            mCards.add(mSource.getChildAtDepth(i));
+        }
+
+        mDealer = new CardsDealer(mSource, mPiles);
+    }
+
+    @Test
+    public void fourPlayerDeal_movesViewsWithoutRecreating() throws Exception {
+        // 每帧发出一张
+        mDealer.deal(DECK_SIZE, 16, mListener);
+
+        int frames = runUntilFinished();
+
+        assertNull(mSource.getTopChild());
+        assertEquals(0, mSource.getChildCount());
+
+        for (int p = 0; p < PLAYERS; p++) {
+            CardsContainer pile = mPiles[p];
+
+            assertEquals(DECK_SIZE / PLAYERS, pile.getChildCount());
+
+            // 轮流发，后发的在上面
+            for (int depth = 0; depth < DECK_SIZE / PLAYERS; depth++) {
+                int dealt = DECK_SIZE - PLAYERS + p - depth * PLAYERS;
+
+                assertSame(mCards.get(dealt), pile.getChildAtDepth(depth));
+            }
+
+            assertEquals(0, pile.getTopChild().getTranslationX(), 0);
+        }
+
+        for (int i = 0; i < DECK_SIZE; i++) {
+            assertEquals(i % PLAYERS, (int)mDealtPiles.get(i));
+        }
+
+        // 一张接一张地飞要 52 倍的飞行时长，同时飞时只比发牌的帧数多一次飞行
+        int flightFrames = (int)(mDealer.getFlightMillis() * 1000000L / FRAME_NANOS);
+        assertTrue("took " + frames + " frames", frames <= DECK_SIZE + flightFrames + 5);
+    }
+
+    @Test
+    public void landing_clearsRewindHistoryOfThePile() throws Exception {
+        mDealer.deal(PLAYERS * 2, 0, mListener);
+        runUntilFinished();
+
+        CardsContainer pile = mPiles[0];
+
+        // 飞出一张后可以撤销
+        pile.getTopChild().offsetLeftAndRight(pile.getWidth());
+        pile.dismissTopChild();
+
+        assertEquals(1, pile.getRewindCount());
+
+        mFinished = 0;
+        mDealer.deal(PLAYERS, 0, mListener);
+        runUntilFinished();
+
+        // 新发来的牌压在上面，之前的记录对不上了
+        assertEquals(0, pile.getRewindCount());
+    }
+
+    @Test
+    public void flight_startsWhereTheCardWasInTheSource() throws Exception {
+        CardsBase top = mSource.getTopChild();
+
+        float fromX = mSource.getLeft() + top.getLeft();
+        float fromY = mSource.getTop()  + top.getTop();
+
+        mDealer.deal(1, 0, mListener);
+        frame();
+
+        assertSame(mPiles[0], top.getParent());
+        assertEquals(fromX, mPiles[0].getLeft() + top.getLeft() + top.getTranslationX(), 0.5f);
+        assertEquals(fromY, mPiles[0].getTop()  + top.getTop()  + top.getTranslationY(), 0.5f);
+
+        // 还没落下，不在牌堆中
+        assertNull(mPiles[0].getTopChild());
+
+        runUntilFinished();
+
+        assertSame(top, mPiles[0].getTopChild());
+    }
+
+    @Test
+    public void cardsInFlight_shareOneEngine() throws Exception {
+        mDealer.deal(8, 0, mListener);
+        frame();
+
+        assertEquals(8, mDealer.getInFlightCount());
+        assertEquals(8, mDealer.getMotionEngine().getActiveCount());
+
+        for (CardsContainer pile : mPiles) {
+            assertEquals(0, pile.getMotionEngine().getActiveCount());
+            assertEquals(2, pile.getChildCount());
+        }
+
+        runUntilFinished();
+
+        assertEquals(0, mDealer.getInFlightCount());
+        assertEquals(DECK_SIZE - 8, mSource.getChildCount());
+    }
+
+    @Test
+    public void dealingMoreThanTheSourceHas_finishesEarly() throws Exception {
+        mDealer.deal(DECK_SIZE + 10, 0, mListener);
+
+        runUntilFinished();
+
+        assertEquals(DECK_SIZE, mDealtPiles.size());
+    }
+
+    @Test
+    public void pileWithIncomingCards_stillSkipsHiddenLayers() throws Exception {
+        CardsContainer pile = mPiles[0];
+        pile.setMaxVisibleDepth(1);
+        pile.setOcclusionClipEnabled(false);
+
+        // 每家三张
+        mDealer.deal(3 * PLAYERS, 0, mListener);
+        runUntilFinished();
+
+        // 再发一张，还在飞
+        mDealer.deal(1, 0, mListener);
+        frame();
+
+        assertEquals(4, pile.getChildCount());
+        assertEquals(1, mDealer.getInFlightCount());
+
+        CardsTraceRecorder recorder = new CardsTraceRecorder(16);
+        pile.setTracer(recorder);
+        pile.draw(new Canvas(Bitmap.createBitmap(PILE_SIZE, PILE_SIZE, Bitmap.Config.ARGB_8888)));
+
+        // 可见的两层加上飞来的一张，第三层不画
+        assertEquals(3, recorder.getCounter(CardsTracer.COUNTER_CARDS_DRAWN));
+        assertEquals(1, recorder.getCounter(CardsTracer.COUNTER_CARDS_SKIPPED));
+    }
+
+    private void addToRoot(View view, int left, int top) {
+        FrameLayout.LayoutParams lp = new FrameLayout.LayoutParams(PILE_SIZE, PILE_SIZE);
+        lp.leftMargin = left;
+        lp.topMargin  = top;
+
+        mRoot.addView(view, lp);
+    }
+
+    private void layoutRoot() {
+        mRoot.measure(View.MeasureSpec.makeMeasureSpec(1080, View.MeasureSpec.EXACTLY),
+                      View.MeasureSpec.makeMeasureSpec(1920, View.MeasureSpec.EXACTLY));
+        mRoot.layout(0, 0, 1080, 1920);
+    }
+
+    // 与真机上一样，先处理帧回调再布局
+    private void frame() {
+        mDealer.doFrame(mNow);
+        mNow += FRAME_NANOS;
+
+        if (mRoot.isLayoutRequested()) {
+            layoutRoot();
+        }
+    }
+
+    private int runUntilFinished() {
+        int frames = 0;
+
+        while (mFinished == 0) {
+            frame();
+            frames++;
+
+            assertTrue("deal never finished", frames < 10000);
+        }
+
+        return frames;
+    }
+}
@@ -0,0 +1,338 @@
+package com.wzhnsc.dealcardsdemo;
+
+import android.support.v4.view.ViewCompat;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 其他线程提交的增删、调整在主线程一次处理，最顶层的卡片保持不变，只重新绑定变了的子视图。
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class CardsDeckCommandTest {
+    private static final long FRAME_NANOS = 16666667L;
+
+    private CardsContainer mContainer;
+    private ListAdapter mAdapter;
+
+    @Before
+    public void setUp() throws Exception {
+        mContainer = new CardsContainer(RuntimeEnvironment.application);
+        mAdapter   = new ListAdapter(20);
+
+        mContainer.setAdapter(mAdapter);
+        mContainer.measure(View.MeasureSpec.makeMeasureSpec(1080, View.MeasureSpec.EXACTLY),
+                           View.MeasureSpec.makeMeasureSpec(1920, View.MeasureSpec.EXACTLY));
+        mContainer.layout(0, 0, 1080, 1920);
+    }
+
+    @Test
+    public void commandsFromWorkerThreads_areAppliedOnDrain() throws Exception {
+        Thread[] producers = new Thread[4];
+
+        for (int p = 0; p < producers.length; p++) {
+            final int producer = p;
+
+            producers[p] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 25; i++) {
+                        mContainer.postInsertCard(mAdapter.initialCount, 1000 * (producer + 1) + i);
+                    }
+                }
+            });
+            producers[p].start();
+        }
+
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        // 数据只在主线程修改
+        assertEquals(20, mAdapter.getCount());
+
+        mContainer.drainDeckCommands();
+
+        assertEquals(120, mAdapter.getCount());
+        assertEquals(0, mContainer.getTopPosition());
+    }
+
+    @Test
+    public void insertAboveTop_keepsTopCardAndOnlyRebindsChangedViews() throws Exception {
+        dismissTopChild();
+        dismissTopChild();
+
+        // 最顶层是第 2 张
+        assertEquals(2, mContainer.getTopPosition());
+        int bound = mAdapter.bound;
+
+        mContainer.postInsertCard(0, -1);
+        mContainer.drainDeckCommands();
+
+        // 同一张卡片，位置后移一位
+        assertEquals(3, mContainer.getTopPosition());
+        assertEquals(2, (int)mAdapter.items.get(mContainer.getTopPosition()));
+
+        // 窗口内的子视图还是绑定同样的数据，只是位置变了，全部重新绑定
+        assertEquals(bound + mContainer.getWindowSize(), mAdapter.bound);
+        assertEquals(mContainer.getWindowSize(), mAdapter.created);
+    }
+
+    @Test
+    public void insertBelowWindow_rebindsNothing() throws Exception {
+        int bound = mAdapter.bound;
+
+        mContainer.postInsertCard(15, -1);
+        mContainer.drainDeckCommands();
+
+        assertEquals(bound, mAdapter.bound);
+        assertEquals(0, mContainer.getTopPosition());
+    }
+
+    @Test
+    public void removingTop_showsNextCard() throws Exception {
+        mContainer.postRemoveCard(0);
+        mContainer.drainDeckCommands();
+
+        assertEquals(0, mContainer.getTopPosition());
+        assertEquals(1, (int)mAdapter.items.get(mContainer.getTopPosition()));
+        assertEquals(mContainer.getTopChild().mPosition, mContainer.getTopPosition());
+    }
+
+    @Test
+    public void movingTop_followsTheCard() throws Exception {
+        mContainer.postMoveCard(0, 10);
+        mContainer.postMoveCard(12, 3);
+        mContainer.drainDeckCommands();
+
+        assertEquals(11, mContainer.getTopPosition());
+        assertEquals(0, (int)mAdapter.items.get(mContainer.getTopPosition()));
+    }
+
+    @Test
+    public void shrinkingBelowWindow_rebuildsLayers() throws Exception {
+        for (int i = 0; i < 18; i++) {
+            mContainer.postRemoveCard(0);
+        }
+
+        mContainer.drainDeckCommands();
+
+        assertEquals(2, mContainer.getChildCount());
+        assertEquals(0, mContainer.getTopPosition());
+    }
+
+    @Test
+    public void postFromWorkerBeforeAttach_isDrainedOnMainLooper() throws Exception {
+        // 还没有显示在窗口中
+        assertFalse(ViewCompat.isAttachedToWindow(mContainer));
+
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                mContainer.postInsertCard(0, -1);
+            }
+        });
+        producer.start();
+        producer.join();
+
+        ShadowLooper.runUiThreadTasks();
+
+        assertEquals(21, mAdapter.getCount());
+
+        // 标记已清除，之后提交的变更也能处理
+        mContainer.postRemoveCard(0);
+        ShadowLooper.runUiThreadTasks();
+
+        assertEquals(20, mAdapter.getCount());
+    }
+
+    @Test
+    public void outOfRangePosition_isSkippedAndReported() throws Exception {
+        mContainer.postRemoveCard(20);
+        mContainer.postRemoveCard(0);
+        mContainer.postMoveCard(3, 18);
+        mContainer.postInsertCard(30, -1);
+        mContainer.drainDeckCommands();
+
+        // 同一批中位置正确的变更照常处理，牌堆与数据一致
+        assertEquals(19, mAdapter.getCount());
+        assertEquals(Arrays.asList(20, 30), mAdapter.rejected);
+        assertEquals(1, (int)mAdapter.items.get(mContainer.getTopPosition()));
+        assertEquals(mContainer.getTopPosition(), mContainer.getTopChild().mPosition);
+    }
+
+    @Test
+    public void changeDuringDeal_cancelsCardsInFlight() throws Exception {
+        final List<Integer> dealt = new ArrayList<>();
+
+        mContainer.deal(3, CardsContainer.VanishTopChildMode.VANISHING_TYPE_TO_LEFT, 0, new CardsContainer.OnDealListener() {
+            @Override
+            public void onCardDealt(int position) {
+                dealt.add(position);
+            }
+
+            @Override
+            public void onDealFinished() {
+            }
+        });
+
+        long now = 0;
+
+        for (int i = 0; i < 3; i++) {
+            now += FRAME_NANOS;
+            mContainer.doMotionFrame(now);
+        }
+
+        CardsBase top = mContainer.getTopChild();
+        assertTrue(top.mFlyingOut);
+
+        // 层数不变，沿用现有的子视图
+        mContainer.postInsertCard(0, -1);
+        mContainer.drainDeckCommands();
+
+        assertSame(top, mContainer.getTopChild());
+        assertFalse(top.mFlyingOut);
+        assertEquals(0, mContainer.getMotionEngine().getActiveCount());
+
+        for (int i = 0; i < 100; i++) {
+            now += FRAME_NANOS;
+            mContainer.doMotionFrame(now);
+        }
+
+        // 没有按变更前的位置报告，也没有接着发
+        assertTrue(dealt.isEmpty());
+        assertEquals(1, mContainer.getTopPosition());
+    }
+
+    @Test
+    public void countMismatch_isReportedAndWindowRebuilt() throws Exception {
+        // 数据在变更之外被改了
+        mAdapter.items.add(99);
+        mAdapter.items.add(99);
+
+        mContainer.postRemoveCard(0);
+        mContainer.drainDeckCommands();
+
+        // 按变更应有 19 张，实际有 21 张
+        assertEquals(Arrays.asList(19, 21), mAdapter.mismatch);
+        assertEquals(mContainer.getTopPosition(), mContainer.getTopChild().mPosition);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void negativePosition_isRejectedByProducer() throws Exception {
+        mContainer.postRemoveCard(-1);
+    }
+
+    @Test
+    public void immutableAdapter_isRejectedByProducer() throws Exception {
+        mContainer.setAdapter(new ListAdapter(20) {
+            @Override
+            public boolean isMutable() {
+                return false;
+            }
+        });
+
+        try {
+            mContainer.postRemoveCard(0);
+            fail("expected IllegalStateException");
+        }
+        catch (IllegalStateException expected) {
+        }
+
+        // 没有提交任何变更
+        mContainer.drainDeckCommands();
+
+        assertEquals(20, mContainer.getAdapter().getCount());
+    }
+
+    // 模拟最顶层子视图飞出后动画结束
+    private void dismissTopChild() {
+        mContainer.getTopChild().offsetLeftAndRight(mContainer.getWidth());
+        mContainer.dismissTopChild();
+    }
+
+    private static class ListAdapter extends CardsAdapter {
+        final List<Integer> items = new ArrayList<>();
+        final List<Integer> rejected = new ArrayList<>();
+        final List<Integer> mismatch = new ArrayList<>();
+        final int initialCount;
+
+        int created;
+        int bound;
+
+        ListAdapter(int count) {
+            initialCount = count;
+
+            for (int i = 0; i < count; i++) {
+                items.add(i);
+            }
+        }
+
+        @Override
+        public int getCount() {
+            return items.size();
+        }
+
+        @Override
+        public CardsBase onCreateCard(CardsContainer parent) {
+            created++;
+
+            Cards card = new Cards(parent.getContext());
+            card.setLayoutParams(new ViewGroup.LayoutParams(300, 300));
+
+            return card;
+        }
+
+        @Override
+        public void onBindCard(CardsBase card, int position) {
+            bound++;
+
+            ((Cards)card).setNumber(items.get(position));
+        }
+
+        @Override
+        public boolean isMutable() {
+            return true;
+        }
+
+        @Override
+        public void onItemChangeRejected(int position, int count) {
+            rejected.add(position);
+        }
+
+        @Override
+        public void onItemCountMismatch(int expectedCount, int actualCount) {
+            mismatch.add(expectedCount);
+            mismatch.add(actualCount);
+        }
+
+        @Override
+        public void onInsertItem(int position, Object item) {
+            items.add(position, (Integer)item);
+        }
+
+        @Override
+        public void onRemoveItem(int position) {
+            items.remove(position);
+        }
+
+        @Override
+        public void onMoveItem(int fromPosition, int toPosition) {
+            items.add(toPosition, items.remove(fromPosition));
+        }
+    }
+}
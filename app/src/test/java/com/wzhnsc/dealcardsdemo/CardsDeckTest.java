@@ -0,0 +1,134 @@
+package com.wzhnsc.dealcardsdemo;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CardsDeckTest {
+    @Test
+    public void rotate_movesTopToBottom() throws Exception {
+        CardsDeck deck = new CardsDeck();
+        deck.reset(4);
+
+        deck.rotate();
+
+        assertArrayEquals(new int[] {1, 2, 3, 0}, deck.toArray());
+        assertEquals(1, deck.peek());
+        assertEquals(3, deck.depthOf(0));
+        assertEquals(0, deck.depthOf(1));
+    }
+
+    @Test
+    public void rotate_whenBufferNotFull() throws Exception {
+        CardsDeck deck = new CardsDeck(16);
+        deck.add(7);
+        deck.add(3);
+        deck.add(5);
+
+        for (int i = 0; i < 20; i++) {
+            deck.rotate();
+        }
+
+        // 转了 20 次相当于转了 2 次
+        assertArrayEquals(new int[] {5, 7, 3}, deck.toArray());
+        assertEquals(0, deck.depthOf(5));
+        assertEquals(1, deck.depthOf(7));
+        assertEquals(2, deck.depthOf(3));
+        assertEquals(-1, deck.depthOf(4));
+    }
+
+    @Test
+    public void depthOf_staysConsistentWithGetForLargeDeck() throws Exception {
+        CardsDeck deck = new CardsDeck();
+        deck.reset(10000);
+
+        for (int i = 0; i < 12345; i++) {
+            deck.rotate();
+        }
+
+        assertEquals(2345, deck.peek());
+
+        for (int depth = 0; depth < deck.size(); depth += 97) {
+            assertEquals(depth, deck.depthOf(deck.get(depth)));
+        }
+    }
+
+    @Test
+    public void add_growsAfterRotation() throws Exception {
+        CardsDeck deck = new CardsDeck(2);
+        deck.add(0);
+        deck.add(1);
+        deck.rotate();
+
+        deck.add(2);
+
+        assertArrayEquals(new int[] {1, 0, 2}, deck.toArray());
+        assertEquals(2, deck.depthOf(2));
+    }
+
+    @Test
+    public void push_addsOnTopAndGrows() throws Exception {
+        CardsDeck deck = new CardsDeck(2);
+        deck.add(0);
+        deck.add(1);
+        deck.rotate();
+
+        deck.push(2);
+        deck.push(3);
+
+        assertArrayEquals(new int[] {3, 2, 1, 0}, deck.toArray());
+        assertEquals(3, deck.peek());
+        assertEquals(1, deck.depthOf(2));
+        assertEquals(3, deck.depthOf(0));
+    }
+
+    @Test
+    public void rotateBack_undoesRotate() throws Exception {
+        CardsDeck full = new CardsDeck();
+        full.reset(4);
+
+        full.rotate();
+        full.rotate();
+        full.rotateBack();
+
+        assertArrayEquals(new int[] {1, 2, 3, 0}, full.toArray());
+        assertEquals(3, full.depthOf(0));
+
+        CardsDeck partial = new CardsDeck(16);
+        partial.add(7);
+        partial.add(3);
+        partial.add(5);
+
+        partial.rotateBack();
+
+        assertArrayEquals(new int[] {5, 7, 3}, partial.toArray());
+        assertEquals(0, partial.depthOf(5));
+        assertEquals(2, partial.depthOf(3));
+
+        partial.rotate();
+
+        assertArrayEquals(new int[] {7, 3, 5}, partial.toArray());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void add_rejectsDuplicate() throws Exception {
+        CardsDeck deck = new CardsDeck();
+        deck.add(1);
+        deck.add(1);
+    }
+
+    @Test
+    public void clear_forgetsItems() throws Exception {
+        CardsDeck deck = new CardsDeck();
+        deck.reset(3);
+        deck.rotate();
+
+        deck.clear();
+
+        assertTrue(deck.isEmpty());
+        assertFalse(deck.contains(1));
+
+        deck.add(1);
+        assertEquals(1, deck.peek());
+    }
+}
@@ -0,0 +1,90 @@
+package com.wzhnsc.dealcardsdemo;
+
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * 每层的缩放、透明度、高度按预先算好的表设置，拖动时下层在本层和上一层的值之间插值。
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class CardsDepthTransformTest {
+    private static final int DOWN_X = 150;
+    private static final int DOWN_Y = 150;
+    private static final int STEP = 8;
+
+    private CardsContainer mContainer;
+
+    @Before
+    public void setUp() throws Exception {
+        mContainer = new CardsContainer(RuntimeEnvironment.application);
+
+        mContainer.getTransformTable().setScales(1f, 0.75f);
+        mContainer.getTransformTable().setAlphas(1f, 0.9f);
+
+        mContainer.setAdapter(new CardsAdapter() {
+            @Override
+            public int getCount() {
+                return 52;
+            }
+
+            @Override
+            public CardsBase onCreateCard(CardsContainer parent) {
+                FlatCards card = new FlatCards(parent.getContext());
+                card.setLayoutParams(new ViewGroup.LayoutParams(300, 300));
+
+                return card;
+            }
+
+            @Override
+            public void onBindCard(CardsBase card, int position) {
+                ((FlatCards)card).setNumber(position + 1);
+            }
+        });
+
+        mContainer.measure(View.MeasureSpec.makeMeasureSpec(1080, View.MeasureSpec.EXACTLY),
+                           View.MeasureSpec.makeMeasureSpec(1920, View.MeasureSpec.EXACTLY));
+        mContainer.layout(0, 0, 1080, 1920);
+    }
+
+    @Test
+    public void layout_appliesTableToEachDepth() throws Exception {
+        assertEquals(1f, mContainer.getChildAtDepth(0).getScaleX(), 0);
+        assertEquals(0.75f, mContainer.getChildAtDepth(1).getScaleX(), 1e-6f);
+        assertEquals(0.5f, mContainer.getChildAtDepth(2).getScaleY(), 1e-6f);
+        assertEquals(0.8f, mContainer.getChildAtDepth(2).getAlpha(), 1e-6f);
+    }
+
+    @Test
+    public void drag_interpolatesTowardUpperLayer() throws Exception {
+        dispatch(MotionEvent.ACTION_DOWN, 0, DOWN_X, DOWN_Y);
+
+        for (int i = 1; i <= 10; i++) {
+            dispatch(MotionEvent.ACTION_MOVE, i * 8, DOWN_X + i * STEP, DOWN_Y);
+        }
+
+        // 最后一次移动了 8 像素，跟随比例 8 / 100
+        float progress = STEP / 100f;
+
+        assertEquals(0.75f + 0.25f * progress, mContainer.getChildAtDepth(1).getScaleX(), 1e-4f);
+        assertEquals(0.5f + 0.25f * progress, mContainer.getChildAtDepth(2).getScaleX(), 1e-4f);
+        assertEquals(0.9f + 0.1f * progress, mContainer.getChildAtDepth(1).getAlpha(), 1e-4f);
+    }
+
+    private void dispatch(int action, long eventTime, float x, float y) {
+        MotionEvent event = MotionEvent.obtain(0, eventTime, action, x, y, 0);
+
+        mContainer.dispatchTouchEvent(event);
+        event.recycle();
+    }
+}
@@ -0,0 +1,151 @@
+package com.wzhnsc.dealcardsdemo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+public class CardsGestureMetricsTest {
+    private static final long FRAME_NANOS = 16666667L;
+    private static final int SLOT = 3;
+
+    private CardsGestureMetrics mMetrics;
+    private CardsGestureMetrics.Snapshot mLast;
+    private int mDelivered;
+
+    @Before
+    public void setUp() throws Exception {
+        mMetrics = new CardsGestureMetrics(FRAME_NANOS, new CardsGestureMetrics.Listener() {
+            @Override
+            public void onGestureMetrics(CardsGestureMetrics.Snapshot snapshot) {
+                mDelivered++;
+                mLast = snapshot.copy();
+            }
+        });
+    }
+
+    @Test
+    public void smoothGesture_hasNoDroppedFrames() throws Exception {
+        long now = simulateGesture(1000, 30, 20, FRAME_NANOS, 500000);
+
+        assertEquals(1, mDelivered);
+        assertEquals(50, mLast.frames);
+        assertEquals(0, mLast.droppedFrames);
+
+        // 间隔都在 12 ~ 17 毫秒的分桶里，第一帧没有间隔
+        assertEquals(49, mLast.frameIntervalHistogram[2]);
+        // 处理耗时 500 微秒落在 500 ~ 1000 的分桶
+        assertEquals(50, mLast.frameWorkHistogram[2]);
+
+        assertEquals(30 * FRAME_NANOS, mLast.dragNanos);
+        assertEquals(now - 1000 - 30 * FRAME_NANOS, mLast.settleNanos);
+        assertTrue(mLast.dismissed);
+        assertFalse(mMetrics.isGestureActive());
+    }
+
+    @Test
+    public void longFrames_countAsDropped() throws Exception {
+        mMetrics.beginGesture(SLOT, 0);
+        mMetrics.frame(0, 1000);
+        mMetrics.frame(FRAME_NANOS, 1000);
+        // 卡了 3 帧
+        mMetrics.frame(FRAME_NANOS * 5, 20000000);
+        mMetrics.release(FRAME_NANOS * 5, false);
+        mMetrics.settle(SLOT, FRAME_NANOS * 6);
+
+        assertEquals(3, mLast.droppedFrames);
+        assertEquals(FRAME_NANOS * 4, mLast.maxFrameIntervalNanos);
+        assertEquals(1, mLast.frameIntervalHistogram[CardsGestureMetrics.FRAME_INTERVAL_BUCKET_COUNT - 2]);
+        assertEquals(1, mLast.frameWorkHistogram[CardsGestureMetrics.FRAME_WORK_BUCKET_COUNT - 1]);
+        assertFalse(mLast.dismissed);
+    }
+
+    @Test
+    public void countersOnlyRecordDuringGesture() throws Exception {
+        mMetrics.countLayouts(10);
+
+        mMetrics.beginGesture(SLOT, 0);
+        mMetrics.countLayouts(3);
+        mMetrics.countMeasures(2);
+        mMetrics.countAdjustPass();
+        mMetrics.release(10, false);
+        mMetrics.settle(SLOT, 20);
+
+        mMetrics.countLayouts(10);
+
+        assertEquals(3, mLast.childLayouts);
+        assertEquals(2, mLast.childMeasures);
+        assertEquals(1, mLast.adjustPasses);
+    }
+
+    @Test
+    public void otherSlotsSettling_doNotEndGesture() throws Exception {
+        mMetrics.beginGesture(SLOT, 0);
+        mMetrics.release(10, true);
+
+        mMetrics.settle(SLOT + 1, 20);
+        assertEquals(0, mDelivered);
+
+        mMetrics.settle(SLOT, 30);
+        assertEquals(1, mDelivered);
+    }
+
+    @Test
+    public void recordingGesture_allocatesNothing() throws Exception {
+        CardsGestureMetrics metrics = new CardsGestureMetrics(FRAME_NANOS, null);
+
+        com.sun.management.ThreadMXBean threadBean =
+            (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        assertTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        long threadId = Thread.currentThread().getId();
+
+        // 先预热，排除类加载和 JIT 的影响
+        for (int i = 0; i < 20; i++) {
+            simulateGesture(metrics, 0, 300, 200, FRAME_NANOS, 1000);
+        }
+
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        long after  = threadBean.getThreadAllocatedBytes(threadId);
+        long overhead = after - before;
+
+        before = threadBean.getThreadAllocatedBytes(threadId);
+        simulateGesture(metrics, 0, 300, 200, FRAME_NANOS, 1000);
+        after  = threadBean.getThreadAllocatedBytes(threadId);
+
+        assertEquals(0, after - before - overhead);
+    }
+
+    private long simulateGesture(long start, int dragFrames, int settleFrames, long interval, long work) {
+        return simulateGesture(mMetrics, start, dragFrames, settleFrames, interval, work);
+    }
+
+    // 拖动 dragFrames 帧后松手飞出，再经过 settleFrames 帧到达，返回到达的时间
+    private static long simulateGesture(CardsGestureMetrics metrics,
+                                        long start, int dragFrames, int settleFrames,
+                                        long interval, long work) {
+        long now = start;
+
+        metrics.beginGesture(SLOT, now);
+
+        for (int i = 0; i < dragFrames; i++) {
+            metrics.frame(now, work);
+            metrics.countLayouts(3);
+            now += interval;
+        }
+
+        metrics.release(now, true);
+
+        for (int i = 0; i < settleFrames; i++) {
+            metrics.frame(now, work);
+            now += interval;
+        }
+
+        metrics.settle(SLOT, now);
+
+        return now;
+    }
+}
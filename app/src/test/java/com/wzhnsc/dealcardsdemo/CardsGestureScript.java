@@ -0,0 +1,147 @@
+package com.wzhnsc.dealcardsdemo;
+
+import android.view.MotionEvent;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Arrays;
+
+/**
+ * 记录下来的一段单指触摸事件，由 CardsPerfHarness 回放。
+ * 文件每行一个事件：动作(down/move/up) 时间(毫秒) x y ，# 开头的行是注释。
+ */
+class CardsGestureScript {
+    private int[] mActions = new int[16];
+    private long[] mTimeNanos = new long[16];
+    private float[] mX = new float[16];
+    private float[] mY = new float[16];
+
+    private int mCount = 0;
+
+    // 从测试资源 gestures/<name>.txt 读取
+    static CardsGestureScript load(String name) throws IOException {
+        InputStream in = CardsGestureScript.class.getClassLoader().getResourceAsStream("gestures/" + name + ".txt");
+
+        if (null == in) {
+            throw new IOException("gesture script not found: " + name);
+        }
+
+        CardsGestureScript script = new CardsGestureScript();
+
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+            String line;
+
+            while (null != (line = reader.readLine())) {
+                line = line.trim();
+
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                String[] fields = line.split("\\s+");
+
+                if (4 != fields.length) {
+                    throw new IOException("bad gesture line in " + name + ": " + line);
+                }
+
+                script.add(parseAction(fields[0]),
+                           Long.parseLong(fields[1]) * 1000000L,
+                           Float.parseFloat(fields[2]),
+                           Float.parseFloat(fields[3]));
+            }
+        }
+        finally {
+            in.close();
+        }
+
+        return script;
+    }
+
+    // 把这段手势重复 times 次，每次间隔 periodNanos
+    CardsGestureScript repeat(int times, long periodNanos) {
+        CardsGestureScript script = new CardsGestureScript();
+
+        for (int i = 0; i < times; i++) {
+            for (int j = 0; j < mCount; j++) {
+                script.add(mActions[j], mTimeNanos[j] + periodNanos * i, mX[j], mY[j]);
+            }
+        }
+
+        return script;
+    }
+
+    int size() {
+        return mCount;
+    }
+
+    int getAction(int index) {
+        return mActions[index];
+    }
+
+    long getTimeNanos(int index) {
+        return mTimeNanos[index];
+    }
+
+    float getX(int index) {
+        return mX[index];
+    }
+
+    float getY(int index) {
+        return mY[index];
+    }
+
+    // 事件都在回放前创建好，回放时不再分配
+    MotionEvent[] obtainEvents() {
+        MotionEvent[] events = new MotionEvent[mCount];
+        long downTime = 0;
+
+        for (int i = 0; i < mCount; i++) {
+            long eventTime = mTimeNanos[i] / 1000000L;
+
+            if (MotionEvent.ACTION_DOWN == mActions[i]) {
+                downTime = eventTime;
+            }
+
+            events[i] = MotionEvent.obtain(downTime, eventTime, mActions[i], mX[i], mY[i], 0);
+        }
+
+        return events;
+    }
+
+    private void add(int action, long timeNanos, float x, float y) {
+        if (mCount == mActions.length) {
+            int capacity = mCount * 2;
+
+            mActions   = Arrays.copyOf(mActions, capacity);
+            mTimeNanos = Arrays.copyOf(mTimeNanos, capacity);
+            mX         = Arrays.copyOf(mX, capacity);
+            mY         = Arrays.copyOf(mY, capacity);
+        }
+
+        if ((mCount > 0) && (timeNanos < mTimeNanos[mCount - 1])) {
+            throw new IllegalArgumentException("gesture events must be in time order");
+        }
+
+        mActions[mCount]   = action;
+        mTimeNanos[mCount] = timeNanos;
+        mX[mCount]         = x;
+        mY[mCount]         = y;
+        mCount++;
+    }
+
+    private static int parseAction(String action) throws IOException {
+        switch (action) {
+            case "down":
+                return MotionEvent.ACTION_DOWN;
+            case "move":
+                return MotionEvent.ACTION_MOVE;
+            case "up":
+                return MotionEvent.ACTION_UP;
+            default:
+                throw new IOException("unknown gesture action: " + action);
+        }
+    }
+}
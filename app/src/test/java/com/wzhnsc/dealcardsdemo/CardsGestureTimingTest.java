@@ -0,0 +1,132 @@
+package com.wzhnsc.dealcardsdemo;
+
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * 拖动时一帧里的多个触摸事件按帧回调的帧时间记为一帧；只点了一下时松手就结束手势。
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class CardsGestureTimingTest {
+    private static final long FRAME_NANOS = 16666667L;
+
+    // 每帧两个事件，每个事件右移 4 像素
+    private static final int EVENTS_PER_FRAME = 2;
+    private static final int DRAG_FRAMES = 6;
+    private static final int STEP = 4;
+
+    private static final int DOWN_X = 150;
+    private static final int DOWN_Y = 150;
+
+    private CardsContainer mContainer;
+
+    private CardsGestureMetrics.Snapshot mLast;
+    private int mDelivered;
+
+    private long mNow = 0;
+
+    @Before
+    public void setUp() throws Exception {
+        mContainer = new CardsContainer(RuntimeEnvironment.application);
+
+        mContainer.setAdapter(new CardsAdapter() {
+            @Override
+            public int getCount() {
+                return 52;
+            }
+
+            @Override
+            public CardsBase onCreateCard(CardsContainer parent) {
+                FlatCards card = new FlatCards(parent.getContext());
+                card.setLayoutParams(new ViewGroup.LayoutParams(300, 300));
+
+                return card;
+            }
+
+            @Override
+            public void onBindCard(CardsBase card, int position) {
+                ((FlatCards)card).setNumber(position + 1);
+            }
+        });
+
+        mContainer.measure(View.MeasureSpec.makeMeasureSpec(1080, View.MeasureSpec.EXACTLY),
+                           View.MeasureSpec.makeMeasureSpec(1920, View.MeasureSpec.EXACTLY));
+        mContainer.layout(0, 0, 1080, 1920);
+
+        mContainer.setGestureMetrics(new CardsGestureMetrics(FRAME_NANOS, new CardsGestureMetrics.Listener() {
+            @Override
+            public void onGestureMetrics(CardsGestureMetrics.Snapshot snapshot) {
+                mDelivered++;
+                mLast = snapshot.copy();
+            }
+        }));
+    }
+
+    @Test
+    public void tap_endsGestureOnRelease() throws Exception {
+        dispatch(MotionEvent.ACTION_DOWN, 0, DOWN_X, DOWN_Y);
+        dispatch(MotionEvent.ACTION_UP, 100, DOWN_X, DOWN_Y);
+
+        // 没有回弹，不用等下一帧
+        assertEquals(1, mDelivered);
+        assertEquals(0, mLast.frames);
+        assertFalse(mContainer.getGestureMetrics().isGestureActive());
+        assertTrue(mContainer.getMotionEngine().isAtRest(mContainer.getTopChild().mMotionSlot));
+    }
+
+    @Test
+    public void dragFrames_useFrameCallbackTime() throws Exception {
+        long eventMillis = 0;
+        int x = DOWN_X;
+
+        dispatch(MotionEvent.ACTION_DOWN, eventMillis, x, DOWN_Y);
+
+        for (int frame = 0; frame < DRAG_FRAMES; frame++) {
+            for (int i = 0; i < EVENTS_PER_FRAME; i++) {
+                eventMillis += 8;
+                x += STEP;
+                dispatch(MotionEvent.ACTION_MOVE, eventMillis, x, DOWN_Y);
+            }
+
+            frame();
+        }
+
+        dispatch(MotionEvent.ACTION_UP, eventMillis + 8, x, DOWN_Y);
+
+        int frames = DRAG_FRAMES;
+
+        while (0 == mDelivered) {
+            frame();
+
+            assertTrue("gesture never settled", ++frames < 1000);
+        }
+
+        // 每帧记一次(静止的那一帧手势已结束，不计)，间隔都是帧回调之间的一帧
+        assertEquals(frames - 1, mLast.frames);
+        assertEquals(frames - 2, mLast.frameIntervalHistogram[2]);
+        assertEquals(0, mLast.droppedFrames);
+    }
+
+    private void frame() {
+        mNow += FRAME_NANOS;
+        mContainer.doMotionFrame(mNow);
+    }
+
+    private void dispatch(int action, long eventTime, float x, float y) {
+        MotionEvent event = MotionEvent.obtain(0, eventTime, action, x, y, 0);
+
+        mContainer.dispatchTouchEvent(event);
+        event.recycle();
+    }
+}
@@ -0,0 +1,282 @@
+package com.wzhnsc.dealcardsdemo;
+
+import android.graphics.Bitmap;
+import android.os.Looper;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.Assert.*;
+
+/**
+ * 主线程只查缓存、提交请求，不等解码；等着显示的卡片排在预取前面，新一批预取取消旧的；
+ * 快速划过 1000 张图片时缓存不超出字节上限，请求也不积压。
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class CardsImageLoaderTest {
+    private static final int CARD_SIZE = 300;
+
+    // 原图 600x600 ，按卡片尺寸采样 2 解码为 300x300 ，ARGB_8888 占 360000 字节
+    private static final int IMAGE_SIZE = 600;
+    private static final int MAX_BYTES = 3 * 360000;
+
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    // 解码线程打开这个 key 时停住，直到 mGate 打开
+    private static final String GATE = "gate";
+
+    private final CountDownLatch mGate = new CountDownLatch(1);
+    private final CountDownLatch mGateEntered = new CountDownLatch(1);
+
+    // 解码线程打开过的 key ，按打开的顺序(每次解码打开两次)
+    private final List<String> mOpened = new ArrayList<>();
+
+    private final CardsBitmapCache mCache = new CardsBitmapCache(MAX_BYTES);
+
+    private CardsImageLoader mLoader;
+
+    private static byte[] sImageBytes;
+
+    @After
+    public void tearDown() throws Exception {
+        mGate.countDown();
+
+        if (null != mLoader) {
+            mLoader.shutdown();
+        }
+    }
+
+    @Test
+    public void sampleSize_keepsBothSidesAtLeastTarget() throws Exception {
+        // 4000x3000 缩到 300x300 ：采样 8 后为 500x375 ，采样 16 后高度不够
+        assertEquals(8, CardsImageLoader.computeSampleSize(4000, 3000, 300, 300));
+
+        assertEquals(1, CardsImageLoader.computeSampleSize(300, 300, 300, 300));
+        assertEquals(2, CardsImageLoader.computeSampleSize(600, 600, 300, 300));
+        assertEquals(1, CardsImageLoader.computeSampleSize(599, 4000, 300, 300));
+    }
+
+    @Test
+    public void sampleSize_withoutTargetDoesNotDownsample() throws Exception {
+        assertEquals(1, CardsImageLoader.computeSampleSize(4000, 3000, 0, 0));
+    }
+
+    @Test
+    public void load_returnsWithoutWaitingForDecode() throws Exception {
+        createLoader(1);
+        holdWorker();
+
+        RecordingTarget target = new RecordingTarget();
+
+        // 唯一的解码线程停住了，能返回就说明没有等解码
+        assertNull(mLoader.load("a", target));
+        assertEquals(2, mLoader.getPendingCount());
+        assertTrue(target.keys.isEmpty());
+
+        mGate.countDown();
+        awaitIdle();
+
+        // 在主线程通知，之后再要直接从缓存返回
+        assertEquals(Arrays.asList("a"), target.keys);
+        assertTrue(target.onMainThread);
+        assertNotNull(mLoader.load("a", target));
+    }
+
+    @Test
+    public void visibleCard_jumpsAheadOfPrefetch() throws Exception {
+        createLoader(1);
+        holdWorker();
+
+        mLoader.prefetch(new String[] {"p0", "p1", "p2"}, 3);
+
+        // p1 已在预取队列中，卡片要显示它时提到最前面
+        mLoader.load("v", new RecordingTarget());
+        mLoader.load("p1", new RecordingTarget());
+
+        mGate.countDown();
+        awaitIdle();
+
+        assertEquals(Arrays.asList(GATE, "p1", "v", "p0", "p2"), openedInOrder());
+    }
+
+    @Test
+    public void newPrefetchBatch_dropsStaleRequests() throws Exception {
+        createLoader(1);
+        holdWorker();
+
+        mLoader.prefetch(new String[] {"a0", "a1", "a2", "a3"}, 4);
+        mLoader.prefetch(new String[] {"a3", "b0", "b1"}, 3);
+
+        // 停住的请求加上第二批
+        assertEquals(4, mLoader.getPendingCount());
+
+        mGate.countDown();
+        awaitIdle();
+
+        assertEquals(Arrays.asList(GATE, "a3", "b0", "b1"), openedInOrder());
+    }
+
+    @Test
+    public void fastSwipe_staysWithinBudget() throws Exception {
+        createLoader(2);
+
+        final int deckSize = 1000;
+
+        CardsContainer container = new CardsContainer(RuntimeEnvironment.application);
+        container.setPrefetchCount(4);
+        container.setAdapter(new ImageCardsAdapter(mLoader) {
+            @Override
+            public int getCount() {
+                return deckSize;
+            }
+
+            @Override
+            public String getImageKey(int position) {
+                return "image" + position;
+            }
+
+            @Override
+            public CardsBase onCreateCard(CardsContainer parent) {
+                ImageCards card = new ImageCards(parent.getContext());
+                card.setLayoutParams(new ViewGroup.LayoutParams(CARD_SIZE, CARD_SIZE));
+
+                return card;
+            }
+        });
+
+        container.measure(View.MeasureSpec.makeMeasureSpec(1080, View.MeasureSpec.EXACTLY),
+                          View.MeasureSpec.makeMeasureSpec(1920, View.MeasureSpec.EXACTLY));
+        container.layout(0, 0, 1080, 1920);
+
+        // 窗口内的加上预取的，再加上每个解码线程手上的一张
+        int maxPending = container.getWindowSize() + container.getPrefetchCount() + 2;
+
+        for (int i = 0; i < deckSize; i++) {
+            container.getTopChild().offsetLeftAndRight(container.getWidth());
+            container.dismissTopChild();
+
+            ShadowLooper.runUiThreadTasks();
+
+            assertTrue("cache holds " + mCache.getByteCount() + " bytes", mCache.getByteCount() <= MAX_BYTES);
+            assertTrue("pending " + mLoader.getPendingCount(), mLoader.getPendingCount() <= maxPending);
+        }
+
+        awaitIdle();
+
+        // 只有窗口内的图片还被 pin 住，其他的都可以复用
+        for (int i = 0; i < deckSize; i++) {
+            boolean inWindow = false;
+
+            for (int depth = 0; depth < container.getWindowSize(); depth++) {
+                inWindow |= (container.getChildAtDepth(depth).mPosition == i);
+            }
+
+            assertEquals("image" + i, inWindow, mCache.isPinned("image" + i));
+        }
+
+        assertTrue(mCache.getByteCount() <= MAX_BYTES);
+    }
+
+    private void createLoader(int threadCount) {
+        mLoader = new CardsImageLoader(new CardsImageLoader.Source() {
+            @Override
+            public InputStream open(String key) throws IOException {
+                synchronized (mOpened) {
+                    mOpened.add(key);
+                }
+
+                if (GATE.equals(key)) {
+                    mGateEntered.countDown();
+
+                    try {
+                        mGate.await();
+                    }
+                    catch (InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                }
+
+                return new ByteArrayInputStream(imageBytes());
+            }
+        }, mCache, threadCount);
+
+        mLoader.setTargetSize(CARD_SIZE, CARD_SIZE);
+    }
+
+    // 让唯一的解码线程停在 GATE 上，之后提交的请求都在排队
+    private void holdWorker() throws Exception {
+        mLoader.load(GATE, new RecordingTarget());
+
+        assertTrue(mGateEntered.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    // 等所有请求解码完并在主线程通知
+    private void awaitIdle() {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+
+        do {
+            ShadowLooper.runUiThreadTasks();
+
+            if (0 == mLoader.getPendingCount()) {
+                return;
+            }
+
+            Thread.yield();
+        } while (System.currentTimeMillis() < deadline);
+
+        fail("decoding never finished, pending " + mLoader.getPendingCount());
+    }
+
+    private List<String> openedInOrder() {
+        synchronized (mOpened) {
+            return new ArrayList<>(new LinkedHashSet<>(mOpened));
+        }
+    }
+
+    private static synchronized byte[] imageBytes() throws IOException {
+        if (null == sImageBytes) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+            ImageIO.write(new BufferedImage(IMAGE_SIZE, IMAGE_SIZE, BufferedImage.TYPE_INT_RGB), "png", out);
+
+            sImageBytes = out.toByteArray();
+        }
+
+        return sImageBytes;
+    }
+
+    private static class RecordingTarget implements CardsImageLoader.Target {
+        final List<String> keys = new ArrayList<>();
+
+        boolean onMainThread = true;
+
+        @Override
+        public void onImageLoaded(String key, Bitmap bitmap) {
+            keys.add(key);
+
+            onMainThread &= (Looper.myLooper() == Looper.getMainLooper());
+        }
+    }
+}
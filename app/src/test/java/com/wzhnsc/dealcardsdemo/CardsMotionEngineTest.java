@@ -0,0 +1,254 @@
+package com.wzhnsc.dealcardsdemo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 所有卡片共用一个引擎，帧回调数量与卡片数量无关。
+ */
+public class CardsMotionEngineTest {
+    // 与 SpringConfig.fromBouncinessAndSpeed(15, 20) 同量级的参数
+    private static final double TENSION = 330;
+    private static final double FRICTION = 17;
+
+    private static final long FRAME_NANOS = 16666667L;
+
+    private int mScheduledFrames;
+    private int mRestCallbacks;
+    private int[] mRestCountBySlot;
+    private int[] mUpdateCountBySlot;
+
+    // 静止回调时要停下的槽位，-1 表示不停
+    private int mStopOnRest;
+
+    private CardsMotionEngine mEngine;
+
+    @Before
+    public void setUp() throws Exception {
+        mScheduledFrames = 0;
+        mRestCallbacks   = 0;
+        mRestCountBySlot = new int[64];
+        mUpdateCountBySlot = new int[64];
+        mStopOnRest = -1;
+
+        mEngine = new CardsMotionEngine(TENSION, FRICTION, new CardsMotionEngine.FrameScheduler() {
+            @Override
+            public void scheduleFrame() {
+                mScheduledFrames++;
+            }
+        });
+
+        mEngine.setListener(new CardsMotionEngine.Listener() {
+            @Override
+            public void onMotionUpdate(int slot, float x, float y) {
+                mUpdateCountBySlot[slot]++;
+            }
+
+            @Override
+            public void onMotionAtRest(int slot) {
+                mRestCallbacks++;
+                mRestCountBySlot[slot]++;
+
+                if (mStopOnRest >= 0) {
+                    mEngine.setAtRest(mStopOnRest);
+                }
+            }
+        });
+    }
+
+    @Test
+    public void fiftyCards_shareOneFrameCallback() throws Exception {
+        for (int i = 0; i < 50; i++) {
+            int slot = mEngine.obtainSlot();
+            mEngine.animTo(slot, 400 + i, 300 - i, 0, 0);
+        }
+
+        // 无论多少张卡片开始运动，只请求了一次下一帧
+        assertEquals(1, mScheduledFrames);
+
+        int frames = runUntilRest();
+
+        // 每帧最多请求一次
+        assertEquals(frames, mScheduledFrames);
+        assertEquals(50, mRestCallbacks);
+
+        for (int slot = 0; slot < 50; slot++) {
+            assertEquals(1, mRestCountBySlot[slot]);
+            assertEquals(0, mEngine.getX(slot), 0);
+            assertEquals(0, mEngine.getY(slot), 0);
+        }
+    }
+
+    @Test
+    public void springOvershootsThenSettles() throws Exception {
+        int slot = mEngine.obtainSlot();
+        mEngine.animTo(slot, 300, 0, 0, 0);
+
+        float minX = Float.MAX_VALUE;
+        long now = FRAME_NANOS;
+
+        while (!mEngine.isAtRest(slot)) {
+            mEngine.doFrame(now);
+            now += FRAME_NANOS;
+            minX = Math.min(minX, mEngine.getX(slot));
+        }
+
+        // 带有晃动效果，会冲过目标位置
+        assertTrue(minX < 0);
+        assertEquals(1, mRestCallbacks);
+    }
+
+    @Test
+    public void setAtRest_stopsWithoutCallback() throws Exception {
+        int slot = mEngine.obtainSlot();
+        mEngine.animTo(slot, 300, 300, 0, 0);
+        mEngine.doFrame(FRAME_NANOS);
+        mEngine.doFrame(FRAME_NANOS * 2);
+
+        mEngine.setAtRest(slot);
+
+        assertTrue(mEngine.isAtRest(slot));
+        assertEquals(0, mEngine.getActiveCount());
+
+        mEngine.doFrame(FRAME_NANOS * 3);
+        assertEquals(0, mRestCallbacks);
+    }
+
+    @Test
+    public void flight_arrivesAfterDurationWithoutOvershoot() throws Exception {
+        int slot = mEngine.obtainSlot();
+        mEngine.flyTo(slot, 0, 0, 1000, -200, 200);
+
+        assertTrue(mEngine.isFlying(slot));
+
+        float lastX = 0;
+        float firstStep = -1;
+        long now = FRAME_NANOS;
+        int frames = 0;
+
+        while (!mEngine.isAtRest(slot)) {
+            mEngine.doFrame(now);
+            now += FRAME_NANOS;
+            frames++;
+
+            float x = mEngine.getX(slot);
+
+            // 一直向目标前进，不会冲过目标
+            assertTrue(x >= lastX);
+            assertTrue(x <= 1000);
+
+            if ((firstStep < 0) && (x > 0)) {
+                firstStep = x;
+            }
+
+            lastX = x;
+        }
+
+        // 200 毫秒约 12 帧
+        assertTrue(frames <= 13);
+        assertEquals(1000, mEngine.getX(slot), 0);
+        assertEquals(-200, mEngine.getY(slot), 0);
+        assertEquals(1, mRestCallbacks);
+        assertFalse(mEngine.isFlying(slot));
+
+        // 减速飞行，第一帧的位移大于平均每帧的位移
+        assertTrue(firstStep > 1000f / 12);
+    }
+
+    @Test
+    public void animTo_turnsFlightBackIntoSpring() throws Exception {
+        int slot = mEngine.obtainSlot();
+        mEngine.flyTo(slot, 0, 0, 1000, 0, 300);
+        mEngine.doFrame(FRAME_NANOS);
+        mEngine.doFrame(FRAME_NANOS * 2);
+
+        mEngine.animTo(slot, mEngine.getX(slot), 0, 0, 0);
+
+        assertFalse(mEngine.isFlying(slot));
+
+        runUntilRest();
+
+        assertEquals(0, mEngine.getX(slot), 0);
+        assertEquals(1, mRestCallbacks);
+    }
+
+    @Test
+    public void releasedSlot_isReusedAtRest() throws Exception {
+        int first = mEngine.obtainSlot();
+        int second = mEngine.obtainSlot();
+
+        mEngine.flyTo(first, 0, 0, 1000, 0, 300);
+        mEngine.releaseSlot(first);
+
+        assertEquals(0, mEngine.getActiveCount());
+        assertEquals(first, mEngine.obtainSlot());
+        assertTrue(mEngine.isAtRest(first));
+        assertEquals(0, mEngine.getX(first), 0);
+
+        // 没有释放的槽位用完后才分配新的
+        assertEquals(second + 1, mEngine.obtainSlot());
+    }
+
+    @Test
+    public void firstFrame_alreadyMoves() throws Exception {
+        int slot = mEngine.obtainSlot();
+        mEngine.animTo(slot, 300, 0, 0, 0);
+        mEngine.doFrame(FRAME_NANOS);
+
+        // 第一帧就推进了一帧的时长
+        float firstStep = 300 - mEngine.getX(slot);
+
+        assertTrue(firstStep > 0);
+
+        runUntilRest();
+
+        // 很久以后再开始运动，第一帧也只推进一帧的时长
+        mEngine.animTo(slot, 300, 0, 0, 0);
+        mEngine.doFrame(FRAME_NANOS * 1000);
+
+        assertEquals(firstStep, 300 - mEngine.getX(slot), 0.001f);
+    }
+
+    @Test
+    public void restCallback_stoppingAnotherSlotDoesNotDisturbTheFrame() throws Exception {
+        int first  = mEngine.obtainSlot();
+        int second = mEngine.obtainSlot();
+        int third  = mEngine.obtainSlot();
+
+        mEngine.animTo(first, 300, 0, 0, 0);
+        mEngine.animTo(second, 300, 0, 0, 0);
+
+        // 已经在目标位置，第一帧就静止，最先遍历到
+        mEngine.animTo(third, 0, 0, 0, 0);
+
+        mStopOnRest = first;
+        mEngine.doFrame(FRAME_NANOS);
+
+        // 每个槽位都只推进了一次
+        assertEquals(1, mUpdateCountBySlot[first]);
+        assertEquals(1, mUpdateCountBySlot[second]);
+        assertEquals(1, mUpdateCountBySlot[third]);
+
+        assertEquals(1, mRestCountBySlot[third]);
+        assertTrue(mEngine.isAtRest(first));
+        assertFalse(mEngine.isAtRest(second));
+        assertEquals(1, mEngine.getActiveCount());
+    }
+
+    private int runUntilRest() {
+        int frames = 0;
+        long now = FRAME_NANOS;
+
+        while (mEngine.getActiveCount() > 0) {
+            mEngine.doFrame(now);
+            now += FRAME_NANOS;
+            frames++;
+
+            assertTrue("spring never settled", frames < 1000);
+        }
+
+        return frames;
+    }
+}
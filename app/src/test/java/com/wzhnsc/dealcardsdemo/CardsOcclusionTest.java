@@ -0,0 +1,173 @@
+package com.wzhnsc.dealcardsdemo;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * 下层卡片被上一层盖住的部分不绘制，通过诊断计数检查实际裁剪掉的像素。
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class CardsOcclusionTest {
+    private static final int CARD_SIZE = 300;
+    private static final int OPAQUE_INSET = 10;
+    private static final int LAYERS = 4;
+
+    private CardsContainer mContainer;
+    private CardsTraceRecorder mRecorder;
+    private Canvas mCanvas;
+
+    @Before
+    public void setUp() throws Exception {
+        mContainer = new CardsContainer(RuntimeEnvironment.application);
+        mRecorder  = new CardsTraceRecorder(16);
+        mCanvas    = new Canvas(Bitmap.createBitmap(1080, 1920, Bitmap.Config.ARGB_8888));
+
+        mContainer.setWindowSize(LAYERS);
+        setAdapter(OPAQUE_INSET);
+        mContainer.setTracer(mRecorder);
+    }
+
+    @Test
+    public void lowerCards_areClippedByUpperOpaqueBounds() throws Exception {
+        mContainer.draw(mCanvas);
+
+        assertEquals(LAYERS, mRecorder.getCounter(CardsTracer.COUNTER_CARDS_DRAWN));
+        assertEquals(0, mRecorder.getCounter(CardsTracer.COUNTER_CARDS_SKIPPED));
+
+        // 默认叠加偏移 100 ，每层被上一层盖住 (300 - 100 - 10) 见方
+        int covered = CARD_SIZE - 100 - OPAQUE_INSET;
+        assertEquals((LAYERS - 1) * covered * covered,
+                     mRecorder.getCounter(CardsTracer.COUNTER_OCCLUDED_PIXELS));
+    }
+
+    @Test
+    public void disablingClip_drawsEveryPixel() throws Exception {
+        mContainer.setOcclusionClipEnabled(false);
+        mContainer.draw(mCanvas);
+
+        assertEquals(LAYERS, mRecorder.getCounter(CardsTracer.COUNTER_CARDS_DRAWN));
+        assertEquals(0, mRecorder.getCounter(CardsTracer.COUNTER_OCCLUDED_PIXELS));
+    }
+
+    @Test
+    public void cardsBeyondMaxVisibleDepth_areSkipped() throws Exception {
+        mContainer.setMaxVisibleDepth(1);
+        mContainer.draw(mCanvas);
+
+        assertEquals(2, mRecorder.getCounter(CardsTracer.COUNTER_CARDS_DRAWN));
+        assertEquals(LAYERS - 2, mRecorder.getCounter(CardsTracer.COUNTER_CARDS_SKIPPED));
+    }
+
+    @Test
+    public void fullyCoveredCard_isSkipped() throws Exception {
+        setAdapter(0);
+
+        // 最顶层移到第二层正上方，第二层整张被盖住
+        CardsBase top = mContainer.getTopChild();
+        top.setTranslationX(100);
+        top.setTranslationY(100);
+
+        mContainer.draw(mCanvas);
+
+        assertEquals(1, mRecorder.getCounter(CardsTracer.COUNTER_CARDS_SKIPPED));
+        assertEquals(LAYERS - 1, mRecorder.getCounter(CardsTracer.COUNTER_CARDS_DRAWN));
+    }
+
+    @Test
+    public void scaledLayers_clipOnlyWhatTheScaledCardCovers() throws Exception {
+        setAdapter(0);
+
+        // 每层缩小 1/4 ，以卡片中心为轴
+        mContainer.getTransformTable().setScales(1f, 0.75f);
+        mContainer.adjustChildrenPosition();
+
+        mContainer.draw(mCanvas);
+
+        assertEquals(LAYERS, mRecorder.getCounter(CardsTracer.COUNTER_CARDS_DRAWN));
+
+        // 第 1 层 [137.5, 362.5] 被第 0 层 [0, 300] 盖住 163 ；
+        // 第 2 层 [275, 425] 被第 1 层向内取整的 [138, 362] 盖住 87 ；
+        // 第 3 层 [412.5, 487.5] 被第 2 层盖住 13
+        assertEquals(163 * 163 + 87 * 87 + 13 * 13,
+                     mRecorder.getCounter(CardsTracer.COUNTER_OCCLUDED_PIXELS));
+    }
+
+    @Test
+    public void translucentLayer_doesNotClipTheOneBelow() throws Exception {
+        mContainer.getTransformTable().setAlphas(1f, 0.5f);
+        mContainer.adjustChildrenPosition();
+
+        mContainer.draw(mCanvas);
+
+        // 只有第 1 层被不透明的最顶层裁剪
+        int covered = CARD_SIZE - 100 - OPAQUE_INSET;
+        assertEquals(covered * covered, mRecorder.getCounter(CardsTracer.COUNTER_OCCLUDED_PIXELS));
+    }
+
+    private void setAdapter(int opaqueInset) {
+        mContainer.setAdapter(new OpaqueAdapter(52, opaqueInset));
+        mContainer.measure(View.MeasureSpec.makeMeasureSpec(1080, View.MeasureSpec.EXACTLY),
+                           View.MeasureSpec.makeMeasureSpec(1920, View.MeasureSpec.EXACTLY));
+        mContainer.layout(0, 0, 1080, 1920);
+    }
+
+    // 除四边 inset 宽的边框外完全不透明的卡片
+    private static class OpaqueCards extends CardsBase {
+        private final int mInset;
+
+        OpaqueCards(Context context, int inset) {
+            super(context);
+
+            mInset = inset;
+        }
+
+        @Override
+        public boolean getOpaqueBounds(Rect outBounds) {
+            outBounds.set(mInset, mInset, getWidth() - mInset, getHeight() - mInset);
+            return true;
+        }
+    }
+
+    private static class OpaqueAdapter extends CardsAdapter {
+        private final int mCount;
+        private final int mInset;
+
+        OpaqueAdapter(int count, int inset) {
+            mCount = count;
+            mInset = inset;
+        }
+
+        @Override
+        public int getCount() {
+            return mCount;
+        }
+
+        @Override
+        public CardsBase onCreateCard(CardsContainer parent) {
+            CardsBase card = new OpaqueCards(parent.getContext(), mInset);
+            card.setLayoutParams(new ViewGroup.LayoutParams(CARD_SIZE, CARD_SIZE));
+            card.setPivotX(CARD_SIZE / 2);
+            card.setPivotY(CARD_SIZE / 2);
+
+            return card;
+        }
+
+        @Override
+        public void onBindCard(CardsBase card, int position) {
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.wzhnsc.dealcardsdemo;
+
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * 在 JVM 上回放记录的触摸事件，统计 CardsContainer 拖动、松手、回弹/飞出全过程的开销。
+ * 帧时钟由回放驱动：每帧先分发时间已到的触摸事件，再推进物理引擎，需要时重新测量布局，
+ * 与真机上 Choreographer 先处理输入、再动画、再布局的顺序一致，结果不受机器快慢影响。
+ */
+class CardsPerfHarness {
+    static final long FRAME_NANOS = 16666667L;
+
+    static final int CONTAINER_WIDTH = 1080;
+    static final int CONTAINER_HEIGHT = 1920;
+    static final int CARD_SIZE = 300;
+    static final int DECK_SIZE = 52;
+
+    // 手势结束后最多再跑的帧数，超过说明动画停不下来
+    private static final int MAX_SETTLE_FRAMES = 600;
+
+    // 一个场景的结果
+    static class Result {
+        String name;
+
+        int windowSize;
+        int events;
+        int frames;
+
+        // 飞出消失的张数
+        int dismissed;
+
+        // 调用子视图 layout 的次数(含静止后放回)，以及单帧中的最大值
+        long childLayouts;
+        long maxChildLayoutsPerFrame;
+
+        long childMeasures;
+        long adjustPasses;
+
+        long allocatedBytes;
+        long wallNanos;
+
+        long allocatedBytesPerFrame() {
+            return (frames > 0) ? (allocatedBytes / frames) : 0;
+        }
+
+        JSONObject toJson() throws JSONException {
+            JSONObject json = new JSONObject();
+
+            json.put("name", name);
+            json.put("windowSize", windowSize);
+            json.put("events", events);
+            json.put("frames", frames);
+            json.put("dismissed", dismissed);
+            json.put("childLayouts", childLayouts);
+            json.put("maxChildLayoutsPerFrame", maxChildLayoutsPerFrame);
+            json.put("childMeasures", childMeasures);
+            json.put("adjustPasses", adjustPasses);
+            json.put("allocatedBytes", allocatedBytes);
+            json.put("allocatedBytesPerFrame", allocatedBytesPerFrame());
+            json.put("wallNanos", wallNanos);
+
+            return json;
+        }
+    }
+
+    private final CardsContainer mContainer;
+    private final CardsTraceRecorder mRecorder = new CardsTraceRecorder(16);
+
+    private final com.sun.management.ThreadMXBean mThreadBean =
+        (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+
+    private long mNow = 0;
+
+    CardsPerfHarness(CardsContainer container) {
+        mContainer = container;
+
+        mContainer.setAdapter(new CardsAdapter() {
+            @Override
+            public int getCount() {
+                return DECK_SIZE;
+            }
+
+            @Override
+            public CardsBase onCreateCard(CardsContainer parent) {
+                FlatCards card = new FlatCards(parent.getContext());
+                card.setLayoutParams(new ViewGroup.LayoutParams(CARD_SIZE, CARD_SIZE));
+
+                return card;
+            }
+
+            @Override
+            public void onBindCard(CardsBase card, int position) {
+                ((FlatCards)card).setNumber(position + 1);
+            }
+        });
+
+        layout();
+
+        mContainer.setTracer(mRecorder);
+        mThreadBean.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    CardsContainer getContainer() {
+        return mContainer;
+    }
+
+    // 回放 script ，直到所有卡片静止
+    Result run(String name, CardsGestureScript script) {
+        MotionEvent[] events = script.obtainEvents();
+
+        Result result = new Result();
+        result.name       = name;
+        result.windowSize = mContainer.getWindowSize();
+        result.events     = events.length;
+
+        final long threadId = Thread.currentThread().getId();
+        final int startPosition = mContainer.getTopPosition();
+
+        mRecorder.reset();
+
+        long startBytes = mThreadBean.getThreadAllocatedBytes(threadId);
+        long startWall  = System.nanoTime();
+
+        // 手势的时间从本次回放开始算
+        final long base = mNow;
+
+        int next = 0;
+        int settleFrames = 0;
+        long layoutsBefore = 0;
+
+        while ((next < events.length) || !isAtRest()) {
+            if (next >= events.length) {
+                if (++settleFrames > MAX_SETTLE_FRAMES) {
+                    throw new AssertionError(name + ": cards never came to rest");
+                }
+            }
+
+            mNow += FRAME_NANOS;
+
+            // 先分发这一帧之前到达的触摸事件
+            while ((next < events.length) && ((base + script.getTimeNanos(next)) <= mNow)) {
+                mContainer.dispatchTouchEvent(events[next]);
+                next++;
+            }
+
+            mContainer.doMotionFrame(mNow);
+
+            if (mContainer.isLayoutRequested()) {
+                layout();
+            }
+
+            long layouts = countLayouts();
+
+            result.maxChildLayoutsPerFrame = Math.max(result.maxChildLayoutsPerFrame, layouts - layoutsBefore);
+            layoutsBefore = layouts;
+
+            result.frames++;
+        }
+
+        result.wallNanos      = System.nanoTime() - startWall;
+        result.allocatedBytes = mThreadBean.getThreadAllocatedBytes(threadId) - startBytes;
+
+        result.childLayouts  = countLayouts();
+        result.childMeasures = mRecorder.getCounter(CardsTracer.COUNTER_CHILD_MEASURES);
+        result.adjustPasses  = mRecorder.getCounter(CardsTracer.COUNTER_ADJUST_PASSES);
+        result.dismissed     = (mContainer.getTopPosition() - startPosition + DECK_SIZE) % DECK_SIZE;
+
+        for (MotionEvent event : events) {
+            event.recycle();
+        }
+
+        return result;
+    }
+
+    private boolean isAtRest() {
+        return 0 == mContainer.getMotionEngine().getActiveCount();
+    }
+
+    private long countLayouts() {
+        return mRecorder.getCounter(CardsTracer.COUNTER_CHILD_LAYOUTS)
+             + mRecorder.getCounter(CardsTracer.COUNTER_CHILD_REPOSITIONS);
+    }
+
+    private void layout() {
+        mContainer.measure(View.MeasureSpec.makeMeasureSpec(CONTAINER_WIDTH, View.MeasureSpec.EXACTLY),
+                           View.MeasureSpec.makeMeasureSpec(CONTAINER_HEIGHT, View.MeasureSpec.EXACTLY));
+        mContainer.layout(0, 0, CONTAINER_WIDTH, CONTAINER_HEIGHT);
+    }
+}
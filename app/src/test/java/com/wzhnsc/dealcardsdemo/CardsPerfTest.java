@@ -0,0 +1,206 @@
+package com.wzhnsc.dealcardsdemo;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.AfterClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 回放记录的手势，检查每个场景的布局、测量、分配不超出预算，结果写成 JSON 。
+ * 结果文件由系统属性 cards.perf.output 指定(默认 build/reports/cards-perf/results.json)；
+ * 指定 cards.perf.baseline 为之前的结果文件时，各项超出基线 cards.perf.tolerance(默认 0.2)即失败，
+ * 耗时按 cards.perf.wallTolerance(默认 1.0)。
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class CardsPerfTest {
+    // 快速连续甩出的张数
+    private static final int RAPID_SWIPES = 50;
+
+    // 连续甩出的间隔帧数，保证上一张已经飞出(飞出最长 300 毫秒)
+    private static final int RAPID_SWIPE_PERIOD_FRAMES = 30;
+
+    // Robolectric 的触摸事件分发本身有分配，这里只拦住每帧大量分配的退化
+    private static final long MAX_ALLOCATED_BYTES_PER_FRAME = 64 * 1024;
+
+    private static final List<CardsPerfHarness.Result> sResults = new ArrayList<>();
+
+    @Test
+    public void dragSnapBack() throws Exception {
+        CardsPerfHarness.Result result = runScenario("drag_snap_back", CardsGestureScript.load("drag_snap_back"));
+
+        assertEquals(0, result.dismissed);
+        assertEquals(0, result.childMeasures);
+        assertEquals(0, result.adjustPasses);
+        checkCommonBudgets(result);
+    }
+
+    @Test
+    public void flingDismiss() throws Exception {
+        CardsPerfHarness.Result result = runScenario("fling_dismiss", CardsGestureScript.load("fling_dismiss"));
+
+        assertEquals(1, result.dismissed);
+        checkCommonBudgets(result);
+    }
+
+    @Test
+    public void rapidSwipes() throws Exception {
+        CardsGestureScript script = CardsGestureScript.load("fling_dismiss")
+            .repeat(RAPID_SWIPES, RAPID_SWIPE_PERIOD_FRAMES * CardsPerfHarness.FRAME_NANOS);
+
+        CardsPerfHarness.Result result = runScenario("rapid_swipes", script);
+
+        assertEquals(RAPID_SWIPES, result.dismissed);
+        checkCommonBudgets(result);
+    }
+
+    @AfterClass
+    public static void writeResults() throws Exception {
+        File output = new File(System.getProperty("cards.perf.output", "build/reports/cards-perf/results.json"));
+        File parent = output.getParentFile();
+
+        if ((null != parent) && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("cannot create " + parent);
+        }
+
+        JSONArray scenarios = new JSONArray();
+
+        for (CardsPerfHarness.Result result : sResults) {
+            scenarios.put(result.toJson());
+        }
+
+        JSONObject json = new JSONObject();
+        json.put("scenarios", scenarios);
+
+        OutputStream out = new FileOutputStream(output);
+
+        try {
+            out.write(json.toString(2).getBytes("UTF-8"));
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    // 先在另一个容器上回放一次预热，排除类加载和 JIT 的影响，再计量
+    private CardsPerfHarness.Result runScenario(String name, CardsGestureScript script) throws Exception {
+        new CardsPerfHarness(new CardsContainer(RuntimeEnvironment.application)).run(name, script);
+
+        CardsPerfHarness harness = new CardsPerfHarness(new CardsContainer(RuntimeEnvironment.application));
+        CardsPerfHarness.Result result = harness.run(name, script);
+
+        sResults.add(result);
+
+        checkBaseline(result);
+
+        return result;
+    }
+
+    // 每一帧最多把窗口内的卡片各布局一次；每飞出一张最多重新测量一张、整体调整一次
+    private static void checkCommonBudgets(CardsPerfHarness.Result result) {
+        assertTrue(result.name + ": " + result.maxChildLayoutsPerFrame + " child layouts in one frame",
+                   result.maxChildLayoutsPerFrame <= result.windowSize);
+        assertTrue(result.name + ": " + result.childMeasures + " child measures",
+                   result.childMeasures <= result.dismissed);
+        assertTrue(result.name + ": " + result.adjustPasses + " adjust passes",
+                   result.adjustPasses <= result.dismissed);
+        assertTrue(result.name + ": " + result.allocatedBytesPerFrame() + " bytes allocated per frame",
+                   result.allocatedBytesPerFrame() <= MAX_ALLOCATED_BYTES_PER_FRAME);
+    }
+
+    private static void checkBaseline(CardsPerfHarness.Result result) throws IOException, JSONException {
+        String baselinePath = System.getProperty("cards.perf.baseline");
+
+        if (null == baselinePath) {
+            return;
+        }
+
+        JSONObject baseline = findScenario(readJson(new File(baselinePath)), result.name);
+
+        if (null == baseline) {
+            return;
+        }
+
+        double tolerance = Double.parseDouble(System.getProperty("cards.perf.tolerance", "0.2"));
+        // 耗时受机器负载影响，默认允许到基线的两倍
+        double wallTolerance = Double.parseDouble(System.getProperty("cards.perf.wallTolerance", "1.0"));
+
+        JSONObject current = result.toJson();
+        StringBuilder regressions = new StringBuilder();
+
+        for (String metric : new String[] {"childLayouts", "maxChildLayoutsPerFrame", "childMeasures",
+                                           "adjustPasses", "allocatedBytesPerFrame", "wallNanos"}) {
+            if (!baseline.has(metric)) {
+                continue;
+            }
+
+            double allowed = "wallNanos".equals(metric) ? wallTolerance : tolerance;
+
+            long limit = (long)Math.ceil(baseline.getLong(metric) * (1 + allowed));
+            long value = current.getLong(metric);
+
+            if (value > limit) {
+                regressions.append(' ').append(metric).append('=').append(value)
+                           .append(" (baseline ").append(baseline.getLong(metric)).append(')');
+            }
+        }
+
+        if (regressions.length() > 0) {
+            fail(result.name + " regressed:" + regressions);
+        }
+    }
+
+    private static JSONObject findScenario(JSONObject results, String name) throws JSONException {
+        JSONArray scenarios = results.getJSONArray("scenarios");
+
+        for (int i = 0; i < scenarios.length(); i++) {
+            JSONObject scenario = scenarios.getJSONObject(i);
+
+            if (name.equals(scenario.getString("name"))) {
+                return scenario;
+            }
+        }
+
+        return null;
+    }
+
+    private static JSONObject readJson(File file) throws IOException, JSONException {
+        InputStream in = new FileInputStream(file);
+
+        try {
+            byte[] data = new byte[(int)file.length()];
+            int read = 0;
+
+            while (read < data.length) {
+                int n = in.read(data, read, data.length - read);
+
+                if (n < 0) {
+                    break;
+                }
+
+                read += n;
+            }
+
+            return new JSONObject(new String(data, 0, read, "UTF-8"));
+        }
+        finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.wzhnsc.dealcardsdemo;
+
+import android.content.Context;
+import android.os.Looper;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * 后台线程最多预先创建 queueDepth 张，总数不超过 maxCards ，创建好后在主线程通知。
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class CardsPrefetcherTest {
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    private final AtomicInteger mCreated = new AtomicInteger();
+
+    // 在测试线程(主线程)上当场创建的张数
+    private final AtomicInteger mCreatedOnMain = new AtomicInteger();
+
+    private final Thread mMainThread = Thread.currentThread();
+
+    // 第 n 张创建时 mCreatedLatches[n - 1] 打开
+    private final CountDownLatch[] mCreatedLatches = new CountDownLatch[8];
+
+    private final CardsPrefetcher.Factory mFactory = new CardsPrefetcher.Factory() {
+        @Override
+        public CardsBase createCard(Context context) {
+            CardsBase card = new CardsBase(context);
+
+            if (Thread.currentThread() == mMainThread) {
+                mCreatedOnMain.incrementAndGet();
+            }
+
+            mCreatedLatches[Math.min(mCreated.incrementAndGet(), mCreatedLatches.length) - 1].countDown();
+
+            return card;
+        }
+    };
+
+    {
+        for (int i = 0; i < mCreatedLatches.length; i++) {
+            mCreatedLatches[i] = new CountDownLatch(1);
+        }
+    }
+
+    @Test
+    public void worker_stopsWhenQueueIsFull() throws Exception {
+        CardsPrefetcher prefetcher = new CardsPrefetcher(RuntimeEnvironment.application, 2, 10, mFactory);
+
+        awaitReady(prefetcher, 2);
+
+        // 队列满后不再创建
+        assertFalse(mCreatedLatches[2].await(50, TimeUnit.MILLISECONDS));
+        assertEquals(2, mCreated.get());
+
+        assertNotNull(prefetcher.obtain());
+
+        // 取走一张后补上一张
+        assertTrue(mCreatedLatches[2].await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        awaitReady(prefetcher, 2);
+
+        assertEquals(3, mCreated.get());
+
+        prefetcher.shutdown();
+    }
+
+    @Test
+    public void obtain_createsOnCallerWhenNothingLeft() throws Exception {
+        CardsPrefetcher prefetcher = new CardsPrefetcher(RuntimeEnvironment.application, 4, 1, mFactory);
+
+        awaitReady(prefetcher, 1);
+
+        assertNotNull(prefetcher.obtain());
+        assertNotNull(prefetcher.obtain());
+
+        // 超出总数后当场创建，后台线程不再创建
+        assertEquals(2, mCreated.get());
+        assertEquals(0, prefetcher.getReadyCount());
+
+        prefetcher.shutdown();
+    }
+
+    @Test
+    public void whenReady_runsOnMainThreadOnceCardsAreReady() throws Exception {
+        CardsPrefetcher prefetcher = new CardsPrefetcher(RuntimeEnvironment.application, 4, 10, mFactory);
+
+        assertTrue(awaitReady(prefetcher, 4));
+        assertEquals(4, prefetcher.getReadyCount());
+
+        // 取第一屏时都不用当场创建
+        for (int i = 0; i < 4; i++) {
+            assertNotNull(prefetcher.obtain());
+        }
+
+        assertEquals(0, mCreatedOnMain.get());
+
+        prefetcher.shutdown();
+    }
+
+    @Test
+    public void whenReady_firesWhenWorkerHasNothingLeftToCreate() throws Exception {
+        // 总数比要等的少
+        CardsPrefetcher prefetcher = new CardsPrefetcher(RuntimeEnvironment.application, 4, 2, mFactory);
+
+        awaitReady(prefetcher, 4);
+
+        assertEquals(2, prefetcher.getReadyCount());
+
+        prefetcher.shutdown();
+    }
+
+    @Test
+    public void shutdown_dropsPendingCallback() throws Exception {
+        CardsPrefetcher prefetcher = new CardsPrefetcher(RuntimeEnvironment.application, 4, 10, new CardsPrefetcher.Factory() {
+            @Override
+            public CardsBase createCard(Context context) {
+                // 一直创建不完
+                try {
+                    new CountDownLatch(1).await();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                return new CardsBase(context);
+            }
+        });
+
+        final CountDownLatch ready = new CountDownLatch(1);
+
+        prefetcher.whenReady(1, new Runnable() {
+            @Override
+            public void run() {
+                ready.countDown();
+            }
+        });
+
+        prefetcher.shutdown();
+        ShadowLooper.runUiThreadTasks();
+
+        assertEquals(1, ready.getCount());
+    }
+
+    // 注册 whenReady 并处理主线程的消息，直到回调执行，返回回调是否在主线程执行
+    private static boolean awaitReady(CardsPrefetcher prefetcher, int count) throws InterruptedException {
+        final CountDownLatch ready = new CountDownLatch(1);
+        final boolean[] onMain = new boolean[1];
+
+        prefetcher.whenReady(count, new Runnable() {
+            @Override
+            public void run() {
+                onMain[0] = (Looper.myLooper() == Looper.getMainLooper());
+                ready.countDown();
+            }
+        });
+
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+
+        do {
+            ShadowLooper.runUiThreadTasks();
+
+            assertTrue("prefetch timed out", System.currentTimeMillis() < deadline);
+        } while (!ready.await(1, TimeUnit.MILLISECONDS));
+
+        return onMain[0];
+    }
+}
@@ -0,0 +1,110 @@
+package com.wzhnsc.dealcardsdemo;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * 回弹静止后只放回离开过叠层位置的卡片，而且每帧最多放回一次。
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class CardsRepositionTest {
+    private static final long FRAME_NANOS = 16666667L;
+
+    private CardsContainer mContainer;
+    private CardsTraceRecorder mRecorder;
+
+    private long mNow = 0;
+
+    @Before
+    public void setUp() throws Exception {
+        mContainer = new CardsContainer(RuntimeEnvironment.application);
+        mRecorder  = new CardsTraceRecorder(16);
+
+        mContainer.setAdapter(new CardsAdapter() {
+            @Override
+            public int getCount() {
+                return 52;
+            }
+
+            @Override
+            public CardsBase onCreateCard(CardsContainer parent) {
+                Cards card = new Cards(parent.getContext());
+                card.setLayoutParams(new ViewGroup.LayoutParams(300, 300));
+
+                return card;
+            }
+
+            @Override
+            public void onBindCard(CardsBase card, int position) {
+                ((Cards)card).setNumber(position + 1);
+            }
+        });
+
+        mContainer.measure(View.MeasureSpec.makeMeasureSpec(1080, View.MeasureSpec.EXACTLY),
+                           View.MeasureSpec.makeMeasureSpec(1920, View.MeasureSpec.EXACTLY));
+        mContainer.layout(0, 0, 1080, 1920);
+        mContainer.setTracer(mRecorder);
+    }
+
+    @Test
+    public void snapBack_repositionsOnlyTheMovedCardOnce() throws Exception {
+        CardsBase top = mContainer.getTopChild();
+        int rawLeft = top.getLeft();
+        int rawTop  = top.getTop();
+
+        // 从偏离的位置回弹
+        top.offsetLeftAndRight(120);
+        top.offsetTopAndBottom(40);
+        top.animTo(rawLeft, rawTop);
+        runUntilRest();
+
+        assertEquals(1, mRecorder.getCounter(CardsTracer.COUNTER_REPOSITION_PASSES));
+        assertEquals(1, mRecorder.getCounter(CardsTracer.COUNTER_CHILD_REPOSITIONS));
+        assertEquals(0, mRecorder.getCounter(CardsTracer.COUNTER_ADJUST_PASSES));
+
+        assertEquals(rawLeft, top.getLeft());
+        assertEquals(rawTop, top.getTop());
+    }
+
+    @Test
+    public void cardsRestingInSameFrame_shareOnePass() throws Exception {
+        CardsBase top    = mContainer.getChildAtDepth(0);
+        CardsBase second = mContainer.getChildAtDepth(1);
+
+        int topLeft    = top.getLeft();
+        int secondLeft = second.getLeft();
+
+        // 同样的回弹同一帧静止
+        top.offsetLeftAndRight(50);
+        second.offsetLeftAndRight(50);
+        top.animTo(topLeft, top.getTop());
+        second.animTo(secondLeft, second.getTop());
+        runUntilRest();
+
+        assertEquals(1, mRecorder.getCounter(CardsTracer.COUNTER_REPOSITION_PASSES));
+        assertEquals(2, mRecorder.getCounter(CardsTracer.COUNTER_CHILD_REPOSITIONS));
+    }
+
+    private void runUntilRest() {
+        int frames = 0;
+
+        do {
+            mContainer.doMotionFrame(mNow);
+            mNow += FRAME_NANOS;
+            frames++;
+
+            assertTrue("spring never settled", frames < 1000);
+        }
+        while (mContainer.getMotionEngine().getActiveCount() > 0);
+    }
+}
@@ -0,0 +1,63 @@
+package com.wzhnsc.dealcardsdemo;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CardsRewindHistoryTest {
+    @Test
+    public void pop_returnsMostRecentFirst() throws Exception {
+        CardsRewindHistory history = new CardsRewindHistory(4);
+        history.push(1, 100, 0);
+        history.push(2, -100, 20);
+
+        assertEquals(2, history.size());
+        assertEquals(2, history.peekItem());
+        assertEquals(-100, history.peekExitX());
+        assertEquals(20, history.peekExitY());
+
+        history.pop();
+
+        assertEquals(1, history.peekItem());
+        assertEquals(100, history.peekExitX());
+
+        history.pop();
+
+        assertTrue(history.isEmpty());
+    }
+
+    @Test
+    public void push_overwritesOldestWhenFull() throws Exception {
+        CardsRewindHistory history = new CardsRewindHistory(3);
+
+        for (int i = 0; i < 5; i++) {
+            history.push(i, i, 0);
+        }
+
+        assertEquals(3, history.size());
+
+        for (int i = 4; i >= 2; i--) {
+            assertEquals(i, history.peekItem());
+            history.pop();
+        }
+
+        assertTrue(history.isEmpty());
+    }
+
+    @Test
+    public void zeroCapacity_recordsNothing() throws Exception {
+        CardsRewindHistory history = new CardsRewindHistory(0);
+        history.push(1, 0, 0);
+
+        assertTrue(history.isEmpty());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void pop_rejectsEmptyHistory() throws Exception {
+        CardsRewindHistory history = new CardsRewindHistory(2);
+        history.push(1, 0, 0);
+        history.clear();
+
+        history.pop();
+    }
+}
@@ -0,0 +1,186 @@
+package com.wzhnsc.dealcardsdemo;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * 撤销飞出：卡片从飞出的方向弹回最顶层，由窗口最底层的子视图改绑，不创建视图。
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class CardsRewindTest {
+    private static final int DECK_SIZE = 52;
+    private static final long FRAME_NANOS = 16666667L;
+
+    private CardsContainer mContainer;
+    private CountingAdapter mAdapter;
+
+    private long mNow = 0;
+
+    @Before
+    public void setUp() throws Exception {
+        mAdapter   = new CountingAdapter();
+        mContainer = new CardsContainer(RuntimeEnvironment.application);
+        mContainer.setAdapter(mAdapter);
+
+        mContainer.measure(View.MeasureSpec.makeMeasureSpec(1080, View.MeasureSpec.EXACTLY),
+                           View.MeasureSpec.makeMeasureSpec(1920, View.MeasureSpec.EXACTLY));
+        mContainer.layout(0, 0, 1080, 1920);
+    }
+
+    @Test
+    public void rewind_springsCardBackFromWhereItLeft() throws Exception {
+        CardsBase top = mContainer.getTopChild();
+        int rawLeft = top.getLeft() + (int)top.getTranslationX();
+        int rawTop  = top.getTop()  + (int)top.getTranslationY();
+
+        dismissTopChild();
+
+        assertEquals(1, mContainer.getTopPosition());
+        assertEquals(1, mContainer.getRewindCount());
+
+        int created = mAdapter.created;
+        int bound   = mAdapter.bound;
+
+        assertTrue(mContainer.rewind());
+
+        assertEquals(0, mContainer.getTopPosition());
+        assertEquals(0, mContainer.getRewindCount());
+
+        // 没有创建视图，只改绑了一张
+        assertEquals(created, mAdapter.created);
+        assertEquals(bound + 1, mAdapter.bound);
+        assertEquals(mContainer.getWindowSize(), mContainer.getChildCount());
+
+        // 从飞出的位置开始
+        CardsBase rewound = mContainer.getTopChild();
+
+        assertEquals(0, rewound.mPosition);
+        assertEquals(rawLeft + mContainer.getWidth(), rewound.getLeft() + (int)rewound.getTranslationX());
+
+        runUntilAtRest();
+
+        assertEquals(rawLeft, rewound.getLeft() + (int)rewound.getTranslationX());
+        assertEquals(rawTop, rewound.getTop() + (int)rewound.getTranslationY());
+
+        for (int i = 0; i < mContainer.getWindowSize(); i++) {
+            assertEquals(i, mContainer.getChildAtDepth(i).mPosition);
+        }
+    }
+
+    @Test
+    public void rewind_undoesInReverseOrder() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            dismissTopChild();
+        }
+
+        for (int i = 4; i >= 0; i--) {
+            assertTrue(mContainer.rewind());
+            assertEquals(i, mContainer.getTopPosition());
+
+            runUntilAtRest();
+        }
+
+        assertFalse(mContainer.rewind());
+    }
+
+    @Test
+    public void capacity_boundsHistory() throws Exception {
+        mContainer.setRewindCapacity(2);
+
+        for (int i = 0; i < 5; i++) {
+            dismissTopChild();
+        }
+
+        assertEquals(2, mContainer.getRewindCount());
+
+        assertTrue(mContainer.rewind());
+        assertTrue(mContainer.rewind());
+        assertFalse(mContainer.rewind());
+
+        assertEquals(3, mContainer.getTopPosition());
+    }
+
+    @Test
+    public void rewind_isRefusedWhileCardsAreFlying() throws Exception {
+        dismissTopChild();
+
+        mContainer.deal(1, CardsContainer.VanishTopChildMode.VANISHING_TYPE_TO_LEFT, 0, null);
+        frame();
+
+        assertFalse(mContainer.rewind());
+
+        runUntilAtRest();
+
+        // 两张都能撤销
+        assertTrue(mContainer.rewind());
+        assertEquals(1, mContainer.getTopPosition());
+    }
+
+    @Test
+    public void newAdapter_clearsHistory() throws Exception {
+        dismissTopChild();
+
+        mContainer.setAdapter(new CountingAdapter());
+
+        assertFalse(mContainer.rewind());
+    }
+
+    private void frame() {
+        mContainer.doMotionFrame(mNow);
+        mNow += FRAME_NANOS;
+    }
+
+    private void runUntilAtRest() {
+        int frames = 0;
+
+        do {
+            frame();
+            frames++;
+
+            assertTrue("cards never came to rest", frames < 10000);
+        } while (0 != mContainer.getMotionEngine().getActiveCount());
+    }
+
+    // 模拟最顶层子视图飞出后动画结束
+    private void dismissTopChild() {
+        mContainer.getTopChild().offsetLeftAndRight(mContainer.getWidth());
+        mContainer.dismissTopChild();
+    }
+
+    private static class CountingAdapter extends CardsAdapter {
+        int created;
+        int bound;
+
+        @Override
+        public int getCount() {
+            return DECK_SIZE;
+        }
+
+        @Override
+        public CardsBase onCreateCard(CardsContainer parent) {
+            created++;
+
+            FlatCards card = new FlatCards(parent.getContext());
+            card.setLayoutParams(new ViewGroup.LayoutParams(300, 300));
+
+            return card;
+        }
+
+        @Override
+        public void onBindCard(CardsBase card, int position) {
+            bound++;
+
+            ((FlatCards)card).setNumber(position + 1);
+        }
+    }
+}
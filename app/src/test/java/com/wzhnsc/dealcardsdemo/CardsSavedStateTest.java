@@ -0,0 +1,224 @@
+package com.wzhnsc.dealcardsdemo;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * 配置变化后恢复牌堆顺序、拖动中的偏移和没飞完的牌，窗口内的子视图复用而不是重新创建。
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class CardsSavedStateTest {
+    private static final int DECK_SIZE = 1000;
+    private static final long FRAME_NANOS = 16666667L;
+
+    private CardsContainer mContainer;
+
+    private long mNow = 0;
+
+    @Before
+    public void setUp() throws Exception {
+        mContainer = new CardsContainer(RuntimeEnvironment.application);
+        mContainer.setAdapter(new CountingAdapter());
+        layoutContainer(mContainer);
+    }
+
+    @Test
+    public void deckOrder_isRestoredByRebinding() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            dismissTopChild();
+        }
+
+        CardsContainer.SavedState state = saveAndParcel();
+
+        assertEquals(DECK_SIZE, state.deckOrder.length);
+
+        CardsContainer restored = new CardsContainer(RuntimeEnvironment.application);
+        CountingAdapter adapter = new CountingAdapter();
+
+        restored.setAdapter(adapter);
+        int bound = adapter.bound;
+
+        restored.onRestoreInstanceState(state);
+        layoutContainer(restored);
+
+        assertEquals(3, restored.getTopPosition());
+
+        // 窗口内每层绑定的是牌堆顶部的几张
+        for (int i = 0; i < restored.getWindowSize(); i++) {
+            assertEquals(3 + i, restored.getChildAtDepth(i).mPosition);
+        }
+
+        // 没有新建子视图，只是重新绑定
+        assertEquals(restored.getWindowSize(), adapter.created);
+        assertEquals(restored.getWindowSize(), restored.getChildCount());
+        assertEquals(bound + restored.getWindowSize(), adapter.bound);
+    }
+
+    @Test
+    public void restoreBeforeAdapter_isAppliedWhenAdapterIsSet() throws Exception {
+        dismissTopChild();
+        dismissTopChild();
+
+        CardsContainer.SavedState state = saveAndParcel();
+
+        CardsContainer restored = new CardsContainer(RuntimeEnvironment.application);
+        restored.onRestoreInstanceState(state);
+        restored.setAdapter(new CountingAdapter());
+
+        assertEquals(2, restored.getTopPosition());
+    }
+
+    @Test
+    public void mismatchedDeck_isIgnored() throws Exception {
+        dismissTopChild();
+
+        CardsContainer.SavedState state = saveAndParcel();
+
+        CardsContainer restored = new CardsContainer(RuntimeEnvironment.application);
+        restored.setAdapter(new CountingAdapter(DECK_SIZE - 1));
+        restored.onRestoreInstanceState(state);
+
+        assertEquals(0, restored.getTopPosition());
+    }
+
+    @Test
+    public void topOffset_isRestoredAndSpringsBack() throws Exception {
+        CardsBase top = mContainer.getTopChild();
+        int rawLeft = top.getLeft();
+
+        // 拖动到一半
+        top.offsetLeftAndRight(100);
+
+        CardsContainer.SavedState state = saveAndParcel();
+
+        CardsContainer restored = new CardsContainer(RuntimeEnvironment.application);
+        restored.setAdapter(new CountingAdapter());
+        restored.onRestoreInstanceState(state);
+        layoutContainer(restored);
+
+        CardsBase restoredTop = restored.getTopChild();
+
+        assertEquals(rawLeft + 100, restoredTop.getLeft() + (int)restoredTop.getTranslationX());
+
+        runUntilAtRest(restored);
+
+        assertEquals(rawLeft, restoredTop.getLeft() + (int)restoredTop.getTranslationX());
+        assertEquals(0, restored.getTopPosition());
+    }
+
+    @Test
+    public void pendingDismissals_completeAfterRestore() throws Exception {
+        mContainer.deal(5, CardsContainer.VanishTopChildMode.VANISHING_TYPE_TO_RIGHT, 50, null);
+
+        frame(mContainer);
+
+        CardsContainer.SavedState state = saveAndParcel();
+
+        assertEquals(5, state.pendingDismissals.length);
+
+        CardsContainer restored = new CardsContainer(RuntimeEnvironment.application);
+        restored.setAdapter(new CountingAdapter());
+        restored.onRestoreInstanceState(state);
+        layoutContainer(restored);
+
+        // 还没到达的牌仍在牌堆顶部
+        assertEquals(0, restored.getTopPosition());
+
+        runUntilAtRest(restored);
+
+        assertEquals(5, restored.getTopPosition());
+    }
+
+    private CardsContainer.SavedState saveAndParcel() {
+        Parcelable saved = mContainer.onSaveInstanceState();
+
+        Parcel parcel = Parcel.obtain();
+
+        try {
+            saved.writeToParcel(parcel, 0);
+            parcel.setDataPosition(0);
+
+            return CardsContainer.SavedState.CREATOR.createFromParcel(parcel);
+        }
+        finally {
+            parcel.recycle();
+        }
+    }
+
+    private void frame(CardsContainer container) {
+        container.doMotionFrame(mNow);
+        mNow += FRAME_NANOS;
+    }
+
+    private void runUntilAtRest(CardsContainer container) {
+        int frames = 0;
+
+        do {
+            frame(container);
+            frames++;
+
+            assertTrue("cards never came to rest", frames < 10000);
+        } while (0 != container.getMotionEngine().getActiveCount());
+    }
+
+    private static void layoutContainer(CardsContainer container) {
+        container.measure(View.MeasureSpec.makeMeasureSpec(1080, View.MeasureSpec.EXACTLY),
+                          View.MeasureSpec.makeMeasureSpec(1920, View.MeasureSpec.EXACTLY));
+        container.layout(0, 0, 1080, 1920);
+    }
+
+    // 模拟最顶层子视图飞出后动画结束
+    private void dismissTopChild() {
+        mContainer.getTopChild().offsetLeftAndRight(mContainer.getWidth());
+        mContainer.dismissTopChild();
+    }
+
+    private static class CountingAdapter extends CardsAdapter {
+        private final int mCount;
+
+        int created;
+        int bound;
+
+        CountingAdapter() {
+            this(DECK_SIZE);
+        }
+
+        CountingAdapter(int count) {
+            mCount = count;
+        }
+
+        @Override
+        public int getCount() {
+            return mCount;
+        }
+
+        @Override
+        public CardsBase onCreateCard(CardsContainer parent) {
+            created++;
+
+            Cards card = new Cards(parent.getContext());
+            card.setLayoutParams(new ViewGroup.LayoutParams(300, 300));
+
+            return card;
+        }
+
+        @Override
+        public void onBindCard(CardsBase card, int position) {
+            bound++;
+
+            ((Cards)card).setNumber(position + 1);
+        }
+    }
+}
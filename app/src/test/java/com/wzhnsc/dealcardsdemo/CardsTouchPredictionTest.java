@@ -0,0 +1,140 @@
+package com.wzhnsc.dealcardsdemo;
+
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * 开启触摸外推后，拖动中的卡片领先手指约 速度 x 外推时长，松手时按手指的实际位置判断。
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class CardsTouchPredictionTest {
+    // 每 8 毫秒一个事件，每次右移 8 像素，即 1000 像素/秒
+    private static final int EVENT_MILLIS = 8;
+    private static final int STEP = 8;
+    private static final int MOVES = 12;
+
+    private static final int DOWN_X = 150;
+    private static final int DOWN_Y = 150;
+
+    private CardsContainer mContainer;
+
+    @Before
+    public void setUp() throws Exception {
+        mContainer = new CardsContainer(RuntimeEnvironment.application);
+
+        mContainer.setAdapter(new CardsAdapter() {
+            @Override
+            public int getCount() {
+                return 52;
+            }
+
+            @Override
+            public CardsBase onCreateCard(CardsContainer parent) {
+                FlatCards card = new FlatCards(parent.getContext());
+                card.setLayoutParams(new ViewGroup.LayoutParams(300, 300));
+
+                return card;
+            }
+
+            @Override
+            public void onBindCard(CardsBase card, int position) {
+                ((FlatCards)card).setNumber(position + 1);
+            }
+        });
+
+        mContainer.measure(View.MeasureSpec.makeMeasureSpec(1080, View.MeasureSpec.EXACTLY),
+                           View.MeasureSpec.makeMeasureSpec(1920, View.MeasureSpec.EXACTLY));
+        mContainer.layout(0, 0, 1080, 1920);
+    }
+
+    @Test
+    public void prediction_leadsFingerByVelocityTimesHorizon() throws Exception {
+        mContainer.setTouchPredictionEnabled(true);
+        mContainer.setTouchPredictionMillis(16);
+
+        CardsBase top = mContainer.getTopChild();
+        int rawLeft = top.getLeft();
+
+        int x = drag();
+
+        // 手指实际位置下卡片应在 rawLeft + (x - DOWN_X) ，外推 16 毫秒领先 16 像素
+        int lead = top.getLeft() - (rawLeft + x - DOWN_X);
+
+        assertEquals(16, lead, 2);
+    }
+
+    @Test
+    public void prediction_alsoMovesLowerCards() throws Exception {
+        mContainer.setTouchPredictionEnabled(true);
+        mContainer.setTouchPredictionMillis(16);
+
+        CardsBase top = mContainer.getTopChild();
+        CardsBase second = mContainer.getChildAtDepth(1);
+        int rawLeft = top.getLeft();
+
+        int x = drag();
+
+        int lead = top.getLeft() - (rawLeft + x - DOWN_X);
+
+        // 层间距 100 ，下一层按最后一次位移加上外推偏移跟随，不落在后面
+        assertTrue(lead > 0);
+        assertEquals(rawLeft + 100 - (STEP + lead), second.getLeft(), 1);
+    }
+
+    @Test
+    public void withoutPrediction_cardFollowsLatestSample() throws Exception {
+        CardsBase top = mContainer.getTopChild();
+        int rawLeft = top.getLeft();
+
+        int x = drag();
+
+        assertEquals(rawLeft + x - DOWN_X, top.getLeft());
+    }
+
+    @Test
+    public void release_usesActualFingerPosition() throws Exception {
+        mContainer.setTouchPredictionEnabled(true);
+
+        CardsBase top = mContainer.getTopChild();
+        int rawLeft = top.getLeft();
+
+        int x = drag();
+
+        dispatch(MotionEvent.ACTION_UP, (MOVES + 1) * EVENT_MILLIS, x, DOWN_Y);
+
+        // 去掉了外推偏移，停在手指抬起的位置上
+        assertEquals(rawLeft + x - DOWN_X, top.getLeft());
+    }
+
+    // 按下后匀速右移，返回最后的触点横坐标
+    private int drag() {
+        dispatch(MotionEvent.ACTION_DOWN, 0, DOWN_X, DOWN_Y);
+
+        int x = DOWN_X;
+
+        for (int i = 1; i <= MOVES; i++) {
+            x += STEP;
+            dispatch(MotionEvent.ACTION_MOVE, i * EVENT_MILLIS, x, DOWN_Y);
+        }
+
+        return x;
+    }
+
+    private void dispatch(int action, long eventTime, float x, float y) {
+        MotionEvent event = MotionEvent.obtain(0, eventTime, action, x, y, 0);
+
+        mContainer.dispatchTouchEvent(event);
+        event.recycle();
+    }
+}
@@ -0,0 +1,101 @@
+package com.wzhnsc.dealcardsdemo;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * 拖动热路径(真实容器的跟随 + 松手后的调整 + 诊断记录)在稳定状态下不分配任何对象。
+ * 直接调用容器的拖动回调，绕开 Robolectric 触摸事件分发本身的分配。
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class CardsTraceRecorderTest {
+    private static final int FRAMES = 1000;
+    private static final int CHILDREN = 50;
+
+    @Test
+    public void dragFrames_allocateNothing() throws Exception {
+        CardsContainer container = new CardsContainer(RuntimeEnvironment.application);
+        container.setWindowSize(CHILDREN);
+
+        // 数据源、测量和布局与性能回放相同
+        new CardsPerfHarness(container);
+
+        CardsTraceRecorder recorder = new CardsTraceRecorder(256);
+        container.setTracer(recorder);
+
+        com.sun.management.ThreadMXBean threadBean =
+            (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        assertTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        long threadId = Thread.currentThread().getId();
+
+        // 先预热，排除类加载和 JIT 的影响
+        for (int i = 0; i < 20; i++) {
+            drag(container);
+        }
+        recorder.reset();
+
+        // 读取分配量本身的开销
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        long after  = threadBean.getThreadAllocatedBytes(threadId);
+        long overhead = after - before;
+
+        before = threadBean.getThreadAllocatedBytes(threadId);
+        drag(container);
+        after  = threadBean.getThreadAllocatedBytes(threadId);
+
+        assertEquals(0, after - before - overhead);
+
+        assertEquals(FRAMES, recorder.getCounter(CardsTracer.COUNTER_DRAG_FRAMES));
+        assertEquals(FRAMES, recorder.getSectionCount(CardsTracer.SECTION_DRAG_FRAME));
+        assertEquals(1, recorder.getCounter(CardsTracer.COUNTER_ADJUST_PASSES));
+
+        // 每帧下面的各层跟随，松手后每层放回一次
+        assertEquals(FRAMES * (CHILDREN - 1) + CHILDREN, recorder.getCounter(CardsTracer.COUNTER_CHILD_LAYOUTS));
+    }
+
+    @Test
+    public void samples_wrapAroundRingBuffer() throws Exception {
+        CardsTraceRecorder recorder = new CardsTraceRecorder(4);
+
+        for (int i = 0; i < 10; i++) {
+            recorder.beginSection(CardsTracer.SECTION_ADJUST_CHILDREN);
+            recorder.endSection(CardsTracer.SECTION_ADJUST_CHILDREN);
+        }
+
+        assertEquals(10, recorder.getSectionCount(CardsTracer.SECTION_ADJUST_CHILDREN));
+        assertEquals(4, recorder.getSampleCount(CardsTracer.SECTION_ADJUST_CHILDREN));
+        assertTrue(recorder.getMaxNanos(CardsTracer.SECTION_ADJUST_CHILDREN)
+                   <= recorder.getTotalNanos(CardsTracer.SECTION_ADJUST_CHILDREN));
+
+        // 没有 begin 的 end 不记录
+        recorder.endSection(CardsTracer.SECTION_ADJUST_CHILDREN);
+        assertEquals(10, recorder.getSectionCount(CardsTracer.SECTION_ADJUST_CHILDREN));
+    }
+
+    // 最顶层来回拖动 FRAMES 帧，每帧与 ViewDragHelper 一样先移动最顶层再回调，最后放回叠层位置
+    private static void drag(CardsContainer container) {
+        CardsBase top = container.getTopChild();
+
+        for (int frame = 0; frame < FRAMES; frame++) {
+            int dx = (frame % 7) - 3;
+            int dy = (frame % 5) - 2;
+
+            top.offsetLeftAndRight(dx);
+            top.offsetTopAndBottom(dy);
+
+            container.onTopChildDragged(top, dx, dy);
+        }
+
+        container.adjustChildrenPosition();
+    }
+}
@@ -0,0 +1,109 @@
+package com.wzhnsc.dealcardsdemo;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * 卡片一样大时，容器的 MeasureSpec 不变就不再测量卡片。
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class CardsUniformMeasureTest {
+    private static final int WINDOW_SIZE = 8;
+
+    private CardsContainer mContainer;
+    private CardsTraceRecorder mRecorder;
+
+    @Before
+    public void setUp() throws Exception {
+        mContainer = new CardsContainer(RuntimeEnvironment.application);
+        mRecorder  = new CardsTraceRecorder(16);
+
+        mContainer.setUniformCardsEnabled(true);
+        mContainer.setWindowSize(WINDOW_SIZE);
+        mContainer.setAdapter(new CardsAdapter() {
+            @Override
+            public int getCount() {
+                return 52;
+            }
+
+            @Override
+            public CardsBase onCreateCard(CardsContainer parent) {
+                Cards card = new Cards(parent.getContext());
+                card.setLayoutParams(new ViewGroup.LayoutParams(300, 300));
+
+                return card;
+            }
+
+            @Override
+            public void onBindCard(CardsBase card, int position) {
+                ((Cards)card).setNumber(position + 1);
+            }
+        });
+        mContainer.setTracer(mRecorder);
+    }
+
+    @Test
+    public void firstPass_measuresPrototypeThenAppliesSize() throws Exception {
+        measure(1080, 1920);
+        mContainer.layout(0, 0, 1080, 1920);
+
+        assertEquals(WINDOW_SIZE, mRecorder.getCounter(CardsTracer.COUNTER_CHILD_MEASURES));
+
+        for (int i = 0; i < mContainer.getChildCount(); i++) {
+            assertEquals(300, mContainer.getChildAt(i).getMeasuredWidth());
+            assertEquals(300, mContainer.getChildAt(i).getMeasuredHeight());
+        }
+    }
+
+    @Test
+    public void sameSpecs_measureNothing() throws Exception {
+        measure(1080, 1920);
+        mContainer.layout(0, 0, 1080, 1920);
+        mRecorder.reset();
+
+        for (int i = 0; i < 10; i++) {
+            measure(1080, 1920);
+        }
+
+        assertEquals(0, mRecorder.getCounter(CardsTracer.COUNTER_CHILD_MEASURES));
+    }
+
+    @Test
+    public void changedSpecs_measureOnlyPrototype() throws Exception {
+        measure(1080, 1920);
+        mContainer.layout(0, 0, 1080, 1920);
+        mRecorder.reset();
+
+        // 旋转屏幕，卡片大小不变
+        measure(1920, 1080);
+
+        assertEquals(1, mRecorder.getCounter(CardsTracer.COUNTER_CHILD_MEASURES));
+    }
+
+    @Test
+    public void changedContent_remeasuresOnlyThatCard() throws Exception {
+        measure(1080, 1920);
+        mContainer.layout(0, 0, 1080, 1920);
+        mRecorder.reset();
+
+        mContainer.getChildAt(0).requestLayout();
+        measure(1080, 1920);
+
+        assertEquals(1, mRecorder.getCounter(CardsTracer.COUNTER_CHILD_MEASURES));
+    }
+
+    private void measure(int width, int height) {
+        mContainer.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                           View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY));
+    }
+}
@@ -0,0 +1,117 @@
+package com.wzhnsc.dealcardsdemo;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * 超出显示层数的卡片不布局，每次调整的开销只与显示层数有关。
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class CardsVisibleDepthTest {
+    private static final int WINDOW_SIZE = 20;
+    private static final int MAX_VISIBLE_DEPTH = 2;
+
+    private CardsContainer mContainer;
+    private CardsTraceRecorder mRecorder;
+
+    @Before
+    public void setUp() throws Exception {
+        mContainer = new CardsContainer(RuntimeEnvironment.application);
+        mRecorder  = new CardsTraceRecorder(16);
+
+        mContainer.setMaxVisibleDepth(MAX_VISIBLE_DEPTH);
+        mContainer.setWindowSize(WINDOW_SIZE);
+        mContainer.setAdapter(new CardsAdapter() {
+            @Override
+            public int getCount() {
+                return 52;
+            }
+
+            @Override
+            public CardsBase onCreateCard(CardsContainer parent) {
+                Cards card = new Cards(parent.getContext());
+                card.setLayoutParams(new ViewGroup.LayoutParams(300, 300));
+
+                return card;
+            }
+
+            @Override
+            public void onBindCard(CardsBase card, int position) {
+                ((Cards)card).setNumber(position + 1);
+            }
+        });
+
+        mContainer.measure(View.MeasureSpec.makeMeasureSpec(1080, View.MeasureSpec.EXACTLY),
+                           View.MeasureSpec.makeMeasureSpec(1920, View.MeasureSpec.EXACTLY));
+        mContainer.layout(0, 0, 1080, 1920);
+        mContainer.setTracer(mRecorder);
+    }
+
+    @Test
+    public void adjust_laysOutOnlyVisibleLayers() throws Exception {
+        mContainer.adjustChildrenPosition();
+
+        assertEquals(MAX_VISIBLE_DEPTH + 1, mRecorder.getCounter(CardsTracer.COUNTER_CHILD_LAYOUTS));
+    }
+
+    @Test
+    public void dismissing_bringsNextCardIntoPlace() throws Exception {
+        CardsBase entering = mContainer.getChildAtDepth(MAX_VISIBLE_DEPTH + 1);
+
+        mContainer.getTopChild().offsetLeftAndRight(mContainer.getWidth());
+        mContainer.dismissTopChild();
+
+        // 进入显示范围的卡片摆到最底下的可见层
+        assertSame(entering, mContainer.getChildAtDepth(MAX_VISIBLE_DEPTH));
+        assertEquals(mContainer.getTopChild().getLeft() + 100 * MAX_VISIBLE_DEPTH, entering.getLeft());
+    }
+
+    @Test
+    public void measure_skipsHiddenLayers() throws Exception {
+        mContainer.requestLayout();
+        mContainer.measure(View.MeasureSpec.makeMeasureSpec(1080, View.MeasureSpec.EXACTLY),
+                           View.MeasureSpec.makeMeasureSpec(1920, View.MeasureSpec.EXACTLY));
+
+        assertEquals(MAX_VISIBLE_DEPTH + 1, mRecorder.getCounter(CardsTracer.COUNTER_CHILD_MEASURES));
+        assertEquals(0, mContainer.getChildAtDepth(MAX_VISIBLE_DEPTH + 1).getMeasuredWidth());
+    }
+
+    @Test
+    public void dismissing_measuresEnteringCardAndKeepsSkippingHiddenLayers() throws Exception {
+        CardsBase entering = mContainer.getChildAtDepth(MAX_VISIBLE_DEPTH + 1);
+
+        mContainer.getTopChild().offsetLeftAndRight(mContainer.getWidth());
+        mContainer.dismissTopChild();
+
+        // 进入显示范围时才测量
+        assertEquals(300, entering.getMeasuredWidth());
+        assertEquals(300, entering.getMeasuredHeight());
+
+        mContainer.setOcclusionClipEnabled(false);
+        mContainer.draw(new Canvas(Bitmap.createBitmap(1080, 1920, Bitmap.Config.ARGB_8888)));
+
+        assertEquals(MAX_VISIBLE_DEPTH + 1, mRecorder.getCounter(CardsTracer.COUNTER_CARDS_DRAWN));
+        assertEquals(WINDOW_SIZE - MAX_VISIBLE_DEPTH - 1, mRecorder.getCounter(CardsTracer.COUNTER_CARDS_SKIPPED));
+    }
+
+    @Test
+    public void hiddenLayers_areNotDrawn() throws Exception {
+        mContainer.setOcclusionClipEnabled(false);
+        mContainer.draw(new Canvas(Bitmap.createBitmap(1080, 1920, Bitmap.Config.ARGB_8888)));
+
+        assertEquals(MAX_VISIBLE_DEPTH + 1, mRecorder.getCounter(CardsTracer.COUNTER_CARDS_DRAWN));
+        assertEquals(WINDOW_SIZE - MAX_VISIBLE_DEPTH - 1, mRecorder.getCounter(CardsTracer.COUNTER_CARDS_SKIPPED));
+    }
+}
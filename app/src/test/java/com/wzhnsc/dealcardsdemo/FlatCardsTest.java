@@ -0,0 +1,51 @@
+package com.wzhnsc.dealcardsdemo;
+
+import android.content.res.Configuration;
+import android.graphics.Color;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * 卡片共用的文字排版缓存按文字大小和颜色区分，配置变化后按新的文字大小重新排版。
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class FlatCardsTest {
+    @Test
+    public void labelCache_isSharedOnlyForSameTextSizeAndColor() throws Exception {
+        CardsLabelCache cache = FlatCards.obtainLabelCache(40f, Color.BLACK);
+
+        assertSame(cache, FlatCards.obtainLabelCache(40f, Color.BLACK));
+
+        CardsLabelCache larger = FlatCards.obtainLabelCache(60f, Color.BLACK);
+
+        assertNotSame(cache, larger);
+        assertEquals(60f, larger.getPaint().getTextSize(), 0);
+        assertNotSame(larger, FlatCards.obtainLabelCache(60f, Color.RED));
+    }
+
+    @Test
+    public void configurationChange_relayoutsWithCurrentTextSize() throws Exception {
+        FlatCards card = new FlatCards(RuntimeEnvironment.application);
+        card.setNumber(7);
+
+        float textSize = card.getLabelCache().getPaint().getTextSize();
+
+        // 模拟字体缩放变化前创建的缓存
+        FlatCards.obtainLabelCache(textSize * 2, card.getLabelCache().getPaint().getColor());
+
+        FlatCards later = new FlatCards(RuntimeEnvironment.application);
+
+        card.onConfigurationChanged(new Configuration());
+
+        // 按资源中当前的文字大小
+        assertEquals(textSize, card.getLabelCache().getPaint().getTextSize(), 0);
+        assertEquals(textSize, later.getLabelCache().getPaint().getTextSize(), 0);
+    }
+}
@@ -0,0 +1,130 @@
+package com.wzhnsc.dealcardsdemo;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * 卡片视图不再显示时释放图片：换数据源、整体刷新、容器离开窗口后，图片都不再被 pin 住。
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class ImageCardsAdapterTest {
+    private static final int DECK_SIZE = 52;
+
+    private CardsBitmapCache mCache;
+    private CardsImageLoader mLoader;
+    private CardsContainer mContainer;
+
+    @Before
+    public void setUp() throws Exception {
+        mCache  = new CardsBitmapCache(1000000);
+        mLoader = new CardsImageLoader(new CardsImageLoader.Source() {
+            @Override
+            public InputStream open(String key) throws IOException {
+                // 不需要真的解码
+                return null;
+            }
+        }, mCache, 1);
+
+        mContainer = new CardsContainer(RuntimeEnvironment.application);
+        mContainer.setAdapter(new KeyAdapter(mLoader, "a"));
+
+        mContainer.measure(View.MeasureSpec.makeMeasureSpec(1080, View.MeasureSpec.EXACTLY),
+                           View.MeasureSpec.makeMeasureSpec(1920, View.MeasureSpec.EXACTLY));
+        mContainer.layout(0, 0, 1080, 1920);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mLoader.shutdown();
+    }
+
+    @Test
+    public void windowCards_pinTheirImages() throws Exception {
+        for (int i = 0; i < mContainer.getWindowSize(); i++) {
+            assertTrue(mCache.isPinned("a" + i));
+        }
+
+        assertFalse(mCache.isPinned("a" + mContainer.getWindowSize()));
+    }
+
+    @Test
+    public void newAdapter_releasesOldImages() throws Exception {
+        mContainer.setAdapter(new KeyAdapter(mLoader, "b"));
+
+        for (int i = 0; i < mContainer.getWindowSize(); i++) {
+            assertFalse(mCache.isPinned("a" + i));
+            assertTrue(mCache.isPinned("b" + i));
+        }
+    }
+
+    @Test
+    public void dataSetChanged_releasesBeforeRebinding() throws Exception {
+        mContainer.getAdapter().notifyDataSetChanged();
+
+        // 同一张图片只被 pin 一次
+        for (int i = 0; i < mContainer.getWindowSize(); i++) {
+            mCache.unpin("a" + i);
+
+            assertFalse(mCache.isPinned("a" + i));
+        }
+    }
+
+    @Test
+    public void detach_releasesAndAttachRebinds() throws Exception {
+        mContainer.onDetachedFromWindow();
+
+        for (int i = 0; i < mContainer.getWindowSize(); i++) {
+            assertFalse(mCache.isPinned("a" + i));
+            assertNull(((ImageCards)mContainer.getChildAtDepth(i)).getImageKey());
+        }
+
+        mContainer.onAttachedToWindow();
+
+        for (int i = 0; i < mContainer.getWindowSize(); i++) {
+            assertTrue(mCache.isPinned("a" + i));
+            assertEquals("a" + i, ((ImageCards)mContainer.getChildAtDepth(i)).getImageKey());
+        }
+    }
+
+    private static class KeyAdapter extends ImageCardsAdapter {
+        private final String mPrefix;
+
+        KeyAdapter(CardsImageLoader loader, String prefix) {
+            super(loader);
+
+            mPrefix = prefix;
+        }
+
+        @Override
+        public int getCount() {
+            return DECK_SIZE;
+        }
+
+        @Override
+        public String getImageKey(int position) {
+            return mPrefix + position;
+        }
+
+        @Override
+        public CardsBase onCreateCard(CardsContainer parent) {
+            ImageCards card = new ImageCards(parent.getContext());
+            card.setLayoutParams(new ViewGroup.LayoutParams(300, 300));
+
+            return card;
+        }
+    }
+}
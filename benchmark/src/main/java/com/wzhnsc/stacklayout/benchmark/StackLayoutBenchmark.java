@@ -0,0 +1,77 @@
+package com.wzhnsc.stacklayout.benchmark;
+
+import com.wzhnsc.stacklayout.StackLayoutEngine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// 叠层计算的基准：静止布局、拖动跟随、松手目标，叠层数从 4 到 10000
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StackLayoutBenchmark {
+    @Param({"4", "52", "1000", "10000"})
+    public int stackSize;
+
+    private StackLayoutEngine mEngine;
+
+    private int[] mLefts;
+    private int[] mTops;
+    private final int[] mDest = new int[2];
+
+    // 每次调用换一个拖动距离，避免结果被常量折叠
+    private int mFrame;
+
+    @Setup
+    public void setUp() {
+        mEngine = new StackLayoutEngine();
+        mEngine.setOverlapOffsetDist(39);
+        mEngine.setCenter(true);
+        mEngine.setContainerSize(1080, 1920);
+        mEngine.setCardSize(900, 900);
+
+        mLefts = new int[stackSize];
+        mTops  = new int[stackSize];
+    }
+
+    @Benchmark
+    public void layout(Blackhole bh) {
+        mEngine.layout(stackSize, mLefts, mTops);
+
+        bh.consume(mLefts);
+        bh.consume(mTops);
+    }
+
+    @Benchmark
+    public void followDrag(Blackhole bh) {
+        int delta = (mFrame++ & 63) - 32;
+
+        mEngine.followDrag(90, 500, delta, -delta, stackSize, mLefts, mTops);
+
+        bh.consume(mLefts);
+        bh.consume(mTops);
+    }
+
+    @Benchmark
+    public int releaseTarget() {
+        int delta = (mFrame++ & 1023) - 512;
+
+        // 松手目标只与最顶层有关，叠层数不应影响耗时
+        return mEngine.computeReleaseTarget(90, 500, 90 + delta * 2, 500 + delta, mDest) + mDest[1];
+    }
+}
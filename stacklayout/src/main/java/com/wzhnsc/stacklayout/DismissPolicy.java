@@ -0,0 +1,116 @@
+package com.wzhnsc.stacklayout;
+
+// 松手时根据拖动距离和速度决定是否飞出消失
+// 原来只看拖动距离，快速甩动也要拖过半张卡片宽才会飞出；
+// 这里按松手速度推算一小段时间后的位置来判断，速度足够快时直接飞出，
+// 飞出的时长也由松手速度决定，保持甩出去的速度而不是固定时长慢慢滑走。
+public class DismissPolicy {
+    // 推算位置超过卡片宽度的这个比例时飞出
+    private float mDistanceFraction = 0.5f;
+
+    // 按松手速度推算多少秒后的位置
+    private float mProjectionSeconds = 0.1f;
+
+    // 水平速度(像素/秒)不低于此值且方向与拖动方向一致时直接飞出，不看距离
+    private float mMinFlingVelocity = 2000f;
+
+    // 飞出时长(毫秒)的范围
+    private int mMinFlyOutMillis = 80;
+    private int mMaxFlyOutMillis = 300;
+
+    public void setDistanceFraction(float distanceFraction) {
+        mDistanceFraction = distanceFraction;
+    }
+
+    public float getDistanceFraction() {
+        return mDistanceFraction;
+    }
+
+    public void setProjectionSeconds(float projectionSeconds) {
+        mProjectionSeconds = projectionSeconds;
+    }
+
+    public float getProjectionSeconds() {
+        return mProjectionSeconds;
+    }
+
+    public void setMinFlingVelocity(float minFlingVelocity) {
+        mMinFlingVelocity = minFlingVelocity;
+    }
+
+    public float getMinFlingVelocity() {
+        return mMinFlingVelocity;
+    }
+
+    public void setFlyOutMillisRange(int minFlyOutMillis, int maxFlyOutMillis) {
+        if ((minFlyOutMillis <= 0) || (maxFlyOutMillis < minFlyOutMillis)) {
+            throw new IllegalArgumentException("invalid fly-out range: " + minFlyOutMillis + " ~ " + maxFlyOutMillis);
+        }
+
+        mMinFlyOutMillis = minFlyOutMillis;
+        mMaxFlyOutMillis = maxFlyOutMillis;
+    }
+
+    public int getMinFlyOutMillis() {
+        return mMinFlyOutMillis;
+    }
+
+    public int getMaxFlyOutMillis() {
+        return mMaxFlyOutMillis;
+    }
+
+    // 按速度推算 mProjectionSeconds 秒后离原始位置的距离
+    public float project(int dist, float velocity) {
+        return dist + velocity * mProjectionSeconds;
+    }
+
+    // 松手时离原始位置 (distX, distY)、速度 (xvel, yvel) ，
+    // 返回 StackLayoutEngine.RELEASE_* 之一
+    public int decide(int distX, int distY, float xvel, float yvel, int cardWidth) {
+        float projX = project(distX, xvel);
+        float projY = project(distY, yvel);
+
+        // 垂直上下拖动不消失
+        if (Math.abs(projY) >= (Math.abs(projX) * 3)) {
+            return StackLayoutEngine.RELEASE_SNAP_BACK;
+        }
+
+        // 甩动方向与拖动方向一致且足够快
+        if ((Math.abs(xvel) >= mMinFlingVelocity)
+         && (Math.abs(yvel) < (Math.abs(xvel) * 3))
+         && (((long)distX * (long)xvel) >= 0)) {
+            return (xvel > 0) ? StackLayoutEngine.RELEASE_DISMISS_RIGHT : StackLayoutEngine.RELEASE_DISMISS_LEFT;
+        }
+
+        float threshold = cardWidth * mDistanceFraction;
+
+        if (projX > threshold) {
+            return StackLayoutEngine.RELEASE_DISMISS_RIGHT;
+        }
+
+        if (projX < -threshold) {
+            return StackLayoutEngine.RELEASE_DISMISS_LEFT;
+        }
+
+        return StackLayoutEngine.RELEASE_SNAP_BACK;
+    }
+
+    // 以 speed (像素/秒)的初速减速飞过 distance 所需的时长
+    // 飞出是匀减速的，初速是平均速度的两倍，所以时长为 2 * 距离 / 初速
+    public int flyOutMillis(float distance, float speed) {
+        speed    = Math.abs(speed);
+        distance = Math.abs(distance);
+
+        if (speed <= 0) {
+            return mMaxFlyOutMillis;
+        }
+
+        int millis = (int)(2000f * distance / speed);
+
+        if (millis < mMinFlyOutMillis) {
+            return mMinFlyOutMillis;
+        }
+
+        return (millis > mMaxFlyOutMillis) ? mMaxFlyOutMillis : millis;
+    }
+}
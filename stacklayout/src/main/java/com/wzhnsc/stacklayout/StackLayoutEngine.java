@@ -0,0 +1,216 @@
+package com.wzhnsc.stacklayout;
+
+// 卡片叠层的位置计算，不依赖 Android 框架
+// 包括：静止时每一层的位置、拖动最顶层时下层的跟随位置、松手后飞出的目标位置。
+// 所有方法只使用基本类型，结果写入调用者提供的数组，不分配对象。
+public class StackLayoutEngine {
+    // 松手后回到原始位置
+    public static final int RELEASE_SNAP_BACK = 0;
+    // 松手后向左飞出消失
+    public static final int RELEASE_DISMISS_LEFT = 1;
+    // 松手后向右飞出消失
+    public static final int RELEASE_DISMISS_RIGHT = 2;
+
+    // 是否居中(否则居左上)
+    private boolean mCenter = false;
+
+    // 容器的宽高及内边距
+    private int mContainerWidth = 0;
+    private int mContainerHeight = 0;
+    private int mPaddingLeft = 0;
+    private int mPaddingTop = 0;
+    private int mPaddingRight = 0;
+    private int mPaddingBottom = 0;
+
+    // 卡片的宽高(每张卡片都一样)
+    private int mCardWidth = 0;
+    private int mCardHeight = 0;
+
+    // 松手时是否飞出的判断
+    private final DismissPolicy mDismissPolicy = new DismissPolicy();
+
+    // 每一层的偏移、缩放、透明度、高度
+    private final StackTransformTable mTransforms = new StackTransformTable();
+
+    // 每层偏移同样的距离
+    public void setOverlapOffsetDist(int overlapOffsetDist) {
+        mTransforms.setOffsets(0, overlapOffsetDist);
+    }
+
+    public int getOverlapOffsetDist() {
+        return layerOffset(1) - layerOffset(0);
+    }
+
+    public void setCenter(boolean center) {
+        mCenter = center;
+    }
+
+    public void setContainerSize(int width, int height) {
+        mContainerWidth  = width;
+        mContainerHeight = height;
+    }
+
+    public void setPadding(int left, int top, int right, int bottom) {
+        mPaddingLeft   = left;
+        mPaddingTop    = top;
+        mPaddingRight  = right;
+        mPaddingBottom = bottom;
+    }
+
+    public void setCardSize(int width, int height) {
+        mCardWidth  = width;
+        mCardHeight = height;
+    }
+
+    public int getCardWidth() {
+        return mCardWidth;
+    }
+
+    public int getCardHeight() {
+        return mCardHeight;
+    }
+
+    public DismissPolicy getDismissPolicy() {
+        return mDismissPolicy;
+    }
+
+    // 直接设置各层的偏移时，跟随拖动的比例按第 1 层的偏移计算
+    public StackTransformTable getTransformTable() {
+        return mTransforms;
+    }
+
+    // 共 layerCount 层时最顶层的左边
+    public int computeBaseLeft(int layerCount) {
+        int baseLeft = mPaddingLeft;
+
+        if (mCenter) {
+            // 叠层偏移延伸出的宽度
+            int overlapOffsetWidth = stackExtent(layerCount);
+
+            baseLeft += (mContainerWidth - mPaddingRight - mCardWidth - overlapOffsetWidth) / 2;
+        }
+
+        return baseLeft;
+    }
+
+    // 共 layerCount 层时最顶层的顶边
+    public int computeBaseTop(int layerCount) {
+        int baseTop = mPaddingTop;
+
+        if (mCenter) {
+            int overlapOffsetWidth = stackExtent(layerCount);
+
+            baseTop += (mContainerHeight - mPaddingBottom - mCardHeight - overlapOffsetWidth) / 2;
+        }
+
+        return baseTop;
+    }
+
+    // 第 depth 层相对最顶层的偏移
+    public int layerOffset(int depth) {
+        return mTransforms.offset(depth);
+    }
+
+    // 共 layerCount 层时最底层相对最顶层的偏移
+    private int stackExtent(int layerCount) {
+        return (layerCount > 0) ? layerOffset(layerCount - 1) : -layerOffset(1);
+    }
+
+    // 计算静止时每一层的左上角
+    public void layout(int layerCount, int[] outLefts, int[] outTops) {
+        mTransforms.prepare(layerCount);
+
+        int baseLeft = computeBaseLeft(layerCount);
+        int baseTop  = computeBaseTop(layerCount);
+
+        for (int i = 0; i < layerCount; i++) {
+            outLefts[i] = baseLeft + layerOffset(i);
+            outTops[i]  = baseTop  + layerOffset(i);
+        }
+    }
+
+    // 上层本帧移动的距离相对叠加偏移量的比例，最大为 1
+    public float followRate(int delta) {
+        float rate = Math.abs(delta) / (float)getOverlapOffsetDist();
+
+        return rate > 1 ? 1 : rate;
+    }
+
+    // 第 depth 层跟随上层移动后的位置：
+    // 不超过其上一层视图原来的位置，不低过它自身原来的位置
+    public int followPosition(int topChildRawPos, int depth, float rate) {
+        int itsOverlapOffsetDist = layerOffset(depth);
+
+        float newPos = topChildRawPos + itsOverlapOffsetDist;
+
+        return (int)(newPos - (itsOverlapOffsetDist * rate));
+    }
+
+    // 最顶层本帧移动了 (dx, dy) 后，计算第 1 ~ layerCount-1 层的位置
+    public void followDrag(int topChildRawLeft, int topChildRawTop,
+                           int dx, int dy,
+                           int layerCount,
+                           int[] outLefts, int[] outTops) {
+        float rateLeftRight = followRate(dx);
+        float rateTopBottom = followRate(dy);
+
+        for (int i = 1; i < layerCount; i++) {
+            outLefts[i] = followPosition(topChildRawLeft, i, rateLeftRight);
+            outTops[i]  = followPosition(topChildRawTop,  i, rateTopBottom);
+        }
+    }
+
+    // 最顶层在 (left, top) 松手时的去向，目标位置写入 outDest[0], outDest[1]
+    public int computeReleaseTarget(int topChildRawLeft, int topChildRawTop,
+                                    int left, int top,
+                                    int[] outDest) {
+        return computeReleaseTarget(topChildRawLeft, topChildRawTop, left, top, 0, 0, outDest);
+    }
+
+    // 最顶层在 (left, top) 以速度 (xvel, yvel) 松手时的去向，目标位置写入 outDest[0], outDest[1]
+    public int computeReleaseTarget(int topChildRawLeft, int topChildRawTop,
+                                    int left, int top,
+                                    float xvel, float yvel,
+                                    int[] outDest) {
+        // 当前松手时的位置点到原始位置点的距离
+        final int distX = left - topChildRawLeft;
+        final int distY = top  - topChildRawTop;
+
+        int result = mDismissPolicy.decide(distX, distY, xvel, yvel, mCardWidth);
+
+        // 沿推算出的方向飞出
+        float projX = mDismissPolicy.project(distX, xvel);
+        float projY = mDismissPolicy.project(distY, yvel);
+
+        // 最顶层子视图的右边点
+        final int topChildRawRight = topChildRawLeft + mCardWidth;
+
+        int destX = topChildRawLeft;
+        int destY = topChildRawTop;
+
+        // 向右滑出消失
+        if (RELEASE_DISMISS_RIGHT == result) {
+            destX = mContainerWidth;
+            destY = (int)(projY * topChildRawRight / Math.max(1, projX)) + topChildRawTop;
+        }
+        // 向左滑出消失
+        else if (RELEASE_DISMISS_LEFT == result) {
+            destX = -mCardWidth;
+            destY = (int)(projY * topChildRawRight / Math.max(1, -projX)) + topChildRawTop;
+        }
+
+        if (RELEASE_SNAP_BACK != result) {
+            if (destY > mContainerHeight) {
+                destY = mContainerHeight;
+            }
+            else if (destY < -mCardHeight) {
+                destY = -mCardHeight;
+            }
+        }
+
+        outDest[0] = destX;
+        outDest[1] = destY;
+
+        return result;
+    }
+}
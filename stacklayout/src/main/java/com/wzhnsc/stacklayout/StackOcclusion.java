@@ -0,0 +1,30 @@
+package com.wzhnsc.stacklayout;
+
+// 叠层遮挡的计算
+// 上一层卡片不透明的部分会完全盖住下一层，下一层只需绘制露出来的部分。
+public final class StackOcclusion {
+    private StackOcclusion() {
+    }
+
+    // 两个矩形相交部分的面积
+    public static long intersectionArea(int left1, int top1, int right1, int bottom1,
+                                        int left2, int top2, int right2, int bottom2) {
+        long width  = Math.min(right1, right2)   - Math.max(left1, left2);
+        long height = Math.min(bottom1, bottom2) - Math.max(top1, top2);
+
+        return ((width > 0) && (height > 0)) ? (width * height) : 0;
+    }
+
+    // 外矩形是否完全盖住内矩形
+    public static boolean contains(int outerLeft, int outerTop, int outerRight, int outerBottom,
+                                   int innerLeft, int innerTop, int innerRight, int innerBottom) {
+        return (outerLeft <= innerLeft) && (outerTop <= innerTop)
+            && (outerRight >= innerRight) && (outerBottom >= innerBottom);
+    }
+
+    // 以 origin + pivot 为中心缩放 scale 倍后，视图上 coordinate 处在父视图中的坐标
+    public static float scaleAboutPivot(float origin, float pivot, float scale, float coordinate) {
+        return origin + pivot + (coordinate - pivot) * scale;
+    }
+
+}
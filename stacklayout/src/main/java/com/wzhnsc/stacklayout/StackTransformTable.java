@@ -0,0 +1,166 @@
+package com.wzhnsc.stacklayout;
+
+// 每一层卡片的偏移、缩放、透明度、高度(elevation)
+// 每种属性给出前几层的值，更深的层按最后两层的差值继续递推，例如缩放给 {1, 0.94f} 即每层缩小 6% ，
+// 只给一个值时每层都一样。缩放不小于 0 ，透明度在 0 ~ 1 之间，高度不小于 0 。
+// 调用 prepare 时预先算好各层的值存入基本类型数组，拖动中每帧只查表和在相邻两层之间插值，不分配对象。
+public class StackTransformTable {
+    // 各属性前几层的值
+    private int[] mOffsetSteps = {0, 100};
+    private float[] mScaleSteps = {1f};
+    private float[] mAlphaSteps = {1f};
+    private float[] mElevationSteps = {0f};
+
+    // 预先算好的各层的值
+    private int[] mOffsets = new int[0];
+    private float[] mScales = new float[0];
+    private float[] mAlphas = new float[0];
+    private float[] mElevations = new float[0];
+
+    // 修改属性后表需要重算
+    private boolean mDirty = true;
+
+    // 缩放、透明度、高度是否每层都一样(都一样时不必设置)
+    private boolean mUniform = true;
+
+    public void setOffsets(int... offsets) {
+        if (offsets.length == 0) {
+            throw new IllegalArgumentException("offsets must not be empty");
+        }
+
+        mOffsetSteps = offsets.clone();
+        mDirty       = true;
+    }
+
+    public void setScales(float... scales) {
+        mScaleSteps = checkSteps(scales);
+        mDirty      = true;
+    }
+
+    public void setAlphas(float... alphas) {
+        mAlphaSteps = checkSteps(alphas);
+        mDirty      = true;
+    }
+
+    public void setElevations(float... elevations) {
+        mElevationSteps = checkSteps(elevations);
+        mDirty          = true;
+    }
+
+    // 预先算好前 depthCount 层，在布局时调用，层数不变且属性没改时什么也不做
+    public void prepare(int depthCount) {
+        if (!mDirty && (mOffsets.length >= depthCount)) {
+            return;
+        }
+
+        if (mOffsets.length < depthCount) {
+            mOffsets    = new int[depthCount];
+            mScales     = new float[depthCount];
+            mAlphas     = new float[depthCount];
+            mElevations = new float[depthCount];
+        }
+
+        mUniform = true;
+
+        for (int i = 0; i < mOffsets.length; i++) {
+            mOffsets[i]    = computeOffset(i);
+            mScales[i]     = computeScale(i);
+            mAlphas[i]     = computeAlpha(i);
+            mElevations[i] = computeElevation(i);
+
+            if ((mScales[i] != mScales[0]) || (mAlphas[i] != mAlphas[0]) || (mElevations[i] != mElevations[0])) {
+                mUniform = false;
+            }
+        }
+
+        mDirty = false;
+    }
+
+    // 缩放、透明度、高度是否每层都一样(以最近一次 prepare 为准)
+    public boolean isUniform() {
+        return mUniform;
+    }
+
+    // 第 depth 层相对最顶层的偏移
+    public int offset(int depth) {
+        return (!mDirty && (depth < mOffsets.length)) ? mOffsets[depth] : computeOffset(depth);
+    }
+
+    public float scale(int depth) {
+        return (!mDirty && (depth < mScales.length)) ? mScales[depth] : computeScale(depth);
+    }
+
+    public float alpha(int depth) {
+        return (!mDirty && (depth < mAlphas.length)) ? mAlphas[depth] : computeAlpha(depth);
+    }
+
+    public float elevation(int depth) {
+        return (!mDirty && (depth < mElevations.length)) ? mElevations[depth] : computeElevation(depth);
+    }
+
+    // 第 depth 层向上一层靠拢 progress (0 ~ 1) 时的值
+    public float scaleToward(int depth, float progress) {
+        return lerp(scale(depth), scale(Math.max(0, depth - 1)), progress);
+    }
+
+    public float alphaToward(int depth, float progress) {
+        return lerp(alpha(depth), alpha(Math.max(0, depth - 1)), progress);
+    }
+
+    public float elevationToward(int depth, float progress) {
+        return lerp(elevation(depth), elevation(Math.max(0, depth - 1)), progress);
+    }
+
+    private int computeOffset(int depth) {
+        return (int)extrapolate(mOffsetSteps, depth);
+    }
+
+    private float computeScale(int depth) {
+        return Math.max(0f, extrapolate(mScaleSteps, depth));
+    }
+
+    private float computeAlpha(int depth) {
+        return Math.max(0f, Math.min(1f, extrapolate(mAlphaSteps, depth)));
+    }
+
+    private float computeElevation(int depth) {
+        return Math.max(0f, extrapolate(mElevationSteps, depth));
+    }
+
+    // 超出给出的层数时按最后两层的差值递推
+    private static float extrapolate(int[] steps, int depth) {
+        int last = steps.length - 1;
+
+        if (depth <= last) {
+            return steps[depth];
+        }
+
+        int step = (last > 0) ? (steps[last] - steps[last - 1]) : 0;
+
+        return steps[last] + (float)step * (depth - last);
+    }
+
+    private static float extrapolate(float[] steps, int depth) {
+        int last = steps.length - 1;
+
+        if (depth <= last) {
+            return steps[depth];
+        }
+
+        float step = (last > 0) ? (steps[last] - steps[last - 1]) : 0;
+
+        return steps[last] + step * (depth - last);
+    }
+
+    private static float lerp(float from, float to, float progress) {
+        return from + (to - from) * progress;
+    }
+
+    private static float[] checkSteps(float[] steps) {
+        if (steps.length == 0) {
+            throw new IllegalArgumentException("steps must not be empty");
+        }
+
+        return steps.clone();
+    }
+}
@@ -0,0 +1,206 @@
+package com.wzhnsc.stacklayout;
+
+// 根据最近的触摸采样推算手指稍后的位置
+// 一个 MotionEvent 里批量带有两帧之间的所有历史采样，只看最后一个坐标时，卡片总是落后手指一帧左右。
+// 这里把每个采样都记下来，对最近 windowMillis 内的采样做最小二乘直线拟合求速度，
+// 再从最后一个采样出发按速度外推到画面显示的时刻。外推的距离不超过 maxOffset ，
+// 手指停下后窗口内只剩静止的采样，速度随之归零，卡片回到手指下面。
+// 手指加速度为 a 时，外推 h 秒的误差不超过 a * h * (h + 窗口时长) / 2 。
+// 采样保存在固定容量的环形缓冲区中，不分配对象。
+public class TouchPredictor {
+    // 最多保留的采样数
+    private static final int CAPACITY = 32;
+
+    private final long[] mTimes = new long[CAPACITY];
+    private final float[] mXs = new float[CAPACITY];
+    private final float[] mYs = new float[CAPACITY];
+
+    // 最早的采样下标和采样数
+    private int mHead = 0;
+    private int mCount = 0;
+
+    // 参与拟合的时间窗口(纳秒)
+    private long mWindowNanos = 50000000L;
+
+    // 外推的最大距离(像素)
+    private float mMaxOffset = 100f;
+
+    // 外推的最长时间(纳秒)
+    private long mMaxHorizonNanos = 50000000L;
+
+    // 最近一次拟合的速度(像素/秒)
+    private float mVelocityX = 0;
+    private float mVelocityY = 0;
+
+    private boolean mVelocityValid = false;
+
+    public void setWindowMillis(int windowMillis) {
+        if (windowMillis <= 0) {
+            throw new IllegalArgumentException("windowMillis must be positive");
+        }
+
+        mWindowNanos   = windowMillis * 1000000L;
+        mVelocityValid = false;
+    }
+
+    public int getWindowMillis() {
+        return (int)(mWindowNanos / 1000000L);
+    }
+
+    public void setMaxOffset(float maxOffset) {
+        mMaxOffset = maxOffset;
+    }
+
+    public float getMaxOffset() {
+        return mMaxOffset;
+    }
+
+    public void setMaxHorizonMillis(int maxHorizonMillis) {
+        mMaxHorizonNanos = maxHorizonMillis * 1000000L;
+    }
+
+    public int getMaxHorizonMillis() {
+        return (int)(mMaxHorizonNanos / 1000000L);
+    }
+
+    // 手指按下或抬起时清空
+    public void reset() {
+        mHead          = 0;
+        mCount         = 0;
+        mVelocityX     = 0;
+        mVelocityY     = 0;
+        mVelocityValid = true;
+    }
+
+    // 按时间顺序加入一个采样(包括历史采样)，时间倒退的采样忽略
+    public void addSample(long timeNanos, float x, float y) {
+        if ((mCount > 0) && (timeNanos < mTimes[indexOf(mCount - 1)])) {
+            return;
+        }
+
+        if (mCount == CAPACITY) {
+            mHead = (mHead + 1) % CAPACITY;
+            mCount--;
+        }
+
+        int index = indexOf(mCount);
+
+        mTimes[index] = timeNanos;
+        mXs[index]    = x;
+        mYs[index]    = y;
+        mCount++;
+
+        // 丢掉窗口外的采样
+        while ((mCount > 1) && (timeNanos - mTimes[mHead] > mWindowNanos)) {
+            mHead = (mHead + 1) % CAPACITY;
+            mCount--;
+        }
+
+        mVelocityValid = false;
+    }
+
+    public int getSampleCount() {
+        return mCount;
+    }
+
+    public float getVelocityX() {
+        computeVelocity();
+        return mVelocityX;
+    }
+
+    public float getVelocityY() {
+        computeVelocity();
+        return mVelocityY;
+    }
+
+    // 从最后一个采样外推 horizonNanos 后的位置，写入 outPosition[0], outPosition[1]
+    // 没有采样时返回 false
+    public boolean predict(long horizonNanos, float[] outPosition) {
+        if (0 == mCount) {
+            return false;
+        }
+
+        computeVelocity();
+
+        int last = indexOf(mCount - 1);
+
+        float seconds = Math.max(0, Math.min(horizonNanos, mMaxHorizonNanos)) / 1e9f;
+
+        float dx = mVelocityX * seconds;
+        float dy = mVelocityY * seconds;
+
+        // 外推距离过大时按比例缩短，保持方向
+        float distance = (float)Math.hypot(dx, dy);
+
+        if (distance > mMaxOffset) {
+            float scale = mMaxOffset / distance;
+
+            dx *= scale;
+            dy *= scale;
+        }
+
+        outPosition[0] = mXs[last] + dx;
+        outPosition[1] = mYs[last] + dy;
+
+        return true;
+    }
+
+    // 窗口内采样的最小二乘拟合斜率
+    private void computeVelocity() {
+        if (mVelocityValid) {
+            return;
+        }
+
+        mVelocityValid = true;
+        mVelocityX     = 0;
+        mVelocityY     = 0;
+
+        if (mCount < 2) {
+            return;
+        }
+
+        // 时间以最后一个采样为原点，单位秒
+        long lastTime = mTimes[indexOf(mCount - 1)];
+
+        float meanT = 0;
+        float meanX = 0;
+        float meanY = 0;
+
+        for (int i = 0; i < mCount; i++) {
+            int index = indexOf(i);
+
+            meanT += (mTimes[index] - lastTime) / 1e9f;
+            meanX += mXs[index];
+            meanY += mYs[index];
+        }
+
+        meanT /= mCount;
+        meanX /= mCount;
+        meanY /= mCount;
+
+        float varT  = 0;
+        float covTX = 0;
+        float covTY = 0;
+
+        for (int i = 0; i < mCount; i++) {
+            int index = indexOf(i);
+            float t = (mTimes[index] - lastTime) / 1e9f - meanT;
+
+            varT  += t * t;
+            covTX += t * (mXs[index] - meanX);
+            covTY += t * (mYs[index] - meanY);
+        }
+
+        // 采样都在同一时刻
+        if (varT <= 0) {
+            return;
+        }
+
+        mVelocityX = covTX / varT;
+        mVelocityY = covTY / varT;
+    }
+
+    private int indexOf(int i) {
+        return (mHead + i) % CAPACITY;
+    }
+}
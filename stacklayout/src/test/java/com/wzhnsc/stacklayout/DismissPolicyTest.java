@@ -0,0 +1,78 @@
+package com.wzhnsc.stacklayout;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DismissPolicyTest {
+    private static final int CARD_WIDTH = 900;
+
+    private DismissPolicy mPolicy;
+
+    @Before
+    public void setUp() throws Exception {
+        mPolicy = new DismissPolicy();
+    }
+
+    @Test
+    public void withoutVelocity_keepsHalfWidthRule() throws Exception {
+        assertEquals(StackLayoutEngine.RELEASE_SNAP_BACK, mPolicy.decide(450, 0, 0, 0, CARD_WIDTH));
+        assertEquals(StackLayoutEngine.RELEASE_DISMISS_RIGHT, mPolicy.decide(451, 0, 0, 0, CARD_WIDTH));
+        assertEquals(StackLayoutEngine.RELEASE_DISMISS_LEFT, mPolicy.decide(-451, 0, 0, 0, CARD_WIDTH));
+    }
+
+    @Test
+    public void fastFling_dismissesEarly() throws Exception {
+        // 只拖了 60 像素，但甩得足够快
+        assertEquals(StackLayoutEngine.RELEASE_DISMISS_RIGHT, mPolicy.decide(60, 10, 2500, 300, CARD_WIDTH));
+        assertEquals(StackLayoutEngine.RELEASE_DISMISS_LEFT, mPolicy.decide(-60, 10, -2500, 300, CARD_WIDTH));
+    }
+
+    @Test
+    public void projectedPosition_countsTowardDistance() throws Exception {
+        // 300 + 1600 * 0.1 = 460 超过半宽
+        assertEquals(StackLayoutEngine.RELEASE_DISMISS_RIGHT, mPolicy.decide(300, 0, 1600, 0, CARD_WIDTH));
+
+        // 往回甩，推算位置回到半宽以内
+        assertEquals(StackLayoutEngine.RELEASE_SNAP_BACK, mPolicy.decide(500, 0, -1000, 0, CARD_WIDTH));
+    }
+
+    @Test
+    public void flingAgainstDragDirection_doesNotDismissThatWay() throws Exception {
+        // 拖到右边后向左甩，不会向左飞出
+        assertEquals(StackLayoutEngine.RELEASE_SNAP_BACK, mPolicy.decide(200, 0, -2500, 0, CARD_WIDTH));
+    }
+
+    @Test
+    public void verticalFling_snapsBack() throws Exception {
+        assertEquals(StackLayoutEngine.RELEASE_SNAP_BACK, mPolicy.decide(20, 300, 2100, 8000, CARD_WIDTH));
+    }
+
+    @Test
+    public void thresholds_areConfigurable() throws Exception {
+        mPolicy.setMinFlingVelocity(5000);
+        assertEquals(StackLayoutEngine.RELEASE_SNAP_BACK, mPolicy.decide(60, 0, 2500, 0, CARD_WIDTH));
+
+        mPolicy.setProjectionSeconds(0);
+        mPolicy.setDistanceFraction(0.25f);
+        assertEquals(StackLayoutEngine.RELEASE_DISMISS_RIGHT, mPolicy.decide(230, 0, 0, 0, CARD_WIDTH));
+    }
+
+    @Test
+    public void flyOutDuration_followsVelocityWithinRange() throws Exception {
+        // 匀减速飞过 1000 像素，初速 10000 像素/秒需要 200 毫秒
+        assertEquals(200, mPolicy.flyOutMillis(1000, 10000));
+        assertEquals(200, mPolicy.flyOutMillis(1000, -10000));
+
+        // 越快越短，但不超出范围
+        assertEquals(mPolicy.getMinFlyOutMillis(), mPolicy.flyOutMillis(1000, 100000));
+        assertEquals(mPolicy.getMaxFlyOutMillis(), mPolicy.flyOutMillis(1000, 1000));
+        assertEquals(mPolicy.getMaxFlyOutMillis(), mPolicy.flyOutMillis(1000, 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void flyOutRange_rejectsInvertedRange() throws Exception {
+        mPolicy.setFlyOutMillisRange(300, 100);
+    }
+}
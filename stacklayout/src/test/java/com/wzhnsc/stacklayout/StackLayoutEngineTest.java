@@ -0,0 +1,100 @@
+package com.wzhnsc.stacklayout;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StackLayoutEngineTest {
+    private StackLayoutEngine mEngine;
+
+    private final int[] mLefts = new int[4];
+    private final int[] mTops = new int[4];
+    private final int[] mDest = new int[2];
+
+    @Before
+    public void setUp() throws Exception {
+        mEngine = new StackLayoutEngine();
+        mEngine.setOverlapOffsetDist(39);
+        mEngine.setContainerSize(1080, 1920);
+        mEngine.setCardSize(900, 900);
+    }
+
+    @Test
+    public void layout_offsetsEachLayer() throws Exception {
+        mEngine.setPadding(10, 20, 0, 0);
+
+        mEngine.layout(4, mLefts, mTops);
+
+        assertArrayEquals(new int[] {10, 49, 88, 127}, mLefts);
+        assertArrayEquals(new int[] {20, 59, 98, 137}, mTops);
+    }
+
+    @Test
+    public void layout_centersWholeStack() throws Exception {
+        mEngine.setCenter(true);
+
+        mEngine.layout(4, mLefts, mTops);
+
+        // 叠层延伸出 3 * 39 = 117
+        assertEquals((1080 - 900 - 117) / 2, mLefts[0]);
+        assertEquals((1920 - 900 - 117) / 2, mTops[0]);
+        assertEquals(mLefts[0] + 117, mLefts[3]);
+    }
+
+    @Test
+    public void followDrag_staysBetweenOwnAndUpperPosition() throws Exception {
+        mEngine.followDrag(0, 0, 10, 100, 4, mLefts, mTops);
+
+        for (int i = 1; i < 4; i++) {
+            // 不超过上一层原来的位置，不低过自身原来的位置
+            assertTrue(mLefts[i] <= 39 * i);
+            assertTrue(mLefts[i] >= 39 * (i - 1));
+        }
+
+        // 本帧移动超过叠加偏移量时，完全移到最顶层原来的位置
+        assertArrayEquals(new int[] {0, 0, 0, 0}, mTops);
+    }
+
+    @Test
+    public void release_dismissesRightPastHalfWidth() throws Exception {
+        int result = mEngine.computeReleaseTarget(90, 500, 90 + 451, 500 + 100, mDest);
+
+        assertEquals(StackLayoutEngine.RELEASE_DISMISS_RIGHT, result);
+        assertEquals(1080, mDest[0]);
+        assertEquals(100 * (90 + 900) / 451 + 500, mDest[1]);
+    }
+
+    @Test
+    public void release_dismissesLeftAndClampsTop() throws Exception {
+        int result = mEngine.computeReleaseTarget(90, 500, 90 - 600, 500 - 1000, mDest);
+
+        assertEquals(StackLayoutEngine.RELEASE_DISMISS_LEFT, result);
+        assertEquals(-900, mDest[0]);
+        assertEquals(-900, mDest[1]);
+    }
+
+    @Test
+    public void release_snapsBackWhenShortOrVertical() throws Exception {
+        assertEquals(StackLayoutEngine.RELEASE_SNAP_BACK,
+                     mEngine.computeReleaseTarget(90, 500, 90 + 300, 500, mDest));
+        assertArrayEquals(new int[] {90, 500}, mDest);
+
+        // 垂直上下拖动不消失
+        assertEquals(StackLayoutEngine.RELEASE_SNAP_BACK,
+                     mEngine.computeReleaseTarget(90, 500, 90 + 600, 500 + 1800, mDest));
+        assertArrayEquals(new int[] {90, 500}, mDest);
+    }
+
+    @Test
+    public void release_flickDismissesEarlyAlongProjectedDirection() throws Exception {
+        // 只拖了 80 像素就快速甩向右下
+        int result = mEngine.computeReleaseTarget(90, 500, 90 + 80, 500 + 20, 3000, 1000, mDest);
+
+        assertEquals(StackLayoutEngine.RELEASE_DISMISS_RIGHT, result);
+        assertEquals(1080, mDest[0]);
+
+        // 按推算位置 (80 + 300, 20 + 100) 的方向飞出
+        assertEquals((int)(120f * (90 + 900) / 380f) + 500, mDest[1]);
+    }
+}
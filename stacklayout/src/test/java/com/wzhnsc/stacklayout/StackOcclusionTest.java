@@ -0,0 +1,27 @@
+package com.wzhnsc.stacklayout;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StackOcclusionTest {
+    @Test
+    public void intersectionArea_ofOverlappingAndDisjointRects() throws Exception {
+        assertEquals(25, StackOcclusion.intersectionArea(0, 0, 10, 10, 5, 5, 15, 15));
+        assertEquals(0, StackOcclusion.intersectionArea(0, 0, 10, 10, 10, 0, 20, 10));
+    }
+
+    @Test
+    public void contains_includesEqualRects() throws Exception {
+        assertTrue(StackOcclusion.contains(0, 0, 10, 10, 0, 0, 10, 10));
+        assertFalse(StackOcclusion.contains(0, 0, 10, 10, 1, 1, 11, 10));
+    }
+
+    @Test
+    public void scaleAboutPivot_keepsPivotInPlace() throws Exception {
+        // 宽 100 的卡片在 200 处，绕中心缩小一半
+        assertEquals(250f, StackOcclusion.scaleAboutPivot(200, 50, 0.5f, 50), 0);
+        assertEquals(225f, StackOcclusion.scaleAboutPivot(200, 50, 0.5f, 0), 0);
+        assertEquals(275f, StackOcclusion.scaleAboutPivot(200, 50, 0.5f, 100), 0);
+    }
+}
@@ -0,0 +1,95 @@
+package com.wzhnsc.stacklayout;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StackTransformTableTest {
+    private StackTransformTable mTable;
+
+    @Before
+    public void setUp() throws Exception {
+        mTable = new StackTransformTable();
+    }
+
+    @Test
+    public void defaults_offsetEachLayerOnly() throws Exception {
+        mTable.prepare(4);
+
+        assertTrue(mTable.isUniform());
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals(100 * i, mTable.offset(i));
+            assertEquals(1f, mTable.scale(i), 0);
+            assertEquals(1f, mTable.alpha(i), 0);
+            assertEquals(0f, mTable.elevation(i), 0);
+        }
+    }
+
+    @Test
+    public void deeperLayers_continueLastStep() throws Exception {
+        mTable.setScales(1f, 0.94f);
+        mTable.setOffsets(0, 30, 50);
+        mTable.prepare(4);
+
+        assertFalse(mTable.isUniform());
+
+        assertEquals(1 - 0.06f * 3, mTable.scale(3), 1e-6f);
+        assertArrayEquals(new int[] {0, 30, 50, 70},
+                          new int[] {mTable.offset(0), mTable.offset(1), mTable.offset(2), mTable.offset(3)});
+    }
+
+    @Test
+    public void values_areClamped() throws Exception {
+        mTable.setScales(1f, 0.5f);
+        mTable.setAlphas(1f, 0.4f);
+        mTable.setElevations(8f, 5f);
+        mTable.prepare(5);
+
+        assertEquals(0f, mTable.scale(4), 0);
+        assertEquals(0f, mTable.alpha(3), 0);
+        assertEquals(0f, mTable.elevation(4), 0);
+
+        mTable.setAlphas(0.5f, 1f);
+        mTable.prepare(5);
+
+        assertEquals(1f, mTable.alpha(4), 0);
+    }
+
+    @Test
+    public void toward_interpolatesBetweenAdjacentLayers() throws Exception {
+        mTable.setScales(1f, 0.9f);
+        mTable.setAlphas(1f, 0.8f);
+        mTable.setElevations(10f, 8f);
+        mTable.prepare(4);
+
+        assertEquals(0.8f, mTable.scaleToward(2, 0), 1e-6f);
+        assertEquals(0.85f, mTable.scaleToward(2, 0.5f), 1e-6f);
+        assertEquals(0.9f, mTable.scaleToward(2, 1), 1e-6f);
+
+        assertEquals(0.7f, mTable.alphaToward(2, 0.5f), 1e-6f);
+        assertEquals(7f, mTable.elevationToward(2, 0.5f), 1e-6f);
+
+        // 最顶层没有上一层
+        assertEquals(1f, mTable.scaleToward(0, 1), 0);
+    }
+
+    @Test
+    public void lookupBeyondPreparedDepth_matchesTable() throws Exception {
+        mTable.setScales(1f, 0.94f);
+        mTable.prepare(2);
+
+        assertEquals(1 - 0.06f * 5, mTable.scale(5), 1e-6f);
+
+        // 修改后没有重新 prepare 时也按新的值
+        mTable.setScales(1f, 0.9f);
+
+        assertEquals(0.9f, mTable.scale(1), 1e-6f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptySteps_areRejected() throws Exception {
+        mTable.setScales();
+    }
+}
@@ -0,0 +1,160 @@
+package com.wzhnsc.stacklayout;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TouchPredictorTest {
+    // 触摸采样间隔 4 毫秒(240Hz)，外推一帧
+    private static final long SAMPLE_NANOS = 4000000L;
+    private static final long HORIZON_NANOS = 16000000L;
+
+    private static final float HORIZON_SECONDS = HORIZON_NANOS / 1e9f;
+    private static final float WINDOW_SECONDS = 0.05f;
+
+    private TouchPredictor mPredictor;
+
+    private final float[] mPosition = new float[2];
+
+    @Before
+    public void setUp() throws Exception {
+        mPredictor = new TouchPredictor();
+        mPredictor.setWindowMillis((int)(WINDOW_SECONDS * 1000));
+        mPredictor.setMaxOffset(1000);
+        mPredictor.reset();
+    }
+
+    @Test
+    public void constantVelocity_isPredictedExactly() throws Exception {
+        float velocity = 1500;
+
+        long t = feed(0, 30, velocity, 0, 0);
+
+        assertTrue(mPredictor.predict(HORIZON_NANOS, mPosition));
+
+        float expected = positionAt(t + HORIZON_NANOS, velocity, 0, 0);
+
+        // 不外推时落后 v * h = 24 像素
+        float lag = expected - positionAt(t, velocity, 0, 0);
+        assertEquals(24f, lag, 0.01f);
+
+        assertEquals(expected, mPosition[0], 0.5f);
+        assertEquals(velocity, mPredictor.getVelocityX(), 1f);
+    }
+
+    @Test
+    public void acceleratingFinger_errorWithinBound() throws Exception {
+        float velocity     = 300;
+        float acceleration = 10000;
+
+        long t = feed(0, 40, velocity, acceleration, 0);
+
+        mPredictor.predict(HORIZON_NANOS, mPosition);
+
+        float expected = positionAt(t + HORIZON_NANOS, velocity, acceleration, 0);
+        float lag      = expected - positionAt(t, velocity, acceleration, 0);
+
+        // a * h * (h + W) / 2
+        float bound = acceleration * HORIZON_SECONDS * (HORIZON_SECONDS + WINDOW_SECONDS) / 2;
+
+        float error = Math.abs(expected - mPosition[0]);
+
+        assertTrue("error " + error + " exceeds " + bound, error <= bound + 0.5f);
+        // 比不外推的落后小得多
+        assertTrue(error < lag / 4);
+    }
+
+    @Test
+    public void jitter_errorStaysSmall() throws Exception {
+        float velocity = 1000;
+
+        long t = feed(0, 30, velocity, 0, 1);
+
+        mPredictor.predict(HORIZON_NANOS, mPosition);
+
+        float expected = positionAt(t + HORIZON_NANOS, velocity, 0, 0);
+
+        // 每个采样 ±1 像素的抖动，外推后误差仍在 3 像素内
+        assertEquals(expected, mPosition[0], 3f);
+    }
+
+    @Test
+    public void fingerStops_overshootIsBoundedAndDecays() throws Exception {
+        mPredictor.setMaxOffset(20);
+
+        float velocity = 3000;
+
+        long t = feed(0, 30, velocity, 0, 0);
+        float stopX = positionAt(t, velocity, 0, 0);
+
+        // 刚停下时超出手指的距离不超过 maxOffset
+        mPredictor.addSample(t + SAMPLE_NANOS, stopX, 0);
+        mPredictor.predict(HORIZON_NANOS, mPosition);
+
+        assertTrue(mPosition[0] - stopX <= 20f + 0.001f);
+
+        // 窗口内都是静止的采样后回到手指下面
+        long stopped = t + SAMPLE_NANOS;
+
+        while (stopped - t <= WINDOW_SECONDS * 1e9f) {
+            stopped += SAMPLE_NANOS;
+            mPredictor.addSample(stopped, stopX, 0);
+        }
+
+        mPredictor.predict(HORIZON_NANOS, mPosition);
+
+        assertEquals(stopX, mPosition[0], 0.01f);
+    }
+
+    @Test
+    public void horizon_isClamped() throws Exception {
+        mPredictor.setMaxHorizonMillis(20);
+
+        long t = feed(0, 30, 1000, 0, 0);
+
+        mPredictor.predict(1000000000L, mPosition);
+
+        assertEquals(positionAt(t, 1000, 0, 0) + 20, mPosition[0], 0.5f);
+    }
+
+    @Test
+    public void singleSample_predictsItself() throws Exception {
+        assertFalse(mPredictor.predict(HORIZON_NANOS, mPosition));
+
+        mPredictor.addSample(0, 12, 34);
+
+        assertTrue(mPredictor.predict(HORIZON_NANOS, mPosition));
+        assertEquals(12, mPosition[0], 0);
+        assertEquals(34, mPosition[1], 0);
+    }
+
+    @Test
+    public void sameTimestamp_hasNoVelocity() throws Exception {
+        mPredictor.addSample(0, 0, 0);
+        mPredictor.addSample(0, 50, 0);
+
+        assertEquals(0, mPredictor.getVelocityX(), 0);
+    }
+
+    // 从 startNanos 起加入 count 个采样，奇数个采样加上 jitter 的抖动，返回最后一个采样的时间
+    private long feed(long startNanos, int count, float velocity, float acceleration, float jitter) {
+        long t = startNanos;
+
+        for (int i = 0; i < count; i++) {
+            t = startNanos + i * SAMPLE_NANOS;
+
+            float noise = (0 == (i & 1)) ? jitter : -jitter;
+
+            mPredictor.addSample(t, positionAt(t, velocity, acceleration, 0) + noise, 0);
+        }
+
+        return t;
+    }
+
+    private static float positionAt(long timeNanos, float velocity, float acceleration, float start) {
+        float seconds = timeNanos / 1e9f;
+
+        return start + velocity * seconds + acceleration * seconds * seconds / 2;
+    }
+}